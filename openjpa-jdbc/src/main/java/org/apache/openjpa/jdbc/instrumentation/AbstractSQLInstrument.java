@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.instrumentation;
+
+import java.util.Date;
+import java.util.Set;
+
+import org.apache.openjpa.lib.instrumentation.AbstractInstrument;
+import org.apache.openjpa.lib.instrumentation.InstrumentationLevel;
+import org.apache.openjpa.lib.jdbc.SQLStatistics;
+
+/**
+ * Provides a basic instrument implementation wrapper for SQL statistics.
+ * This class can be extended to create a provider specific instrument for
+ * executed SQL.
+ *
+ * @since 4.1.2
+ */
+public abstract class AbstractSQLInstrument extends AbstractInstrument
+    implements SQLInstrument {
+
+    public static final long NO_STATS = -1;
+
+    private SQLStatistics _stats;
+    private String _configID = null;
+    private String _configRef = null;
+
+    public void setConfigId(String cid) {
+        _configID = cid;
+    }
+
+    public void setContextRef(String cref) {
+        _configRef = cref;
+    }
+
+    public String getConfigId() {
+        return _configID;
+    }
+
+    public String getContextRef() {
+        return _configRef;
+    }
+
+    public void setSQLStatistics(SQLStatistics stats) {
+        _stats = stats;
+    }
+
+    public SQLStatistics getSQLStatistics() {
+        return _stats;
+    }
+
+    private SQLStatistics.Shape getShape(String sql) {
+        if (_stats == null)
+            return null;
+        return _stats.getShape(sql);
+    }
+
+    @Override
+    public Set<String> sql() {
+        if (_stats != null)
+            return _stats.getSQL();
+        return null;
+    }
+
+    @Override
+    public long getExecutionCount() {
+        if (_stats == null)
+            return NO_STATS;
+        long count = 0;
+        SQLStatistics.Shape shape;
+        for (String sql : _stats.getSQL()) {
+            shape = _stats.getShape(sql);
+            if (shape != null)
+                count += shape.getExecutionCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getExecutionCount(String sql) {
+        SQLStatistics.Shape shape = getShape(sql);
+        if (shape != null)
+            return shape.getExecutionCount();
+        return NO_STATS;
+    }
+
+    @Override
+    public long getTotalNanos(String sql) {
+        SQLStatistics.Shape shape = getShape(sql);
+        if (shape != null)
+            return shape.getTotalNanos();
+        return NO_STATS;
+    }
+
+    @Override
+    public double getMeanNanos(String sql) {
+        SQLStatistics.Shape shape = getShape(sql);
+        if (shape != null)
+            return shape.getMeanNanos();
+        return NO_STATS;
+    }
+
+    @Override
+    public long getMaxNanos(String sql) {
+        SQLStatistics.Shape shape = getShape(sql);
+        if (shape != null)
+            return shape.getMaxNanos();
+        return NO_STATS;
+    }
+
+    @Override
+    public long getPercentileNanos(String sql, double percentile) {
+        SQLStatistics.Shape shape = getShape(sql);
+        if (shape != null)
+            return shape.getPercentileNanos(percentile);
+        return NO_STATS;
+    }
+
+    @Override
+    public long[] getHistogram(String sql) {
+        SQLStatistics.Shape shape = getShape(sql);
+        if (shape != null)
+            return shape.getHistogram();
+        return null;
+    }
+
+    @Override
+    public long getRowCount(String sql) {
+        SQLStatistics.Shape shape = getShape(sql);
+        if (shape != null)
+            return shape.getRowCount();
+        return NO_STATS;
+    }
+
+    @Override
+    public long getBatchCount(String sql) {
+        SQLStatistics.Shape shape = getShape(sql);
+        if (shape != null)
+            return shape.getBatchCount();
+        return NO_STATS;
+    }
+
+    @Override
+    public long getBatchedStatementCount(String sql) {
+        SQLStatistics.Shape shape = getShape(sql);
+        if (shape != null)
+            return shape.getBatchedStatementCount();
+        return NO_STATS;
+    }
+
+    @Override
+    public void reset() {
+        if (_stats != null)
+            _stats.reset();
+    }
+
+    @Override
+    public Date sinceDate() {
+        if (_stats != null)
+            return _stats.since();
+        return null;
+    }
+
+    @Override
+    public InstrumentationLevel getLevel() {
+        return InstrumentationLevel.FACTORY;
+    }
+}
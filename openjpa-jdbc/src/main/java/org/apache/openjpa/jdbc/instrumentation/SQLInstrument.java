@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.instrumentation;
+
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * Interface for providing instrumented statistics of executed SQL. Times
+ * are in nanoseconds. Statistics are kept per SQL string; for prepared
+ * statements, this is the statement with its parameter markers.
+ *
+ * @since 4.1.2
+ */
+public interface SQLInstrument {
+
+    /**
+     * Returns the SQL strings for which statistics are kept.
+     */
+    Set<String> sql();
+
+    /**
+     * Returns number of executions of all SQL since last reset, counting
+     * each batch once.
+     */
+    long getExecutionCount();
+
+    /**
+     * Returns number of executions of the given SQL since last reset,
+     * counting each batch once.
+     */
+    long getExecutionCount(String sql);
+
+    /**
+     * Returns total execution time of the given SQL since last reset.
+     */
+    long getTotalNanos(String sql);
+
+    /**
+     * Returns mean execution time of the given SQL since last reset.
+     */
+    double getMeanNanos(String sql);
+
+    /**
+     * Returns longest execution time of the given SQL since last reset.
+     */
+    long getMaxNanos(String sql);
+
+    /**
+     * Returns an upper bound of the given percentile (0 to 100) of the
+     * execution times of the given SQL since last reset.
+     */
+    long getPercentileNanos(String sql, double percentile);
+
+    /**
+     * Returns the execution time histogram of the given SQL since last
+     * reset. Entry <code>i</code> counts executions that took less than
+     * <code>2^i</code> and at least <code>2^(i-1)</code> nanoseconds.
+     */
+    long[] getHistogram(String sql);
+
+    /**
+     * Returns number of rows fetched from results of the given SQL since
+     * last reset.
+     */
+    long getRowCount(String sql);
+
+    /**
+     * Returns number of batches of the given SQL executed since last reset.
+     */
+    long getBatchCount(String sql);
+
+    /**
+     * Returns number of statements of the given SQL executed in batches
+     * since last reset.
+     */
+    long getBatchedStatementCount(String sql);
+
+    /**
+     * Resets SQL statistics.
+     */
+    void reset();
+
+    /**
+     * Returns date since SQL statistics collection was last reset.
+     */
+    Date sinceDate();
+}
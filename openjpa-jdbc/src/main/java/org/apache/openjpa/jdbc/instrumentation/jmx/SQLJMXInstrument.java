@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.instrumentation.jmx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+import org.apache.openjpa.instrumentation.jmx.JMXInstrument;
+import org.apache.openjpa.instrumentation.jmx.JMXProvider;
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.jdbc.instrumentation.AbstractSQLInstrument;
+import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.lib.instrumentation.InstrumentationLevel;
+import org.apache.openjpa.lib.jdbc.ConnectionDecorator;
+import org.apache.openjpa.lib.jdbc.DecoratingDataSource;
+import org.apache.openjpa.lib.jdbc.LoggingConnectionDecorator;
+import org.apache.openjpa.lib.jdbc.SQLStatistics;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.util.UserException;
+
+/**
+ * A JMX-specific instrument for SQL statistics. Starting the instrument
+ * makes the logging decorators of the configured connection factories
+ * record statistics; stopping it turns recording off again.
+ *
+ * @since 4.1.2
+ */
+public class SQLJMXInstrument extends AbstractSQLInstrument
+    implements JMXInstrument, SQLJMXInstrumentMBean {
+
+    private static Localizer _loc = Localizer.forPackage(SQLJMXInstrument.class);
+
+    private static final String MBEAN_TYPE = "SQLStatistics";
+
+    private ObjectName _objName = null;
+    private final List<LoggingConnectionDecorator> _decorators = new ArrayList<>();
+
+    @Override
+    public String getName() {
+        return MBEAN_TYPE;
+    }
+
+    @Override
+    public InstrumentationLevel getLevel() {
+        return InstrumentationLevel.FACTORY;
+    }
+
+    @Override
+    public void initialize() {
+        Configuration conf = getProvider().getConfiguration();
+        if (!(conf instanceof JDBCConfiguration)) {
+            throw new UserException(_loc.get("sql-stats-not-jdbc"));
+        }
+
+        JDBCConfiguration jconf = (JDBCConfiguration) conf;
+        addDecorators(jconf.getConnectionFactory());
+        addDecorators(jconf.getConnectionFactory2());
+        if (_decorators.isEmpty()) {
+            throw new UserException(_loc.get("sql-stats-not-found"));
+        }
+
+        setSQLStatistics(new SQLStatistics());
+        setConfigId(jconf.getId());
+        setContextRef(Integer.toString(System.identityHashCode(getContext())));
+    }
+
+    private void addDecorators(Object factory) {
+        if (!(factory instanceof DecoratingDataSource))
+            return;
+        for (ConnectionDecorator cd : ((DecoratingDataSource) factory).getDecorators()) {
+            if (cd instanceof LoggingConnectionDecorator && !_decorators.contains(cd))
+                _decorators.add((LoggingConnectionDecorator) cd);
+        }
+    }
+
+    @Override
+    public ObjectName getObjectName() {
+        if (_objName != null) {
+            return _objName;
+        }
+
+        try {
+            _objName = JMXProvider.createObjectName(this, null);
+            return _objName;
+        } catch (Throwable t) {
+            throw new UserException(_loc.get("unable-to-create-object-name", getName()), t);
+        }
+    }
+
+    @Override
+    public void start() {
+        for (LoggingConnectionDecorator lcd : _decorators) {
+            lcd.setSQLStatistics(getSQLStatistics());
+        }
+        getProvider().startInstrument(this);
+    }
+
+    @Override
+    public void stop() {
+        for (LoggingConnectionDecorator lcd : _decorators) {
+            if (lcd.getSQLStatistics() == getSQLStatistics())
+                lcd.setSQLStatistics(null);
+        }
+        getProvider().stopInstrument(this);
+    }
+}
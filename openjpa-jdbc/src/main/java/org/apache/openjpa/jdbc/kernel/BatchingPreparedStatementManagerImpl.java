@@ -39,7 +39,9 @@ import org.apache.openjpa.util.OptimisticException;
 /**
  * Batch prepared statement manager implementation. This prepared statement
  * manager will utilize the JDBC addBatch() and exceuteBatch() to batch the SQL
- * statements together to improve the execution performance.
+ * statements together to improve the execution performance. If the
+ * dictionary enables multi-row inserts, batched inserts are instead sent as
+ * INSERT statements with several rows each.
  *
  * @author Teresa Kan
  */
@@ -147,7 +149,10 @@ public class BatchingPreparedStatementManagerImpl extends
             return;
 
         int batchSize = batchedRows.size();
-        if (batchedSql != null &&  batchSize > 0) {
+        int rowsPerInsert = getRowsPerInsert(batchedRows);
+        if (batchedSql != null && rowsPerInsert > 1) {
+            flushMultiRowInsert(batchedRows, batchedSql, rowsPerInsert);
+        } else if (batchedSql != null &&  batchSize > 0) {
             PreparedStatement ps = null;
             try {
                 RowImpl onerow = null;
@@ -245,6 +250,100 @@ public class BatchingPreparedStatementManagerImpl extends
         }
     }
 
+    /**
+     * Return the number of batched rows to send per multi-row INSERT, or 1
+     * if the rows should not be sent as multi-row inserts. The number is
+     * bounded by the batch limit and by the maximum number of parameters
+     * per statement of the dictionary.
+     */
+    protected int getRowsPerInsert(List<RowImpl> batchedRows) {
+        if (batchedRows.size() < 2 || _batchLimit == 1
+            || !_dict.isMultiRowInsertEnabled()
+            || batchedRows.get(0).getAction() != Row.ACTION_INSERT)
+            return 1;
+
+        int rows = batchedRows.size();
+        if (_batchLimit > 0)
+            rows = Math.min(rows, _batchLimit);
+        int params = batchedRows.get(0).getBoundParameterCount();
+        if (_dict.maxParameterCount > 0 && params > 0)
+            rows = Math.min(rows, _dict.maxParameterCount / params);
+        return Math.max(rows, 1);
+    }
+
+    /**
+     * Flush the batched inserts as multi-row INSERT statements of up to the
+     * given number of rows each.
+     */
+    protected void flushMultiRowInsert(List<RowImpl> batchedRows,
+        String batchedSql, int rowsPerInsert)
+        throws SQLException {
+        PreparedStatement ps = null;
+        int psRows = 0;
+        try {
+            int rows;
+            String sql = null;
+            for (int start = 0; start < batchedRows.size(); start += rows) {
+                rows = Math.min(rowsPerInsert, batchedRows.size() - start);
+                // reuse the statement for chunks of the same size
+                if (ps == null || rows != psRows) {
+                    if (ps != null)
+                        ps.close();
+                    sql = _dict.getMultiRowInsertSQL(batchedSql, rows);
+                    ps = prepareStatement(sql);
+                    psRows = rows;
+                }
+
+                int idx = 1;
+                for (int i = start; i < start + rows; i++)
+                    idx = batchedRows.get(i).flushParameters(ps, idx, _dict,
+                        _store);
+                int count = executeUpdate(ps, sql, batchedRows.get(start));
+                checkInsertCount(count, batchedRows.subList(start,
+                    start + rows), ps);
+            }
+        } catch (SQLException se) {
+            // the database does not tell which row of a multi-row insert
+            // failed
+            SQLException sqex = se.getNextException();
+            throw SQLExceptions.getStore((sqex == null) ? se : sqex, ps, _dict);
+        } finally {
+            _batchedSql = null;
+            batchedRows.clear();
+            if (ps != null) {
+                ps.clearParameters();
+                try {
+                    ps.close();
+                } catch (SQLException sqex) {
+                    throw SQLExceptions.getStore(sqex, ps, _dict);
+                }
+            }
+        }
+    }
+
+    /*
+     * Check the update count of a multi-row insert. Unless every row was
+     * inserted, each row of the statement is treated as failed, because
+     * there is no way to tell which rows were inserted.
+     */
+    private void checkInsertCount(int count, List<RowImpl> rows,
+        PreparedStatement ps)
+        throws SQLException {
+        if (count == rows.size())
+            return;
+
+        logSQLWarnings(ps);
+        Object failed;
+        for (RowImpl row : rows) {
+            failed = row.getFailedObject();
+            if (failed != null)
+                _exceptions.add(new OptimisticException(failed));
+            else
+                throw new SQLException(_loc.get("update-failed-no-failed-obj",
+                    String.valueOf(count), row.getSQL(_dict)).getMessage());
+        }
+    }
+
     /*
      * Execute an update of a single row.
      */
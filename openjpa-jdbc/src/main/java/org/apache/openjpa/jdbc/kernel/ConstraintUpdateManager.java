@@ -20,8 +20,10 @@ package org.apache.openjpa.jdbc.kernel;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -56,6 +58,34 @@ public class ConstraintUpdateManager
     private static final Localizer _loc = Localizer.forPackage
         (ConstraintUpdateManager.class);
 
+    private boolean _groupByTable = false;
+
+    /**
+     * Whether rows that do not depend on other rows of the flush are issued
+     * table by table. This only changes the order of the statements: they
+     * are still executed one after another on the transaction's connection,
+     * and consecutive statements with the same SQL can then share a batch.
+     * Rows of the same table keep their relative order. Defaults to false.
+     *
+     * @since 4.1.2
+     */
+    public boolean getGroupByTable() {
+        return _groupByTable;
+    }
+
+    /**
+     * Whether rows that do not depend on other rows of the flush are issued
+     * table by table. This only changes the order of the statements: they
+     * are still executed one after another on the transaction's connection,
+     * and consecutive statements with the same SQL can then share a batch.
+     * Rows of the same table keep their relative order. Defaults to false.
+     *
+     * @since 4.1.2
+     */
+    public void setGroupByTable(boolean groupByTable) {
+        _groupByTable = groupByTable;
+    }
+
     @Override
     public boolean orderDirty() {
         return true;
@@ -81,7 +111,7 @@ public class ConstraintUpdateManager
         // (which are probably secondary table deletes), since no foreign
         // keys ever rely on secondary table pks
         flush(rmimpl.getAllRowDeletes(), psMgr);
-        flush(rmimpl.getSecondaryDeletes(), psMgr);
+        flush(groupByTable(rmimpl.getSecondaryDeletes()), psMgr);
 
         // now do any 'all row' updates
         flush(rmimpl.getAllRowUpdates(), psMgr);
@@ -106,8 +136,8 @@ public class ConstraintUpdateManager
 
         // flush the rest of the inserts and updates; inserts before updates
         // because some update fks might reference pks that have to be inserted
-        flush(inserts, psMgr);
-        flush(updates, psMgr);
+        flush(groupByTable(inserts), psMgr);
+        flush(groupByTable(updates), psMgr);
 
         // flush the delete graph, if any
         try {
@@ -120,12 +150,12 @@ public class ConstraintUpdateManager
 
         // put the remainder of the deletes after updates because some updates
         // may be nulling fks to rows that are going to be deleted
-        flush(deletes, psMgr);
+        flush(groupByTable(deletes), psMgr);
 
         // take care of all secondary table inserts and updates last, since
         // they may rely on previous inserts or updates, but nothing relies
         // on them
-        flush(rmimpl.getSecondaryUpdates(), psMgr);
+        flush(groupByTable(rmimpl.getSecondaryUpdates()), psMgr);
 
         // flush any left over prepared statements
         psMgr.flush();
@@ -541,6 +571,34 @@ public class ConstraintUpdateManager
         return new DepthFirstAnalysis(graph);
     }
 
+    /**
+     * If grouping by table, return the given rows ordered by table. Tables
+     * are ordered by their first row, and rows of the same table keep their
+     * relative order. Only used for rows that do not depend on other rows
+     * of the flush; dependent rows are flushed through the foreign key
+     * graph. The rows are reordered only; they are flushed serially by
+     * the caller.
+     */
+    protected Collection groupByTable(Collection rows) {
+        if (!_groupByTable || rows.size() < 3)
+            return rows;
+
+        Map<Table, List<RowImpl>> groups = new LinkedHashMap<>();
+        RowImpl row;
+        for (Object o : rows) {
+            row = (RowImpl) o;
+            groups.computeIfAbsent(row.getTable(), t -> new ArrayList<>())
+                .add(row);
+        }
+        if (groups.size() == 1)
+            return rows;
+
+        List<RowImpl> grouped = new ArrayList<>(rows.size());
+        for (List<RowImpl> group : groups.values())
+            grouped.addAll(group);
+        return grouped;
+    }
+
     /**
      * Flush the given collection of secondary rows.
      */
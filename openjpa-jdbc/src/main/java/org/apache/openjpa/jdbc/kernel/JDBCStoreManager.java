@@ -27,6 +27,8 @@ import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -40,12 +42,15 @@ import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
 import org.apache.openjpa.jdbc.meta.ClassMapping;
 import org.apache.openjpa.jdbc.meta.Discriminator;
 import org.apache.openjpa.jdbc.meta.FieldMapping;
+import org.apache.openjpa.jdbc.meta.Joinable;
 import org.apache.openjpa.jdbc.meta.ValueMapping;
 import org.apache.openjpa.jdbc.meta.strats.SuperclassDiscriminatorStrategy;
+import org.apache.openjpa.jdbc.schema.Column;
 import org.apache.openjpa.jdbc.sql.DBDictionary;
 import org.apache.openjpa.jdbc.sql.JoinSyntaxes;
 import org.apache.openjpa.jdbc.sql.Joins;
 import org.apache.openjpa.jdbc.sql.Result;
+import org.apache.openjpa.jdbc.sql.SQLBuffer;
 import org.apache.openjpa.jdbc.sql.SQLExceptions;
 import org.apache.openjpa.jdbc.sql.SQLFactory;
 import org.apache.openjpa.jdbc.sql.Select;
@@ -54,6 +59,7 @@ import org.apache.openjpa.jdbc.sql.Union;
 import org.apache.openjpa.kernel.BrokerImpl;
 import org.apache.openjpa.kernel.FetchConfiguration;
 import org.apache.openjpa.kernel.FinderCache;
+import org.apache.openjpa.kernel.LockLevels;
 import org.apache.openjpa.kernel.LockManager;
 import org.apache.openjpa.kernel.OpenJPAStateManager;
 import org.apache.openjpa.kernel.PCState;
@@ -691,17 +697,7 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
 	            }
             }
 
-            // now allow the fields to load themselves individually too
-            FieldMapping[] fms = mapping.getFieldMappings();
-            for (int i = 0; i < fms.length; i++)
-                if (fields.get(i) && (!sm.getLoaded().get(i) || sm.isDelayed(i))) {
-                    if (_log.isTraceEnabled()) {
-                        _log.trace("load field: '"+ fms[i].getName() + "' for oid="+sm.getObjectId()
-                            +" "+mapping.getDescribedType());
-                    }
-                    fms[i].load(sm, this, jfetch.traverseJDBC(fms[i]));
-                }
-            mapping.getVersion().afterLoad(sm, this);
+            loadIndividually(mapping, sm, fields, jfetch);
             return true;
         } catch (ClassNotFoundException cnfe) {
             throw new StoreException(cnfe);
@@ -710,6 +706,25 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
         }
     }
 
+    /**
+     * Allow the given fields that were not loaded from a select to load
+     * themselves individually, then complete the load of the instance.
+     */
+    private void loadIndividually(ClassMapping mapping,
+        OpenJPAStateManager sm, BitSet fields, JDBCFetchConfiguration jfetch)
+        throws SQLException {
+        FieldMapping[] fms = mapping.getFieldMappings();
+        for (int i = 0; i < fms.length; i++)
+            if (fields.get(i) && (!sm.getLoaded().get(i) || sm.isDelayed(i))) {
+                if (_log.isTraceEnabled()) {
+                    _log.trace("load field: '"+ fms[i].getName() + "' for oid="+sm.getObjectId()
+                        +" "+mapping.getDescribedType());
+                }
+                fms[i].load(sm, this, jfetch.traverseJDBC(fms[i]));
+            }
+        mapping.getVersion().afterLoad(sm, this);
+    }
+
     private boolean isDelayedLoadOnly(OpenJPAStateManager sm, BitSet fields, ClassMapping mapping) {
         if (!sm.getContext().getConfiguration().getProxyManagerInstance().getDelayCollectionLoading()
             || fields.isEmpty()) {
@@ -735,10 +750,367 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
                 fields.clear(i);
     }
 
+    /**
+     * Instances of the same mapping that need to be initialized are selected
+     * together with primary key IN conditions, in chunks of at most
+     * {@link DBDictionary#loadAllBatchSize}. So are the unloaded fields of
+     * managed instances of the same mapping that are not locked; the select
+     * covers the union of the fields each instance lacks, and relations are
+     * fetched for the whole chunk by the eager selects of the fetch
+     * configuration. All other instances are loaded one by one.
+     */
     @Override
     public Collection loadAll(Collection sms, PCState state, int load,
         FetchConfiguration fetch, Object context) {
-        return ImplHelper.loadAll(sms, this, state, load, fetch, context);
+        if (context != null || sms.size() < 2 || _dict.loadAllBatchSize <= 1)
+            return ImplHelper.loadAll(sms, this, state, load, fetch, context);
+
+        Map<ClassMapping, List<OpenJPAStateManager>> groups =
+            new LinkedHashMap<>();
+        Map<ClassMapping, List<OpenJPAStateManager>> loads =
+            new LinkedHashMap<>();
+        List<OpenJPAStateManager> rest = new ArrayList<>();
+        OpenJPAStateManager sm;
+        for (Object o : sms) {
+            sm = (OpenJPAStateManager) o;
+            if (isBulkInitializable(sm))
+                groups.computeIfAbsent((ClassMapping) sm.getMetaData(),
+                    m -> new ArrayList<>()).add(sm);
+            else if (isBulkLoadable(sm, load))
+                loads.computeIfAbsent((ClassMapping) sm.getMetaData(),
+                    m -> new ArrayList<>()).add(sm);
+            else
+                rest.add(sm);
+        }
+
+        Collection failed = new ArrayList();
+        JDBCFetchConfiguration jfetch = (JDBCFetchConfiguration) fetch;
+        for (Map.Entry<ClassMapping, List<OpenJPAStateManager>> group
+            : groups.entrySet()) {
+            if (group.getValue().size() == 1)
+                rest.addAll(group.getValue());
+            else
+                initializeAll(group.getKey(), group.getValue(), state, jfetch,
+                    failed);
+        }
+        for (Map.Entry<ClassMapping, List<OpenJPAStateManager>> group
+            : loads.entrySet()) {
+            if (group.getValue().size() == 1)
+                rest.addAll(group.getValue());
+            else
+                loadAll(group.getKey(), group.getValue(), jfetch, rest);
+        }
+        if (!rest.isEmpty())
+            failed.addAll(ImplHelper.loadAll(rest, this, state, load, fetch,
+                context));
+        return (failed.isEmpty()) ? Collections.EMPTY_LIST : failed;
+    }
+
+    /**
+     * Whether the given instance can be initialized by a select shared with
+     * other instances of its mapping. Its oid must determine its mapping:
+     * an {@link OpenJPAId} without subclasses, or an application identity
+     * class such as an <code>IdClass</code> of a mapping without
+     * subclasses. Otherwise it is initialized on its own, selecting from
+     * the possible subclasses.
+     */
+    private boolean isBulkInitializable(OpenJPAStateManager sm) {
+        if (sm.getManagedInstance() != null)
+            return false;
+        Object oid = sm.getObjectId();
+        if (oid instanceof OpenJPAId ? ((OpenJPAId) oid).hasSubclasses()
+            : sm.getMetaData().getPCSubclasses().length > 0)
+            return false;
+        return isBulkSelectable(sm);
+    }
+
+    /**
+     * Whether the unloaded fields of the given managed instance can be
+     * loaded by a select shared with other instances of its mapping.
+     * Locked instances are loaded one by one, at their lock level.
+     */
+    private boolean isBulkLoadable(OpenJPAStateManager sm, int load) {
+        if (sm.getManagedInstance() == null
+            || (load == FORCE_LOAD_NONE && sm.getPCState() != PCState.HOLLOW))
+            return false;
+        return sm.getContext().getLockManager().getLockLevel(sm)
+            == LockLevels.LOCK_NONE && isBulkSelectable(sm);
+    }
+
+    /**
+     * Whether the given instance can be selected by its primary key values
+     * in a select shared with other instances of its mapping.
+     */
+    private boolean isBulkSelectable(OpenJPAStateManager sm) {
+        ClassMapping mapping = (ClassMapping) sm.getMetaData();
+        return mapping.isMapped() && mapping.getEmbeddingMapping() == null
+            && mapping.isPrimaryKeyObjectId(false);
+    }
+
+    /**
+     * Initialize the given instances of the given mapping with as few
+     * selects as possible, adding the ids of instances that do not exist
+     * to <code>failed</code>.
+     */
+    private void initializeAll(ClassMapping mapping,
+        List<OpenJPAStateManager> sms, PCState state,
+        JDBCFetchConfiguration fetch, Collection failed) {
+        try {
+            Map<Object, OpenJPAStateManager> pending = new LinkedHashMap<>();
+            Boolean custom;
+            for (OpenJPAStateManager sm : sms) {
+                custom = customLoad(sm, mapping, state, fetch);
+                if (custom == null)
+                    pending.put(sm.getObjectId(), sm);
+                else if (!custom)
+                    failed.add(sm.getId());
+            }
+
+            Column[] pks = mapping.getPrimaryKeyColumns();
+            int size = getLoadAllBatchSize(pks);
+            List<OpenJPAStateManager> all = new ArrayList<>(pending.values());
+            List<OpenJPAStateManager> chunk;
+            for (int i = 0; i < all.size(); i += size) {
+                chunk = all.subList(i, Math.min(i + size, all.size()));
+                if (selectAll(mapping, pks, chunk, pending, state, fetch))
+                    continue;
+
+                // nothing to select; initialize one by one so that
+                // existence is checked
+                for (OpenJPAStateManager sm : chunk) {
+                    pending.remove(sm.getObjectId());
+                    if (!initializeState(sm, state, fetch, null))
+                        failed.add(sm.getId());
+                }
+            }
+
+            // anything not found in the results does not exist
+            for (OpenJPAStateManager sm : pending.values())
+                failed.add(sm.getId());
+        } catch (ClassNotFoundException cnfe) {
+            throw new UserException(cnfe);
+        } catch (SQLException se) {
+            throw SQLExceptions.getStore(se, _dict, fetch.getReadLockLevel());
+        }
+    }
+
+    /**
+     * Return the number of instances to select together by the given
+     * primary key columns.
+     */
+    private int getLoadAllBatchSize(Column[] pks) {
+        int size = _dict.loadAllBatchSize;
+        if (_dict.inClauseLimit > 0)
+            size = Math.min(size, _dict.inClauseLimit);
+        if (_dict.maxParameterCount > 0)
+            size = Math.min(size, _dict.maxParameterCount / pks.length);
+        return Math.max(size, 1);
+    }
+
+    /**
+     * Load the unloaded fields of the given managed instances of the given
+     * mapping with as few selects as possible. Instances that can not be
+     * loaded from a shared select, including those that are not found, are
+     * added to <code>rest</code> so that they are loaded one by one.
+     */
+    private void loadAll(ClassMapping mapping, List<OpenJPAStateManager> sms,
+        JDBCFetchConfiguration fetch, Collection<OpenJPAStateManager> rest) {
+        try {
+            Map<Object, OpenJPAStateManager> pending = new LinkedHashMap<>();
+            Map<OpenJPAStateManager, BitSet> unloaded =
+                new IdentityHashMap<>();
+            BitSet fields = new BitSet();
+            BitSet smFields;
+            for (OpenJPAStateManager sm : sms) {
+                // if the instance is hollow and there's a customized
+                // get by id method, use it as a single load would
+                if (sm.getLoaded().length() == 0
+                    && mapping.customLoad(sm, this, null, fetch)) {
+                    rest.add(sm);
+                    continue;
+                }
+                smFields = sm.getUnloaded(fetch);
+                if (smFields.isEmpty()
+                    || isDelayedLoadOnly(sm, smFields, mapping)) {
+                    rest.add(sm);
+                    continue;
+                }
+                pending.put(sm.getObjectId(), sm);
+                unloaded.put(sm, smFields);
+                fields.or(smFields);
+            }
+
+            Column[] pks = mapping.getPrimaryKeyColumns();
+            int size = getLoadAllBatchSize(pks);
+            List<OpenJPAStateManager> all = new ArrayList<>(pending.values());
+            List<OpenJPAStateManager> loaded = new ArrayList<>();
+            for (int i = 0; i < all.size(); i += size) {
+                loadSelected(mapping, pks, all.subList(i, Math.min(i + size,
+                    all.size())), fields, pending, fetch, loaded);
+
+                // let the fields that need their own selects load after
+                // the shared result is closed
+                for (OpenJPAStateManager sm : loaded)
+                    loadIndividually(mapping, sm, unloaded.get(sm), fetch);
+                loaded.clear();
+            }
+
+            // anything not found in the results is left to a single load,
+            // which also determines whether it still exists
+            rest.addAll(pending.values());
+        } catch (ClassNotFoundException cnfe) {
+            throw new StoreException(cnfe);
+        } catch (SQLException se) {
+            throw SQLExceptions.getStore(se, _dict);
+        }
+    }
+
+    /**
+     * Select the given fields of the given instances and load those found
+     * from the result, removing them from <code>pending</code> and adding
+     * them to <code>loaded</code>.
+     */
+    private void loadSelected(ClassMapping mapping, Column[] pks,
+        List<OpenJPAStateManager> sms, BitSet fields,
+        Map<Object, OpenJPAStateManager> pending, JDBCFetchConfiguration fetch,
+        List<OpenJPAStateManager> loaded)
+        throws ClassNotFoundException, SQLException {
+        // add the where conditions first so that they are cloned into
+        // any parallel eager selects
+        Select sel = _sql.newSelect();
+        SQLBuffer buf = new SQLBuffer(_dict);
+        appendPrimaryKeyIn(sel, buf, mapping, pks, sms);
+        sel.where(buf);
+        if (!select(sel, mapping, Select.SUBS_EXACT, null, fields, fetch,
+            fetch.getEagerFetchMode(), true, false))
+            return;
+
+        if (_log.isTraceEnabled())
+            _log.trace("loadAll: " + sms.size() + " "
+                + mapping.getDescribedType());
+        Result res = sel.execute(this, fetch, LockLevels.LOCK_NONE);
+        try {
+            Object oid;
+            OpenJPAStateManager sm;
+            while (res.next()) {
+                oid = mapping.getObjectId(this, res, null, false, null);
+                sm = (oid == null) ? null : pending.remove(oid);
+                if (sm == null)
+                    continue;
+                load(mapping, sm, fetch, res);
+                loaded.add(sm);
+            }
+        } finally {
+            res.close();
+        }
+    }
+
+    /**
+     * Select the given instances and initialize those found from the
+     * result, removing them from <code>pending</code>. Return false if there
+     * is no data in the current fetch groups to select.
+     */
+    private boolean selectAll(ClassMapping mapping, Column[] pks,
+        List<OpenJPAStateManager> sms,
+        Map<Object, OpenJPAStateManager> pending, PCState state,
+        JDBCFetchConfiguration fetch)
+        throws ClassNotFoundException, SQLException {
+        // add the where conditions first so that they are cloned into
+        // any parallel eager selects
+        Select sel = _sql.newSelect();
+        SQLBuffer buf = new SQLBuffer(_dict);
+        appendPrimaryKeyIn(sel, buf, mapping, pks, sms);
+        sel.where(buf);
+        if (!select(sel, mapping, Select.SUBS_EXACT, null, null, fetch,
+            fetch.getEagerFetchMode(), true, false))
+            return false;
+
+        if (_log.isTraceEnabled())
+            _log.trace("selectAll: " + sms.size() + " "
+                + mapping.getDescribedType());
+        Result res = sel.execute(this, fetch);
+        try {
+            Object oid;
+            OpenJPAStateManager sm;
+            ConnectionInfo info;
+            while (res.next()) {
+                oid = mapping.getObjectId(this, res, null, false, null);
+                sm = (oid == null) ? null : pending.remove(oid);
+                if (sm == null)
+                    continue;
+                info = new ConnectionInfo();
+                info.result = res;
+                info.mapping = mapping;
+                initializeState(sm, state, fetch, info);
+            }
+        } finally {
+            res.close();
+        }
+        return true;
+    }
+
+    /**
+     * Append a condition matching the primary keys of the given instances.
+     * Compound keys use a row value IN predicate if the dictionary supports
+     * it, and OR'd equality conditions otherwise.
+     */
+    private void appendPrimaryKeyIn(Select sel, SQLBuffer buf,
+        ClassMapping mapping, Column[] pks, List<OpenJPAStateManager> sms) {
+        String[] aliases = new String[pks.length];
+        for (int i = 0; i < pks.length; i++)
+            aliases[i] = sel.getColumnAlias(pks[i]);
+
+        boolean in = pks.length == 1 || _dict.supportsRowValueIn;
+        if (pks.length == 1)
+            buf.append(aliases[0]).append(" IN (");
+        else if (in)
+            buf.append("(").append(String.join(", ", aliases))
+                .append(") IN (");
+        else
+            buf.append("(");
+
+        Object[] vals;
+        for (int i = 0; i < sms.size(); i++) {
+            if (i > 0)
+                buf.append((in) ? ", " : " OR ");
+            vals = toPrimaryKeyValues(sms.get(i).getObjectId(), mapping, pks);
+            if (pks.length == 1) {
+                buf.appendValue(vals[0], pks[0]);
+                continue;
+            }
+
+            buf.append("(");
+            for (int j = 0; j < pks.length; j++) {
+                if (j > 0)
+                    buf.append((in) ? ", " : " AND ");
+                if (!in)
+                    buf.append(aliases[j]).append(" = ");
+                buf.appendValue(vals[j], pks[j]);
+            }
+            buf.append(")");
+        }
+        buf.append(")");
+    }
+
+    /**
+     * Return the values of the given primary key columns for the given oid.
+     */
+    private Object[] toPrimaryKeyValues(Object oid, ClassMapping mapping,
+        Column[] pks) {
+        Object[] vals = new Object[pks.length];
+        if (mapping.getIdentityType() != ClassMetaData.ID_APPLICATION) {
+            vals[0] = ((Id) oid).getId();
+            return vals;
+        }
+
+        Object[] ids = ApplicationIds.toPKValues(oid, mapping);
+        Joinable join;
+        for (int i = 0; i < pks.length; i++) {
+            join = mapping.assertJoinable(pks[i]);
+            vals[i] = join.getJoinValue(ids[mapping.getField(join.
+                getFieldIndex()).getPrimaryKeyIndex()], pks[i], this);
+        }
+        return vals;
     }
 
     @Override
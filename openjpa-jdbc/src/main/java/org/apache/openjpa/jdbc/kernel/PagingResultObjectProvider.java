@@ -50,6 +50,8 @@ import org.apache.openjpa.util.InternalException;
  *  To use this provider, select the candidate mapping with eager fetch
  * mode set to <code>join</code>. This provider will take care of performing
  * <code>parallel</code> mode batch selects for each page it reads.
+ * If {@link DBDictionary#maxAdaptivePageSize} is set, the page size grows
+ * for as long as larger pages lower the per-instance cost of these selects.
  *
  * @author Abe White
  */
@@ -57,12 +59,18 @@ public class PagingResultObjectProvider
     extends SelectResultObjectProvider {
 
     private final ClassMapping[] _mappings;
-    private final Object[] _page;
-    private final int[] _idxs;
     private final BitSet[] _paged;
+    private Object[] _page;
+    private int[] _idxs;
     private int _pos = -1; // logical pos
     private int _pagePos = -1; // pos of page start
 
+    // adaptive page sizing
+    private int _maxPageSize;
+    private int _nextPageSize;
+    private int _prevPageSize; // size of the last full page measured
+    private double _cost = -1; // nanos per instance of last full page
+
     /**
      * Return a bit set representing batch select fields that will be paged,
      * or null if no fields need paging, which indicates that this provider
@@ -176,10 +184,28 @@ public class PagingResultObjectProvider
             _idxs = new int[pageSize];
         else
             _idxs = null;
+        _nextPageSize = pageSize;
+        _prevPageSize = pageSize;
+
+        // only adapt a page size derived from the batch size
+        _maxPageSize = pageSize;
+        DBDictionary dict = store.getDBDictionary();
+        if (batch >= 0 && size > pageSize
+            && dict.maxAdaptivePageSize > pageSize) {
+            _maxPageSize = (int) Math.min(size, dict.maxAdaptivePageSize);
+            if (dict.maxParameterCount > 0) {
+                int pks = 1;
+                for (ClassMapping m : mappings)
+                    pks = Math.max(pks, m.getPrimaryKeyColumns().length);
+                _maxPageSize = Math.max(pageSize, Math.min(_maxPageSize,
+                    dict.maxParameterCount / pks));
+            }
+        }
     }
 
     /**
-     * Return the page size in use.
+     * Return the page size in use. With adaptive paging, this is the size
+     * of the current page.
      */
     public int getPageSize() {
         return _page.length;
@@ -235,8 +261,13 @@ public class PagingResultObjectProvider
      */
     private void fillPage()
         throws SQLException {
-        // clear page
-        Arrays.fill(_page, null);
+        // clear page, resizing it if the last page asked for it
+        if (_nextPageSize != _page.length) {
+            _page = new Object[_nextPageSize];
+            if (_idxs != null)
+                _idxs = new int[_nextPageSize];
+        } else
+            Arrays.fill(_page, null);
 
         // cache result objects
         JDBCStoreManager storeMgr = (JDBCStoreManager) getStore();
@@ -268,9 +299,35 @@ public class PagingResultObjectProvider
         if (_page[0] != null) {
             if (_page.length > 1 && _page[1] == null)
                 loadEagerFields();
-            else
+            else if (_maxPageSize > _page.length
+                && _page[_page.length - 1] != null) {
+                long start = System.nanoTime();
                 executeEagerSelects();
+                adaptPageSize(System.nanoTime() - start);
+            } else
+                executeEagerSelects();
+        }
+    }
+
+    /**
+     * Choose the size of the next page from the time the eager selects of
+     * the current, full page took. The page size doubles while the cost
+     * per instance falls by more than a tenth. Once it stops falling, the
+     * size is fixed, going back to the previous size if the cost rose.
+     */
+    private void adaptPageSize(long nanos) {
+        double cost = (double) nanos / _page.length;
+        if (_cost >= 0 && cost > _cost * 0.9) {
+            // the last growth may have been capped at the maximum, so go
+            // back to the size measured before rather than halving
+            if (cost > _cost)
+                _nextPageSize = _prevPageSize;
+            _maxPageSize = _nextPageSize;
+            return;
         }
+        _cost = cost;
+        _prevPageSize = _page.length;
+        _nextPageSize = Math.min(_page.length * 2, _maxPageSize);
     }
 
     /**
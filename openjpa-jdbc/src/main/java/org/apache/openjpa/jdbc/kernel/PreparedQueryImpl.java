@@ -34,6 +34,7 @@ import org.apache.openjpa.jdbc.meta.MappingRepository;
 import org.apache.openjpa.jdbc.schema.Column;
 import org.apache.openjpa.jdbc.sql.LogicalUnion;
 import org.apache.openjpa.jdbc.sql.SQLBuffer;
+import org.apache.openjpa.jdbc.sql.SQLTemplate;
 import org.apache.openjpa.jdbc.sql.SelectExecutor;
 import org.apache.openjpa.jdbc.sql.SelectImpl;
 import org.apache.openjpa.jdbc.sql.Union;
@@ -83,6 +84,7 @@ public class PreparedQueryImpl implements PreparedQuery {
     private Map<Object, Integer[]>    _userParamPositions;
     private Map<Integer, Object> _template;
     private SelectImpl select;
+    private SQLTemplate _sqlTemplate;
 
     /**
      * Construct.
@@ -196,7 +198,8 @@ public class PreparedQueryImpl implements PreparedQuery {
             return new PreparedQueryCacheImpl.StrongExclusion(_id,
                 _loc.get("exclude-pagination", _id).getMessage());
 
-        setTargetQuery(buffer.getSQL());
+        _sqlTemplate = buffer.freeze();
+        setTargetQuery(_sqlTemplate.getSQL());
         setParameters(buffer.getParameters());
         setUserParameterPositions(buffer.getUserParameters());
         _initialized = true;
@@ -449,6 +452,13 @@ public class PreparedQueryImpl implements PreparedQuery {
         return select;
     }
 
+    /**
+     * Return the frozen SQL of this query, or null if it is not initialized.
+     */
+    SQLTemplate getSQLTemplate() {
+        return _sqlTemplate;
+    }
+
     @Override
     public String toString() {
         return "PreparedQuery: [" + getOriginalQuery() + "] --> [" +
@@ -32,6 +32,7 @@ import org.apache.openjpa.jdbc.sql.DBDictionary;
 import org.apache.openjpa.jdbc.sql.Result;
 import org.apache.openjpa.jdbc.sql.ResultSetResult;
 import org.apache.openjpa.jdbc.sql.SQLBuffer;
+import org.apache.openjpa.jdbc.sql.SQLTemplate;
 import org.apache.openjpa.jdbc.sql.SQLExceptions;
 import org.apache.openjpa.jdbc.sql.SelectImpl;
 import org.apache.openjpa.kernel.ExpressionStoreQuery.AbstractExpressionExecutor;
@@ -105,18 +106,25 @@ public class PreparedSQLStoreQuery extends SQLStoreQuery {
             JDBCStore store = psq.getStore();
             DBDictionary dict = store.getDBDictionary();
 
-            SQLBuffer buf = new SQLBuffer(dict).append(pq.getTargetQuery());
+            SQLTemplate sql = pq.getSQLTemplate();
             Connection conn = store.getConnection();
             JDBCFetchConfiguration fetch = (JDBCFetchConfiguration)q.getContext().getFetchConfiguration();
 
             ResultObjectProvider rop;
             PreparedStatement stmnt = null;
             try {
-                stmnt = !range.lrs ? buf.prepareStatement(conn) : buf.prepareStatement(conn, fetch, -1, -1);
+                if (sql != null && sql.getParameterCount() == params.length) {
+                    // bind straight to the frozen SQL, using the parameter columns
+                    stmnt = sql.prepareStatement(conn, range.lrs ? fetch : null, -1, -1);
+                    sql.bind(stmnt, params);
+                } else {
+                    SQLBuffer buf = new SQLBuffer(dict).append(pq.getTargetQuery());
+                    stmnt = !range.lrs ? buf.prepareStatement(conn) : buf.prepareStatement(conn, fetch, -1, -1);
 
-                int index = 0;
-                for (Object param : params) {
-                    dict.setUnknown(stmnt, ++index, param, null);
+                    int index = 0;
+                    for (Object param : params) {
+                        dict.setUnknown(stmnt, ++index, param, null);
+                    }
                 }
                 dict.setTimeouts(stmnt, fetch, false);
 
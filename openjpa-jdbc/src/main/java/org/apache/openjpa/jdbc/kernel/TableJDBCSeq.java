@@ -19,12 +19,22 @@
 package org.apache.openjpa.jdbc.kernel;
 
 import java.io.Serializable;
+import java.security.AccessController;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
 
 import jakarta.transaction.NotSupportedException;
 
@@ -52,6 +62,7 @@ import org.apache.openjpa.lib.conf.Configuration;
 import org.apache.openjpa.lib.conf.Configurations;
 import org.apache.openjpa.lib.identifier.IdentifierUtil;
 import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.util.J2DoPrivHelper;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.lib.util.Options;
 import org.apache.openjpa.lib.util.StringUtil;
@@ -87,7 +98,9 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
     private transient Log _log = null;
     private int _alloc = 50;
     private int _intValue = 1;
+    private int _prefetch = 0;
     private final ConcurrentHashMap<ClassMapping, Status> _stat = new ConcurrentHashMap<>();
+    private transient ThreadPoolExecutor _prefetcher = null;
 
     private DBIdentifier _table = DBIdentifier.newTable(DEFAULT_TABLE);
     private DBIdentifier _seqColumnName = DBIdentifier.newColumn("SEQUENCE_VALUE");
@@ -190,6 +203,32 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         _alloc = alloc;
     }
 
+    /**
+     * The number of values left in the current block at which the next
+     * block is allocated in the background. Values are then handed out
+     * without locking until the current block is exhausted. Prefetching
+     * only applies to non-transactional sequences outside of managed
+     * transactions. Defaults to 0, which disables prefetching.
+     *
+     * @since 4.1.2
+     */
+    public int getPrefetch() {
+        return _prefetch;
+    }
+
+    /**
+     * The number of values left in the current block at which the next
+     * block is allocated in the background. Values are then handed out
+     * without locking until the current block is exhausted. Prefetching
+     * only applies to non-transactional sequences outside of managed
+     * transactions. Defaults to 0, which disables prefetching.
+     *
+     * @since 4.1.2
+     */
+    public void setPrefetch(int prefetch) {
+        _prefetch = prefetch;
+    }
+
     /**
      * Return the number as the initial number for the
      * GeneratedValue.TABLE strategy to start with.
@@ -298,6 +337,8 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         if (stat == null)
             throw new InvalidStateException(_loc.get("bad-seq-type",
                 getClass(), mapping));
+        if (isPrefetching())
+            return nextPrefetched(store, mapping, stat);
 
         while (true) {
             synchronized (stat) {
@@ -340,6 +381,10 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         Status stat = getStatus(mapping);
         if (stat == null)
             return;
+        if (isPrefetching()) {
+            allocatePrefetched(count, store, mapping, stat);
+            return;
+        }
 
         while (true) {
             int available;
@@ -352,6 +397,156 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         }
     }
 
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (_prefetcher != null)
+                _prefetcher.shutdownNow();
+            _prefetcher = null;
+        }
+        super.close();
+    }
+
+    /**
+     * Whether blocks are prefetched in the background. Background
+     * allocation uses its own connection, so transactional sequences and
+     * sequences that must suspend a managed transaction are never
+     * prefetched.
+     */
+    protected boolean isPrefetching() {
+        return _prefetch > 0 && type != TYPE_TRANSACTIONAL
+            && type != TYPE_CONTIGUOUS && !suspendInJTA();
+    }
+
+    /**
+     * Hand out the next value of the current block, switching to the
+     * prefetched block once the current one is exhausted.
+     */
+    private Object nextPrefetched(JDBCStore store, ClassMapping mapping,
+        Status stat)
+        throws SQLException {
+        Block block;
+        long val;
+        while (true) {
+            block = stat.block;
+            if (block != null) {
+                val = block.next.getAndIncrement();
+                if (val < block.max) {
+                    // exactly one caller sees the low-water value
+                    if (val == block.lowWater)
+                        prefetch(store, mapping, stat);
+                    return val;
+                }
+            }
+            nextBlock(store, mapping, stat, block);
+        }
+    }
+
+    /**
+     * Allocate enough values for the next <code>count</code> calls to
+     * {@link #nextInternal} by installing a sufficiently large next block.
+     */
+    private void allocatePrefetched(int count, JDBCStore store,
+        ClassMapping mapping, Status stat)
+        throws SQLException {
+        synchronized (stat) {
+            Block block = stat.block;
+            long available = (block == null) ? 0
+                : Math.max(0, block.max - block.next.get());
+            if (available >= count || stat.prefetch != null)
+                return;
+            stat.prefetch = CompletableFuture.completedFuture(
+                allocateBlock(store, mapping, (int) (count - available)));
+        }
+    }
+
+    /**
+     * Replace the given exhausted block with the prefetched one, or with a
+     * block allocated in the calling thread if no prefetch is pending or
+     * the prefetch failed.
+     */
+    private void nextBlock(JDBCStore store, ClassMapping mapping,
+        Status stat, Block exhausted)
+        throws SQLException {
+        synchronized (stat) {
+            if (stat.block != exhausted)
+                return;
+
+            Future<Block> pending = stat.prefetch;
+            stat.prefetch = null;
+            Block block = null;
+            if (pending != null) {
+                try {
+                    block = pending.get();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ee) {
+                    if (_log.isWarnEnabled())
+                        _log.warn(_loc.get("seq-prefetch-failed", mapping),
+                            ee.getCause());
+                }
+            }
+            if (block == null)
+                block = allocateBlock(store, mapping, _alloc);
+            stat.block = block;
+        }
+    }
+
+    /**
+     * Start allocating the block after the current one in the background,
+     * unless an allocation is already pending.
+     */
+    private void prefetch(JDBCStore store, ClassMapping mapping,
+        Status stat) {
+        // resolve the data source while the store is still ours to use
+        final DataSource ds = _conf.getDataSource2(store.getContext());
+        synchronized (stat) {
+            if (stat.prefetch != null)
+                return;
+            stat.prefetch = getPrefetcher().submit(
+                () -> allocateBlock(ds, mapping, _alloc));
+        }
+    }
+
+    /**
+     * Lazily create the single daemon thread that prefetches blocks.
+     */
+    private synchronized ThreadPoolExecutor getPrefetcher() {
+        if (_prefetcher == null) {
+            _prefetcher = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> AccessController
+                    .doPrivileged(J2DoPrivHelper.newDaemonThreadAction(r,
+                        "openjpa-seq-prefetch")));
+            _prefetcher.allowCoreThreadTimeOut(true);
+        }
+        return _prefetcher;
+    }
+
+    /**
+     * Allocate a block of values in the calling thread, using the same
+     * connection handling as non-prefetched allocation.
+     */
+    private Block allocateBlock(JDBCStore store, ClassMapping mapping,
+        int alloc)
+        throws SQLException {
+        Status range = new Status();
+        allocateSequence(store, mapping, range, alloc, true);
+        return new Block(range.seq, range.max, _prefetch);
+    }
+
+    /**
+     * Allocate a block of values on connections of its own from the given
+     * data source. Used by the prefetch thread, which may not use the store.
+     */
+    private Block allocateBlock(DataSource ds, ClassMapping mapping,
+        int alloc)
+        throws SQLException {
+        Status range = new Status();
+        allocateSequence(new AllocateSequenceRunnable(ds, mapping, range,
+            alloc, true));
+        return new Block(range.seq, range.max, _prefetch);
+    }
+
     /**
      * Return the appropriate status object for the given class, or null
      * if cannot handle the given class. The mapping may be null.
@@ -446,9 +641,16 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
      */
     private void allocateSequence(JDBCStore store, ClassMapping mapping,
             Status stat, int alloc, boolean updateStatSeq) throws SQLException {
-        Runnable runnable =
-            new AllocateSequenceRunnable(
-                    store, mapping, stat, alloc, updateStatSeq);
+        allocateSequence(new AllocateSequenceRunnable(
+                    store, mapping, stat, alloc, updateStatSeq));
+    }
+
+    /**
+     * Runs the given allocation, suspending a managed transaction if
+     * needed.
+     */
+    private void allocateSequence(AllocateSequenceRunnable runnable)
+        throws SQLException {
         try {
             if (suspendInJTA()) {
                 // NotSupportedException is wrapped in a StoreException by
@@ -820,6 +1022,30 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         private static final long serialVersionUID = 1L;
         public long seq = 1L;
         public long max = 0L;
+
+        // used when prefetching: the block being handed out and the
+        // allocation of the next one, guarded by this status
+        transient volatile Block block;
+        transient Future<Block> prefetch;
+    }
+
+    /**
+     * A range of allocated values handed out with an atomic counter.
+     */
+    private static class Block {
+
+        public final AtomicLong next;
+        public final long max;
+        public final long lowWater;
+
+        public Block(long seq, long max, int prefetch) {
+            // make sure seq is at least 1, since autoassigned ids of 0 can
+            // conflict with uninitialized values
+            seq = Math.max(seq, 1);
+            this.next = new AtomicLong(seq);
+            this.max = max;
+            this.lowWater = Math.max(seq, max - prefetch);
+        }
     }
 
     /**
@@ -884,6 +1110,7 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
     protected class AllocateSequenceRunnable implements Runnable {
 
         JDBCStore store = null;
+        DataSource ds = null;
         ClassMapping mapping = null;
         Status stat = null;
         int alloc;
@@ -898,6 +1125,19 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
             this.updateStatSeq = updateStatSeq;
         }
 
+        /**
+         * Allocate without a store, using new connections from the given
+         * data source. Only valid for non-transactional sequence types.
+         */
+        AllocateSequenceRunnable(DataSource ds, ClassMapping mapping,
+                Status stat, int alloc, boolean updateStatSeq) {
+            this.ds = ds;
+            this.mapping = mapping;
+            this.stat = stat;
+            this.alloc = alloc;
+            this.updateStatSeq = updateStatSeq;
+        }
+
         /**
          * This method actually obtains the current sequence value.
          *
@@ -910,19 +1150,21 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         @Override
         public void run() throws RuntimeException {
             Connection conn = null;
-            SQLException err = null;
             try {
                 // Try to use the store's connection.
 
-                conn = getConnection(store);
+                conn = getSequenceConnection();
                 boolean sequenceSet =
                     setSequence(mapping, stat, alloc, updateStatSeq, conn);
-                closeConnection(conn);
+                Connection done = conn;
+                conn = null;
+                closeConnection(done);
 
                 if (!sequenceSet) {
                     // insert a new sequence column. Prefer connection2 / non-jta-data-source when inserting a
                     // sequence column regardless of Seq.type.
-                    conn = _conf.getDataSource2(store.getContext()).getConnection();
+                    conn = (ds != null) ? ds.getConnection()
+                        : _conf.getDataSource2(store.getContext()).getConnection();
                     try {
                         insertSequence(mapping, conn);
                     } catch (SQLException e) {
@@ -932,26 +1174,70 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
                                 "Caught an exception while trying to insert sequence. Will try to reselect the " +
                                 "seqence. ", e);
                         }
+                        // a failed statement may abort the transaction, so
+                        // never carry it over to the retry
+                        if (!conn.getAutoCommit())
+                            conn.rollback();
                     }
 
-                    conn.close();
+                    done = conn;
+                    conn = null;
+                    done.close();
 
                     // now we should be able to update using the connection per
                     // on the seq type.
-                    conn = getConnection(store);
+                    conn = getSequenceConnection();
                     if (!setSequence(mapping, stat, alloc, updateStatSeq, conn))
                     {
-                        throw (err != null) ? err : new SQLException(_loc.get(
+                        throw new SQLException(_loc.get(
                                 "no-seq-row", mapping, _table).getMessage());
                     }
-                    closeConnection(conn);
+                    done = conn;
+                    conn = null;
+                    closeConnection(done);
                 }
             } catch (SQLException e) {
-                if (conn != null) {
-                    closeConnection(conn);
-                }
+                rollbackConnection(conn);
                 RuntimeException re = new RuntimeException(e.getMessage(), e);
                 throw re;
+            } catch (RuntimeException re) {
+                rollbackConnection(conn);
+                throw re;
+            }
+        }
+
+        /**
+         * Return the connection to allocate on, from the data source if
+         * this allocation has no store.
+         */
+        private Connection getSequenceConnection() throws SQLException {
+            if (ds == null)
+                return getConnection(store);
+            Connection conn = ds.getConnection();
+            if (conn.getAutoCommit())
+                conn.setAutoCommit(false);
+            return conn;
+        }
+
+        /**
+         * Release a connection after a failure. The store's connection is
+         * only released, as its transaction belongs to the caller; a
+         * connection of our own is rolled back before it is closed.
+         */
+        private void rollbackConnection(Connection conn) {
+            if (conn == null)
+                return;
+            if (ds == null
+                && (type == TYPE_TRANSACTIONAL || type == TYPE_CONTIGUOUS)) {
+                closeConnection(conn);
+                return;
+            }
+            try {
+                if (!conn.getAutoCommit())
+                    conn.rollback();
+            } catch (SQLException se) {
+            } finally {
+                try { conn.close(); } catch (SQLException se) {}
             }
         }
     }
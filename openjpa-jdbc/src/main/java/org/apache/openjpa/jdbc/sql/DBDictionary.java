@@ -316,6 +316,44 @@ public class DBDictionary
     public int maxEmbeddedClobSize = -1;
     public int inClauseLimit = -1;
 
+    /**
+     * Whether the database accepts an INSERT with several rows in its
+     * VALUES clause.
+     */
+    public boolean supportsMultiRowInsert = false;
+
+    /**
+     * Whether batched inserts into the same table are sent as multi-row
+     * INSERT statements when the database supports them.
+     */
+    public boolean useMultiRowInsert = false;
+
+    /**
+     * The maximum number of bind parameters in a single statement, or -1
+     * for no limit.
+     */
+    public int maxParameterCount = -1;
+
+    /**
+     * Whether the database accepts row value constructors on the left of an
+     * IN predicate, as in <code>(A, B) IN ((1, 2), (3, 4))</code>.
+     */
+    public boolean supportsRowValueIn = false;
+
+    /**
+     * The maximum number of instances loaded by a single select when several
+     * instances are loaded at once, for example by a find of many ids.
+     * Values of 1 or less load each instance with its own select.
+     */
+    public int loadAllBatchSize = 100;
+
+    /**
+     * The size up to which paging result providers may grow their pages
+     * while larger pages lower the per-instance cost of their eager
+     * selects, or 0 to keep the initial page size.
+     */
+    public int maxAdaptivePageSize = 0;
+
     /**
      * Attention, while this is named datePrecision it actually only get used for Timestamp handling!
      * @see StateManagerImpl#roundTimestamp(Timestamp, int)
@@ -5594,6 +5632,33 @@ public class DBDictionary
         batchLimit = limit;
     }
 
+    /**
+     * Return whether batched inserts should be sent as multi-row INSERT
+     * statements.
+     */
+    public boolean isMultiRowInsertEnabled() {
+        return useMultiRowInsert && supportsMultiRowInsert;
+    }
+
+    /**
+     * Return an INSERT statement for the given number of rows, built from
+     * the prepared statement for a single row as generated by
+     * {@link RowImpl#getSQL}. Each row repeats the parameters of the
+     * single row statement, in order.
+     */
+    public String getMultiRowInsertSQL(String sql, int rows) {
+        int idx = sql.indexOf(") VALUES (");
+        if (idx == -1 || rows < 2)
+            return sql;
+        String values = sql.substring(idx + 9);
+        StringBuilder buf = new StringBuilder(sql.length()
+            + (values.length() + 2) * (rows - 1));
+        buf.append(sql);
+        for (int i = 1; i < rows; i++)
+            buf.append(", ").append(values);
+        return buf.toString();
+    }
+
     /**
      * Validate the batch process. In some cases, we can't batch the statements
      * due to some restrictions. For example, if the GeneratedType=IDENTITY,
@@ -172,6 +172,8 @@ public class H2Dictionary extends DBDictionary {
 
         supportsSelectStartIndex = true;
         supportsSelectEndIndex = true;
+        supportsMultiRowInsert = true;
+        supportsRowValueIn = true;
         rangePosition = RANGE_POST_LOCK;
         supportsDeferredConstraints = false;
 
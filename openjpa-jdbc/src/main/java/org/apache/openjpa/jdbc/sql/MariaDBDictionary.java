@@ -101,6 +101,9 @@ public class MariaDBDictionary extends DBDictionary {
         requiresTargetForDelete = true;
         supportsSelectStartIndex = true;
         supportsSelectEndIndex = true;
+        supportsMultiRowInsert = true;
+        supportsRowValueIn = true;
+        maxParameterCount = 65535;
 
         datePrecision = MICRO;
 
@@ -98,6 +98,9 @@ public class MySQLDictionary
         requiresTargetForDelete = true;
         supportsSelectStartIndex = true;
         supportsSelectEndIndex = true;
+        supportsMultiRowInsert = true;
+        supportsRowValueIn = true;
+        maxParameterCount = 65535;
 
         datePrecision = MICRO;
 
@@ -182,6 +182,7 @@ public class OracleDictionary
         maxEmbeddedBlobSize = 4000;
         maxEmbeddedClobSize = 4000;
         inClauseLimit = 1000;
+        supportsRowValueIn = true;
 
         if (supportsAutoAssign && useTriggersForAutoAssign) {
             log.warn("Both 'supportsAutoAssign' and 'useTriggersForAutoAssign' were specified, such configuration will never work,"
@@ -134,6 +134,9 @@ public class PostgresDictionary extends DBDictionary {
         supportsDeferredConstraints = true;
         supportsSelectStartIndex = true;
         supportsSelectEndIndex = true;
+        supportsMultiRowInsert = true;
+        supportsRowValueIn = true;
+        maxParameterCount = 32767;
 
         maxTableNameLength = 63;
         maxColumnNameLength = 63;
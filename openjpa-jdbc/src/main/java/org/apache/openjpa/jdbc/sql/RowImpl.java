@@ -953,6 +953,27 @@ public class RowImpl
         return _vals.length;
     }
 
+    /**
+     * The number of parameters that {@link #flush} sets for this row.
+     *
+     * @since 4.1.2
+     */
+    public int getBoundParameterCount() {
+        int count = 0;
+        int half = _vals.length / 2;
+        int i = (getAction() == ACTION_DELETE) ? _cols.length: 0;
+        for (; i < _vals.length; i++) {
+            if (_vals[i] == null)
+                continue;
+            if (_vals[i] == NULL) {
+                if (getAction() == ACTION_INSERT || i < half)
+                    count++;
+            } else if (_types[i] != RAW)
+                count++;
+        }
+        return count;
+    }
+
     /**
      * Flush the row's values to the given prepared statement.
      */
@@ -968,6 +989,19 @@ public class RowImpl
     public void flush(PreparedStatement stmnt, int idx, DBDictionary dict,
         JDBCStore store)
         throws SQLException {
+        flushParameters(stmnt, idx, dict, store);
+    }
+
+    /**
+     * Flush the row's values to the given prepared statement, starting at
+     * the given parameter index.
+     *
+     * @return the index following the last parameter set
+     * @since 4.1.2
+     */
+    public int flushParameters(PreparedStatement stmnt, int idx,
+        DBDictionary dict, JDBCStore store)
+        throws SQLException {
 
         // this simple method works because the SQL is always prepared
         // based on the indexing of the columns in the table object -- the
@@ -1004,6 +1038,7 @@ public class RowImpl
             }
         }
         setFlushed(true);
+        return idx;
     }
 
     /**
@@ -454,6 +454,25 @@ public final class SQLBuffer
         return buf.toString();
     }
 
+    /**
+     * Return an immutable template of the current SQL and parameter slots
+     * of this buffer, for statements executed many times. The template
+     * does not keep the parameter values of this buffer; values are given
+     * when the statement is bound. Later changes to this buffer do not
+     * affect the template.
+     *
+     * @since 4.1.2
+     */
+    public SQLTemplate freeze() {
+        String sql = getSQL();
+        int size = (_params == null) ? 0 : _params.size();
+        Column[] cols = new Column[size];
+        if (_cols != null)
+            for (int i = 0; i < size; i++)
+                cols[i] = (Column) _cols.get(i);
+        return new SQLTemplate(_dict, sql, cols);
+    }
+
     /**
      * Resolve our delayed subselects.
      */
@@ -504,6 +523,29 @@ public final class SQLBuffer
     public PreparedStatement prepareStatement(Connection conn,
         JDBCFetchConfiguration fetch, int rsType, int rsConcur)
         throws SQLException {
+        PreparedStatement stmnt = prepareStatement(_dict, conn, getSQL(),
+            fetch, rsType, rsConcur);
+        try {
+            setParameters(stmnt);
+            return stmnt;
+        } catch (SQLException se) {
+            try {
+                stmnt.close();
+            } catch (SQLException se2) {
+            }
+            throw se;
+        }
+    }
+
+    /**
+     * Create a prepared statement for the given SQL and set up its cursor
+     * from the given fetch configuration. No parameters are bound.
+     * A result set type or concurrency of -1 selects the default.
+     */
+    static PreparedStatement prepareStatement(DBDictionary dict,
+        Connection conn, String sql, JDBCFetchConfiguration fetch,
+        int rsType, int rsConcur)
+        throws SQLException {
         if (rsType == -1 && fetch == null)
             rsType = ResultSet.TYPE_FORWARD_ONLY;
         else if (rsType == -1)
@@ -514,19 +556,18 @@ public final class SQLBuffer
         PreparedStatement stmnt;
         if (rsType == ResultSet.TYPE_FORWARD_ONLY
             && rsConcur == ResultSet.CONCUR_READ_ONLY)
-            stmnt = conn.prepareStatement(getSQL());
+            stmnt = conn.prepareStatement(sql);
         else
-            stmnt = conn.prepareStatement(getSQL(), rsType, rsConcur);
+            stmnt = conn.prepareStatement(sql, rsType, rsConcur);
+        if (fetch == null)
+            return stmnt;
         try {
-            setParameters(stmnt);
-            if (fetch != null) {
-                if (fetch.getFetchBatchSize() > 0)
-                    stmnt.setFetchSize(
-                        _dict.getBatchFetchSize(fetch.getFetchBatchSize()));
-                if (rsType != ResultSet.TYPE_FORWARD_ONLY
-                    && fetch.getFetchDirection() != ResultSet.FETCH_FORWARD)
-                    stmnt.setFetchDirection(fetch.getFetchDirection());
-            }
+            if (fetch.getFetchBatchSize() > 0)
+                stmnt.setFetchSize(
+                    dict.getBatchFetchSize(fetch.getFetchBatchSize()));
+            if (rsType != ResultSet.TYPE_FORWARD_ONLY
+                && fetch.getFetchDirection() != ResultSet.FETCH_FORWARD)
+                stmnt.setFetchDirection(fetch.getFetchDirection());
             return stmnt;
         } catch (SQLException se) {
             try {
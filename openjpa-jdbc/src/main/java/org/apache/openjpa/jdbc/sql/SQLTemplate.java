@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.apache.openjpa.jdbc.kernel.JDBCFetchConfiguration;
+import org.apache.openjpa.jdbc.schema.Column;
+
+/**
+ * Immutable form of a {@link SQLBuffer} for statements that are executed
+ * many times with the same SQL. The SQL string and the column of each
+ * parameter slot are fixed when the template is created; parameter values
+ * are not kept and are given at bind time. Executing the statement only
+ * binds values to slots by index and does not build or copy a buffer.
+ * Templates are safe to share between threads. They are not
+ * serializable, as they are bound to the dictionary they were created with.
+ *
+ * @see SQLBuffer#freeze
+ * @since 4.1.2
+ */
+public final class SQLTemplate {
+
+    private final DBDictionary _dict;
+    private final String _sql;
+    private final Column[] _cols;
+
+    SQLTemplate(DBDictionary dict, String sql, Column[] cols) {
+        _dict = dict;
+        _sql = sql;
+        _cols = cols;
+    }
+
+    /**
+     * Return the SQL of this template.
+     */
+    public String getSQL() {
+        return _sql;
+    }
+
+    /**
+     * Return the number of parameter slots.
+     */
+    public int getParameterCount() {
+        return _cols.length;
+    }
+
+    /**
+     * Return the column of the given zero-based parameter slot, or null
+     * if the parameter has no column.
+     */
+    public Column getColumn(int slot) {
+        return _cols[slot];
+    }
+
+    /**
+     * Create a prepared statement for the SQL of this template. No
+     * parameters are bound.
+     */
+    public PreparedStatement prepareStatement(Connection conn,
+        JDBCFetchConfiguration fetch, int rsType, int rsConcur)
+        throws SQLException {
+        return SQLBuffer.prepareStatement(_dict, conn, _sql, fetch, rsType,
+            rsConcur);
+    }
+
+    /**
+     * Bind the given value to the given zero-based parameter slot of a
+     * statement prepared from this template, using the column of the slot.
+     */
+    public void bind(PreparedStatement ps, int slot, Object val)
+        throws SQLException {
+        _dict.setUnknown(ps, slot + 1, val, _cols[slot]);
+    }
+
+    /**
+     * Bind the given values to the parameter slots of a statement prepared
+     * from this template, in slot order.
+     */
+    public void bind(PreparedStatement ps, Object[] vals)
+        throws SQLException {
+        for (int i = 0; i < vals.length; i++)
+            _dict.setUnknown(ps, i + 1, vals[i], _cols[i]);
+    }
+
+    @Override
+    public String toString() {
+        return _sql;
+    }
+}
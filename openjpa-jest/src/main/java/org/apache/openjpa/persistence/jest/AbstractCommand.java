@@ -22,6 +22,7 @@ package org.apache.openjpa.persistence.jest;
 import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
 import static org.apache.openjpa.persistence.jest.Constants.QUALIFIER_FORMAT;
 import static org.apache.openjpa.persistence.jest.Constants.QUALIFIER_PLAN;
+import static org.apache.openjpa.persistence.jest.Constants.QUALIFIER_STREAM;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -31,8 +32,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -273,6 +276,14 @@ abstract class AbstractCommand implements JESTCommand {
         return _formatter;
     }
 
+    /**
+     * Affirms if the result should be streamed i.e. the <code>stream</code> qualifier is set and the
+     * requested formatter is a {@link StreamingFormatter}.
+     */
+    protected boolean isStreaming() {
+        return isBooleanQualifier(QUALIFIER_STREAM) && getObjectFormatter() instanceof StreamingFormatter;
+    }
+
     protected OpenJPAStateManager toStateManager(Object obj) {
         if (obj instanceof OpenJPAStateManager)
             return (OpenJPAStateManager)obj;
@@ -291,6 +302,35 @@ abstract class AbstractCommand implements JESTCommand {
         return sms;
     }
 
+    /**
+     * Gets a view of the given objects as managed instances. Unlike {@link #toStateManager(Collection)}, the
+     * objects are converted lazily as the view is iterated, so a lazily loaded result is not loaded at once.
+     * The objects that are not managed are skipped.
+     */
+    protected Iterable<OpenJPAStateManager> toStateManagers(final Iterable<?> objects) {
+        return () -> new Iterator<OpenJPAStateManager>() {
+            private final Iterator<?> _objects = objects.iterator();
+            private OpenJPAStateManager _next;
+
+            @Override
+            public boolean hasNext() {
+                while (_next == null && _objects.hasNext()) {
+                    _next = toStateManager(_objects.next());
+                }
+                return _next != null;
+            }
+
+            @Override
+            public OpenJPAStateManager next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                OpenJPAStateManager sm = _next;
+                _next = null;
+                return sm;
+            }
+        };
+    }
+
     protected void pushFetchPlan(Object target) {
         if (!hasQualifier(QUALIFIER_PLAN))
             return;
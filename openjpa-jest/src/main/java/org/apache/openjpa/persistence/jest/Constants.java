@@ -32,6 +32,7 @@ public interface Constants {
      */
     String QUALIFIER_FORMAT      = "format";
     String QUALIFIER_PLAN        = "plan";
+    String QUALIFIER_STREAM      = "stream";
 
     /**
      * Mime Types
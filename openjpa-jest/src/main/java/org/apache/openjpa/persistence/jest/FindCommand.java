@@ -41,7 +41,7 @@ import org.apache.openjpa.util.ApplicationIds;
 class FindCommand extends AbstractCommand {
     private static final String ARG_TYPE = "type";
     private static final List<String> _mandatoryArgs   = Arrays.asList(ARG_TYPE);
-    private static final List<String> _validQualifiers = Arrays.asList("format", "plan");
+    private static final List<String> _validQualifiers = Arrays.asList("format", "plan", "stream");
 
     public FindCommand(JPAServletContext ctx) {
         super(ctx);
@@ -83,9 +83,15 @@ class FindCommand extends AbstractCommand {
                 ObjectFormatter<?> formatter = getObjectFormatter();
                 ctx.getResponse().setContentType(formatter.getMimeType());
                 try {
-                    formatter.writeOut(Collections.singleton(sm), em.getMetamodel(),
-                        _loc.get("find-title").toString(), _loc.get("find-desc").toString(), ctx.getRequestURI(),
-                        ctx.getResponse().getOutputStream());
+                    if (isStreaming()) {
+                        ((StreamingFormatter)formatter).stream(Collections.singleton(sm), em.getMetamodel(),
+                            _loc.get("find-title").toString(), _loc.get("find-desc").toString(),
+                            ctx.getRequestURI(), ctx.getResponse().getOutputStream());
+                    } else {
+                        formatter.writeOut(Collections.singleton(sm), em.getMetamodel(),
+                            _loc.get("find-title").toString(), _loc.get("find-desc").toString(),
+                            ctx.getRequestURI(), ctx.getResponse().getOutputStream());
+                    }
                 } catch (IOException e) {
                     throw new ProcessingException(ctx, e);
                 }
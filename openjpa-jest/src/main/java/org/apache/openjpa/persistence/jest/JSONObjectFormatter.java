@@ -22,13 +22,17 @@ package org.apache.openjpa.persistence.jest;
 import static org.apache.openjpa.persistence.jest.Constants.MIME_TYPE_JSON;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.CharArrayWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
@@ -52,11 +56,15 @@ import org.apache.openjpa.persistence.meta.Members;
  * Marshals a root instance and its persistent closure as JSON object.
  * The closure is resolved against the persistence context that contains the root instance.
  * The JSON format introduces a $id and $ref to address reference that pure JSON does not.
+ * <br>
+ * The instances can also be {@linkplain #stream(Iterable, Metamodel, String, String, String, OutputStream)
+ * streamed} straight into an output stream without building the intermediate {@link JSON} objects.
  *
  * @author Pinaki Poddar
  *
  */
-public class JSONObjectFormatter implements ObjectFormatter<JSON> {
+public class JSONObjectFormatter implements ObjectFormatter<JSON>, StreamingFormatter {
+    private static final String UNSUPPORTED = "***UNSUPPORTED***";
 
     @Override
     public String getMimeType() {
@@ -253,12 +261,227 @@ public class JSONObjectFormatter implements ObjectFormatter<JSON> {
                 case JavaTypes.PC_UNTYPED:
                 case JavaTypes.OBJECT:
                 case JavaTypes.OID:
-                    root.set(fmd.getName(), "***UNSUPPORTED***");
+                    root.set(fmd.getName(), UNSUPPORTED);
             }
         }
         return root;
     }
 
+    /**
+     * Writes the given managed instances as a JSON array. Each member is written as soon as it is encoded,
+     * in the same format as {@link #encode(Collection, Metamodel)} produces.
+     * <br>
+     * As in the non-streaming form, the $id/$ref cycle detection is scoped to the closure of each member.
+     * So only the closure of the member being written is remembered, not every instance written so far.
+     */
+    @Override
+    public void stream(Iterable<OpenJPAStateManager> sms, Metamodel model, String title, String desc,
+        String uri, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(JSON.ARRAY_START);
+        int count = 0;
+        for (OpenJPAStateManager sm : sms) {
+            if (count > 0) {
+                writer.write(JSON.MEMBER_SEPARATOR);
+            }
+            writer.write(JSON.NEWLINE);
+            writeIndent(writer, 1);
+            streamManagedInstance(sm, new HashSet<>(), 1, model, writer);
+            if (++count % FLUSH_INTERVAL == 0) {
+                writer.flush();
+            }
+        }
+        writer.write(JSON.NEWLINE);
+        writer.write(JSON.ARRAY_END);
+        writer.flush();
+    }
+
+    /**
+     * Writes the closure of a persistent instance as a JSON object.
+     *
+     * @param sm the managed instance to be written. Can be null.
+     * @param visited the persistent instances of the current closure that had been written already.
+     * @param indent the nesting level of the written object.
+     */
+    private void streamManagedInstance(OpenJPAStateManager sm, Set<OpenJPAStateManager> visited, int indent,
+        Metamodel model, Writer writer) throws IOException {
+        if (sm == null) {
+            writer.write(JSON.NULL_LITERAL);
+            return;
+        }
+        boolean ref = !visited.add(sm);
+        writer.write(JSON.OBJECT_START);
+        writeQuoted(writer, ref ? JSON.REF_MARKER : JSON.ID_MARKER);
+        writer.write(JSON.VALUE_SEPARATOR);
+        writeQuoted(writer, typeOf(sm) + JSON.IOR_SEPARTOR + sm.getObjectId());
+        if (ref) {
+            writer.write(JSON.OBJECT_END);
+            return;
+        }
+
+        BitSet loaded = sm.getLoaded();
+        StoreContext ctx = (StoreContext)sm.getGenericContext();
+        List<Attribute<?, ?>> attrs = MetamodelHelper.getAttributesInOrder(sm.getMetaData(), model);
+        for (Attribute<?, ?> attr : attrs) {
+            FieldMetaData fmd = ((Members.Member<?, ?>) attr).fmd;
+            if (!loaded.get(fmd.getIndex()))
+                continue;
+            writer.write(JSON.FIELD_SEPARATOR);
+            writer.write(JSON.NEWLINE);
+            writeIndent(writer, indent + 1);
+            writeQuoted(writer, fmd.getName());
+            writer.write(JSON.VALUE_SEPARATOR);
+
+            Object value = sm.fetch(fmd.getIndex());
+            switch (fmd.getDeclaredTypeCode()) {
+                case JavaTypes.PC:
+                    if (value == null) {
+                        writer.write(JSON.NULL_LITERAL);
+                    } else {
+                        streamManagedInstance(ctx.getStateManager(value), visited, indent + 1, model, writer);
+                    }
+                    break;
+
+                case JavaTypes.ARRAY:
+                    if (value != null) {
+                        value = Arrays.asList((Object[]) value);
+                    }
+                    // no break;
+                case JavaTypes.COLLECTION:
+                    if (value == null) {
+                        writer.write(JSON.NULL_LITERAL);
+                        break;
+                    }
+                    boolean basic = fmd.getElement().getTypeMetaData() == null;
+                    writer.write(JSON.ARRAY_START);
+                    int i = 0;
+                    for (Object o : (Collection<?>) value) {
+                        if (i++ > 0) {
+                            writer.write(JSON.MEMBER_SEPARATOR);
+                        }
+                        writer.write(JSON.NEWLINE);
+                        writeIndent(writer, indent + 2);
+                        if (basic || o == null) {
+                            writeBasic(writer, o);
+                        } else {
+                            streamManagedInstance(ctx.getStateManager(o), visited, indent + 2, model, writer);
+                        }
+                    }
+                    writeArrayEnd(writer, i, indent + 1);
+                    break;
+
+                case JavaTypes.MAP:
+                    if (value == null) {
+                        writer.write(JSON.NULL_LITERAL);
+                        break;
+                    }
+                    boolean basicKey = fmd.getElement().getTypeMetaData() == null;
+                    boolean basicValue = fmd.getValue().getTypeMetaData() == null;
+                    writer.write(JSON.ARRAY_START);
+                    int j = 0;
+                    for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                        if (j++ > 0) {
+                            writer.write(JSON.MEMBER_SEPARATOR);
+                        }
+                        writer.write(JSON.NEWLINE);
+                        writeIndent(writer, indent + 2);
+                        if (basicKey || e.getKey() == null) {
+                            writeBasic(writer, e.getKey());
+                        } else {
+                            streamManagedInstance(ctx.getStateManager(e.getKey()), visited, indent + 2, model,
+                                writer);
+                        }
+                        writer.write(JSON.VALUE_SEPARATOR);
+                        if (basicValue || e.getValue() == null) {
+                            writeBasic(writer, e.getValue());
+                        } else {
+                            streamManagedInstance(ctx.getStateManager(e.getValue()), visited, indent + 3, model,
+                                writer);
+                        }
+                    }
+                    writeArrayEnd(writer, j, indent + 1);
+                    break;
+
+                case JavaTypes.INPUT_STREAM:
+                case JavaTypes.INPUT_READER:
+                    writeBasic(writer, value == null ? null : streamToString(value));
+                    break;
+
+                case JavaTypes.PC_UNTYPED:
+                case JavaTypes.OBJECT:
+                case JavaTypes.OID:
+                    writeQuoted(writer, UNSUPPORTED);
+                    break;
+
+                default:
+                    writeBasic(writer, value);
+            }
+        }
+        writer.write(JSON.NEWLINE);
+        writeIndent(writer, indent);
+        writer.write(JSON.OBJECT_END);
+    }
+
+    private void writeArrayEnd(Writer writer, int size, int indent) throws IOException {
+        if (size > 0) {
+            writer.write(JSON.NEWLINE);
+            writeIndent(writer, indent);
+        }
+        writer.write(JSON.ARRAY_END);
+    }
+
+    /**
+     * Writes a basic value. Null is written as <code>null</code> and Number without quote, as
+     * {@link JSONObject} does. Any other value is quoted.
+     */
+    private void writeBasic(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            writer.write(JSON.NULL_LITERAL);
+        } else if (value instanceof Number) {
+            writer.write(value.toString());
+        } else {
+            writeQuoted(writer, value.toString());
+        }
+    }
+
+    /**
+     * Writes the given string in quotes, escaping the characters that can not appear in a JSON string.
+     */
+    private void writeQuoted(Writer writer, String s) throws IOException {
+        writer.write(JSON.QUOTE);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    writer.write('\\');
+                    writer.write(c);
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write(JSON.QUOTE);
+    }
+
+    private void writeIndent(Writer writer, int indent) throws IOException {
+        for (int i = 0; i < indent * 4; i++) {
+            writer.write(JSON.SPACE);
+        }
+    }
 
     String typeOf(OpenJPAStateManager sm) {
         return sm.getMetaData().getDescribedType().getSimpleName();
@@ -22,20 +22,24 @@ package org.apache.openjpa.persistence.jest;
 import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
 import static org.apache.openjpa.persistence.jest.Constants.QUALIFIER_FORMAT;
 import static org.apache.openjpa.persistence.jest.Constants.QUALIFIER_PLAN;
+import static org.apache.openjpa.persistence.jest.Constants.QUALIFIER_STREAM;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
-import jakarta.persistence.Query;
-
 import org.apache.openjpa.persistence.ArgumentException;
 import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.OpenJPAQuery;
 
 /**
  * Executes query.
+ * <br>
+ * With the <code>stream</code> qualifier, the result is fetched in batches and each selected instance is
+ * written to the response as the result is iterated, rather than after the whole result is encoded.
  *
  * @author Pinaki Poddar
  *
@@ -46,10 +50,14 @@ class QueryCommand extends AbstractCommand {
     public static final String QUALIFIER_FIRSTRESULT = "first";
     public static final String QUALIFIER_NAMED       = "named";
     public static final String QUALIFIER_SINGLE      = "single";
+    /**
+     * Fetch batch size of a streamed query, unless a batch size is set already.
+     */
+    public static final int STREAM_FETCH_BATCH_SIZE = 100;
     private static final List<String> _mandatoryArgs   = Arrays.asList(ARG_QUERY);
     private static final List<String> _validQualifiers = Arrays.asList(
         QUALIFIER_FORMAT, QUALIFIER_PLAN, QUALIFIER_NAMED, QUALIFIER_SINGLE,
-        QUALIFIER_FIRSTRESULT, QUALIFIER_MAXRESULT);
+        QUALIFIER_FIRSTRESULT, QUALIFIER_MAXRESULT, QUALIFIER_STREAM);
 
     public QueryCommand(JPAServletContext ctx) {
         super(ctx);
@@ -75,8 +83,9 @@ class QueryCommand extends AbstractCommand {
         JPAServletContext ctx = getExecutionContext();
         String spec = getMandatoryArgument(ARG_QUERY);
         OpenJPAEntityManager em = ctx.getPersistenceContext();
+        OpenJPAQuery<?> query = null;
         try {
-            Query query = isBooleanQualifier(QUALIFIER_NAMED) ? em.createNamedQuery(spec) : em.createQuery(spec);
+            query = isBooleanQualifier(QUALIFIER_NAMED) ? em.createNamedQuery(spec) : em.createQuery(spec);
             if (hasQualifier(QUALIFIER_FIRSTRESULT))
                 query.setFirstResult(Integer.parseInt(getQualifier(QUALIFIER_FIRSTRESULT)));
             if (hasQualifier(QUALIFIER_MAXRESULT))
@@ -87,6 +96,10 @@ class QueryCommand extends AbstractCommand {
             for (Map.Entry<String, String> entry : args.entrySet()) {
                 query.setParameter(entry.getKey(), entry.getValue());
             }
+            if (isStreaming() && !isBooleanQualifier(QUALIFIER_SINGLE)) {
+                stream(query);
+                return;
+            }
             getObjectFormatter()
                 .writeOut(toStateManager(isBooleanQualifier(QUALIFIER_SINGLE)
                  ? Collections.singleton(query.getSingleResult()) : query.getResultList()),
@@ -98,7 +111,25 @@ class QueryCommand extends AbstractCommand {
         } catch (Exception e) {
             throw new ProcessingException(ctx, e, _loc.get("query-execution-error", spec));
         } finally {
+            if (query != null && isStreaming())
+                query.closeAll();
             popFetchPlan(false);
         }
     }
+
+    /**
+     * Streams the result of the given query. A positive fetch batch size lets the result be loaded lazily
+     * as it is iterated, and the response is written without a content length, so that the container
+     * sends it in chunks as the formatter flushes.
+     */
+    private void stream(OpenJPAQuery<?> query) throws IOException {
+        JPAServletContext ctx = getExecutionContext();
+        if (query.getFetchPlan().getFetchBatchSize() < 0)
+            query.getFetchPlan().setFetchBatchSize(STREAM_FETCH_BATCH_SIZE);
+        StreamingFormatter formatter = (StreamingFormatter)getObjectFormatter();
+        ctx.getResponse().setContentType(getObjectFormatter().getMimeType());
+        formatter.stream(toStateManagers(query.getResultList()), ctx.getPersistenceContext().getMetamodel(),
+            _loc.get("query-title").toString(), _loc.get("query-desc").toString(), ctx.getRequestURI(),
+            ctx.getResponse().getOutputStream());
+    }
 }
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.openjpa.persistence.jest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import jakarta.persistence.metamodel.Metamodel;
+
+import org.apache.openjpa.kernel.OpenJPAStateManager;
+
+/**
+ * An {@link ObjectFormatter} that can also write {@link OpenJPAStateManager managed} instances into an output
+ * stream <em>while</em> they are being supplied, instead of first encoding all of them into a complete resource.
+ * <p>
+ * A streaming formatter is used when a command carries the <code>stream</code> qualifier. The instances are
+ * typically supplied by iterating a lazily loaded query result, so that neither the result nor its encoded
+ * form is held in memory as a whole. The output stream is flushed at regular intervals, which lets a Servlet
+ * container send the response with chunked transfer encoding.
+ */
+public interface StreamingFormatter {
+    /**
+     * Number of root instances written between two flushes of the output stream.
+     */
+    int FLUSH_INTERVAL = 100;
+
+    /**
+     * Encodes the given managed instances one at a time and writes each into the given output stream as soon
+     * as it is encoded. Each instance is written together with its {@link Closure persistent closure}.
+     *
+     * @param sms the managed instances to be formatted. Iterated exactly once.
+     * @param model a meta-model of managed types, provided for easier introspection if necessary
+     * @param title title of the resource
+     * @param desc description of the resource
+     * @param uri the request URI that produced the resource
+     * @param out a byte-oriented output stream
+     *
+     * @throws IOException
+     */
+    void stream(Iterable<OpenJPAStateManager> sms, Metamodel model,
+        String title, String desc, String uri, OutputStream out) throws IOException;
+}
@@ -43,17 +43,21 @@ import static org.apache.openjpa.persistence.jest.Constants.ROOT_ELEMENT_INSTANC
 import static org.apache.openjpa.persistence.jest.Constants.ROOT_ELEMENT_MODEL;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.CharArrayWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -88,16 +92,20 @@ import org.apache.openjpa.util.InternalException;
 import org.w3c.dom.CDATASection;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 /**
  * Marshals a root instance and its persistent closure as an XML element.
  * The closure is resolved against the persistence context that contains the root instance.
  * The XML document adheres to the <code>jest-instance.xsd</code> schema.
+ * <br>
+ * The instances can also be {@linkplain #stream(Iterable, Metamodel, String, String, String, OutputStream)
+ * streamed}, in which case only the closure of one root instance is held as a DOM at a time.
  *
  * @author Pinaki Poddar
  *
  */
-public class XMLFormatter implements ObjectFormatter<Document> {
+public class XMLFormatter implements ObjectFormatter<Document>, StreamingFormatter {
     public static final  Schema          _xsd;
     private static final DocumentBuilder _builder;
     private static final Transformer     _transformer;
@@ -212,6 +220,68 @@ public class XMLFormatter implements ObjectFormatter<Document> {
         return doc;
     }
 
+    /**
+     * Writes the given managed instances into a document according to JEST Instance XML Schema.
+     * <br>
+     * The closure of each root instance is encoded into a scratch document, written out as a fragment
+     * and discarded before the next root instance is taken. The schema requires each instance to appear
+     * once in the document, so the identifiers of the written instances are remembered, but the managed
+     * instances themselves are not.
+     */
+    @Override
+    public void stream(Iterable<OpenJPAStateManager> sms, Metamodel model, String title, String desc,
+        String uri, OutputStream out) throws IOException {
+        Transformer fragment;
+        try {
+            fragment = TransformerFactory.newInstance().newTransformer();
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        fragment.setOutputProperty(OutputKeys.METHOD, "xml");
+        fragment.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+        fragment.setOutputProperty(OutputKeys.INDENT, "yes");
+        fragment.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+        writer.write('<' + ROOT_ELEMENT_INSTANCE + " xmlns:xsi=\"" + XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI
+            + "\" " + ATTR_VERSION + "=\"1.0\">\n");
+
+        Element root = newDocument(ROOT_ELEMENT_INSTANCE);
+        Document doc = root.getOwnerDocument();
+        Element uriElement = doc.createElement(ELEMENT_URI);
+        uriElement.setTextContent(uri == null ? NULL_VALUE : uri);
+        writeFragment(fragment, uriElement, writer);
+        Element descElement = doc.createElement(ELEMENT_DESCRIPTION);
+        descElement.setTextContent(desc == null ? NULL_VALUE : desc);
+        writeFragment(fragment, descElement, writer);
+
+        Set<String> written = new HashSet<>();
+        int count = 0;
+        for (OpenJPAStateManager sm : sms) {
+            for (OpenJPAStateManager member : new Closure(sm)) {
+                if (written.add(ior(member))) {
+                    Element instance = encodeManagedInstance(member, root, false, model);
+                    root.removeChild(instance);
+                    writeFragment(fragment, instance, writer);
+                }
+            }
+            if (++count % FLUSH_INTERVAL == 0) {
+                writer.flush();
+            }
+        }
+        writer.write("</" + ROOT_ELEMENT_INSTANCE + ">\n");
+        writer.flush();
+    }
+
+    private void writeFragment(Transformer fragment, Node node, Writer writer) throws IOException {
+        try {
+            fragment.transform(new DOMSource(node), new StreamResult(writer));
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
     public void write(Document doc, OutputStream out) throws IOException {
         try {
             _transformer.transform(new DOMSource(doc), new StreamResult(out));
@@ -70,13 +70,10 @@ public class CacheMarshallerImpl
         }
 
         Object o = null;
-        ObjectInputStream in = null;
         try {
-            in = new ObjectInputStream(new BufferedInputStream(
-                _inputURL.openStream()));
-
-            o = in.readObject();
-            o = _validationPolicy.getValidData(o);
+            o = read(_inputURL);
+            if (o != null)
+                o = _validationPolicy.getValidData(o);
 
             if (o != null && o.getClass().isArray()) {
                 Object[] array = (Object[]) o;
@@ -101,14 +98,41 @@ public class CacheMarshallerImpl
                         _inputURL),
                     e);
             }
-        } finally {
-            if (in != null)
-                try { in.close(); } catch (IOException e) { }
         }
 
         return o;
     }
 
+    /**
+     * Read the stored data from the given URL. Returning null indicates
+     * that the stored data is not usable.
+     *
+     * @since 4.1.2
+     */
+    protected Object read(URL url)
+        throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(
+            new BufferedInputStream(url.openStream()))) {
+            return in.readObject();
+        }
+    }
+
+    /**
+     * Write the data returned by the validation policy for
+     * <code>o</code> to the given stream.
+     *
+     * @param o the object passed to {@link #store}
+     * @param data the cacheable form of <code>o</code>
+     * @since 4.1.2
+     */
+    protected void write(Object o, Object data, OutputStream out)
+        throws Exception {
+        ObjectOutputStream oos =
+            new ObjectOutputStream(new BufferedOutputStream(out));
+        oos.writeObject(data);
+        oos.flush();
+    }
+
     private void configure(Object o) {
         if (o instanceof Configurable) {
             ((Configurable) o).setConfiguration(_conf);
@@ -126,11 +150,8 @@ public class CacheMarshallerImpl
         OutputStream out = null;
         try {
             out = new FileOutputStream(_outputFile);
-            ObjectOutputStream oos =
-                new ObjectOutputStream(new BufferedOutputStream(out));
             Object toStore = _validationPolicy.getCacheableData(o);
-            oos.writeObject(toStore);
-            oos.flush();
+            write(o, toStore, out);
             out.flush();
             if (_log.isTraceEnabled())
                 _log.trace(_loc.get("cache-marshaller-stored",
@@ -173,6 +194,24 @@ public class CacheMarshallerImpl
         _consumeErrors = consume;
     }
 
+    /**
+     * The configuration this marshaller was created for.
+     *
+     * @since 4.1.2
+     */
+    protected OpenJPAConfiguration getConfiguration() {
+        return _conf;
+    }
+
+    /**
+     * The log used by this marshaller.
+     *
+     * @since 4.1.2
+     */
+    protected Log getLog() {
+        return _log;
+    }
+
     @Override
     public String getId() {
         return _id;
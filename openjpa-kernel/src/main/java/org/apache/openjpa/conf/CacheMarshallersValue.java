@@ -48,6 +48,7 @@ public class CacheMarshallersValue
         super(KEY);
         _conf = conf;
         setAlias("default", CacheMarshallerImpl.class.getName());
+        setAlias("snapshot", SnapshotCacheMarshaller.class.getName());
         setAlias("none", null);
         setDefault("none");
         setString("none");
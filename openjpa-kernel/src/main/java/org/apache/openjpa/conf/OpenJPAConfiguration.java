@@ -1005,6 +1005,26 @@ public interface OpenJPAConfiguration
      */
     void setIgnoreChanges(Boolean ignoreChanges);
 
+    /**
+     * The number of candidates from which queries evaluated in memory
+     * partition their candidates and evaluate them in parallel. Use 0 to
+     * always evaluate on the calling thread.
+     */
+    int getInMemoryQueryParallelThreshold();
+
+    /**
+     * The number of candidates from which queries evaluated in memory
+     * partition their candidates and evaluate them in parallel. Use 0 to
+     * always evaluate on the calling thread.
+     */
+    void setInMemoryQueryParallelThreshold(int threshold);
+
+    /**
+     * Wrapper for JCA usage of
+     * {@link #setInMemoryQueryParallelThreshold(int)}.
+     */
+    void setInMemoryQueryParallelThreshold(Integer threshold);
+
     /**
      * A comma-separated list of events which trigger auto-detachment
      * in place of managed states. Possible values are:
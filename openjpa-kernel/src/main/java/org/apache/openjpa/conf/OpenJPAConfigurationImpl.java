@@ -27,10 +27,12 @@ import java.util.Map;
 import org.apache.openjpa.audit.AuditLogger;
 import org.apache.openjpa.audit.Auditor;
 import org.apache.openjpa.datacache.CacheDistributionPolicy;
+import org.apache.openjpa.datacache.ClockDataCache;
 import org.apache.openjpa.datacache.ConcurrentDataCache;
 import org.apache.openjpa.datacache.ConcurrentQueryCache;
 import org.apache.openjpa.datacache.DataCacheManager;
 import org.apache.openjpa.datacache.DataCacheManagerImpl;
+import org.apache.openjpa.datacache.OffHeapDataCache;
 import org.apache.openjpa.datacache.PartitionedDataCache;
 import org.apache.openjpa.ee.ManagedRuntime;
 import org.apache.openjpa.enhance.RuntimeUnenhancedClassesModes;
@@ -147,6 +149,7 @@ public class OpenJPAConfigurationImpl
     public IntValue restoreState;
     public ObjectValue detachStatePlugin;
     public BooleanValue ignoreChanges;
+    public IntValue inMemoryQueryParallelThreshold;
     public BooleanValue nontransactionalRead;
     public BooleanValue nontransactionalWrite;
     public BooleanValue refreshFromDataCache;
@@ -268,6 +271,8 @@ public class OpenJPAConfigurationImpl
             "false", null,
             "true", ConcurrentDataCache.class.getName(),
             "concurrent", ConcurrentDataCache.class.getName(),
+            "clock", ClockDataCache.class.getName(),
+            "offheap", OffHeapDataCache.class.getName(),
             "partitioned", PartitionedDataCache.class.getName(),
         };
         dataCachePlugin.setAliases(aliases);
@@ -517,6 +522,12 @@ public class OpenJPAConfigurationImpl
 
         ignoreChanges = addBoolean("IgnoreChanges");
 
+        inMemoryQueryParallelThreshold =
+            addInt("InMemoryQueryParallelThreshold");
+        inMemoryQueryParallelThreshold.setDefault("0");
+        inMemoryQueryParallelThreshold.set(0);
+        inMemoryQueryParallelThreshold.setDynamic(true);
+
         nontransactionalRead = addBoolean("NontransactionalRead");
         nontransactionalRead.setDefault("true");
         nontransactionalRead.set(true);
@@ -1457,6 +1468,22 @@ public class OpenJPAConfigurationImpl
         return ignoreChanges.get();
     }
 
+    @Override
+    public void setInMemoryQueryParallelThreshold(int threshold) {
+        inMemoryQueryParallelThreshold.set(threshold);
+    }
+
+    @Override
+    public void setInMemoryQueryParallelThreshold(Integer threshold) {
+        if (threshold != null)
+            setInMemoryQueryParallelThreshold(threshold.intValue());
+    }
+
+    @Override
+    public int getInMemoryQueryParallelThreshold() {
+        return inMemoryQueryParallelThreshold.get();
+    }
+
     @Override
     public void setNontransactionalRead(boolean nontransactionalRead) {
         this.nontransactionalRead.set(nontransactionalRead);
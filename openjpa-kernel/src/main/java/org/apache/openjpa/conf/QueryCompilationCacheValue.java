@@ -23,6 +23,7 @@ import java.util.Hashtable;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.openjpa.kernel.QueryCompilationCache;
 import org.apache.openjpa.lib.conf.Configuration;
 import org.apache.openjpa.lib.conf.PluginValue;
 import org.apache.openjpa.lib.util.ParseException;
@@ -40,6 +41,7 @@ public class QueryCompilationCacheValue
     public static final String[] ALIASES = {
         "true", CacheMap.class.getName(),
         "all", ConcurrentHashMap.class.getName(),
+        "concurrent", QueryCompilationCache.class.getName(),
         "false", null,
     };
 
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.conf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.zip.CRC32;
+
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+
+/**
+ * {@link CacheMarshaller} that stores data in a versioned snapshot file.
+ * The snapshot header records the snapshot format, the OpenJPA version
+ * and a CRC32 checksum of the class file of each type in any stored
+ * {@link MetaDataRepository}. On load, the header is checked before any
+ * of the payload is deserialized. If any class file has changed, the
+ * snapshot is ignored and metadata is parsed as usual.
+ *
+ * The checksum of a class file in a jar is taken from the jar directory,
+ * which records the CRC32 of each entry, so such class files are not read.
+ *
+ * @since 4.1.2
+ */
+public class SnapshotCacheMarshaller
+    extends CacheMarshallerImpl {
+
+    private static final Localizer _loc =
+        Localizer.forPackage(SnapshotCacheMarshaller.class);
+
+    private static final int MAGIC = 0x4f4a4d53;
+    private static final short FORMAT_VERSION = 1;
+
+    @Override
+    protected Object read(URL url)
+        throws Exception {
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(url.openStream()))) {
+            return read(url, in);
+        }
+    }
+
+    /**
+     * Validate the header of the snapshot at the given URL and return its
+     * payload, or null if the snapshot is stale or not a snapshot.
+     */
+    private Object read(URL url, DataInputStream in)
+        throws Exception {
+        int magic;
+        short format;
+        try {
+            magic = in.readInt();
+            format = in.readShort();
+        } catch (EOFException eof) {
+            magic = 0;
+            format = 0;
+        }
+        if (magic != MAGIC || format != FORMAT_VERSION) {
+            if (getLog().isInfoEnabled())
+                getLog().info(_loc.get("snapshot-bad-format", url));
+            return null;
+        }
+
+        String version = in.readUTF();
+        if (!OpenJPAVersion.VERSION_ID.equals(version)) {
+            if (getLog().isInfoEnabled())
+                getLog().info(_loc.get("snapshot-stale-version", url,
+                    version));
+            return null;
+        }
+
+        ClassLoader loader = getConfiguration().getClassResolverInstance()
+            .getClassLoader(getClass(), null);
+        long start = System.nanoTime();
+        int count = in.readInt();
+        String name;
+        for (int i = 0; i < count; i++) {
+            name = in.readUTF();
+            if (in.readLong() != checksum(name, loader)) {
+                if (getLog().isInfoEnabled())
+                    getLog().info(_loc.get("snapshot-stale-class", url,
+                        name));
+                return null;
+            }
+        }
+        if (getLog().isTraceEnabled())
+            getLog().trace(_loc.get("snapshot-validated", url, count,
+                (System.nanoTime() - start) / 1000));
+
+        in.readInt(); // payload length
+        return new ObjectInputStream(in).readObject();
+    }
+
+    @Override
+    protected void write(Object o, Object data, OutputStream out)
+        throws Exception {
+        ClassLoader loader = getConfiguration().getClassResolverInstance()
+            .getClassLoader(getClass(), null);
+        Map<String, Long> checksums = new TreeMap<>();
+        collectTypes(o, checksums);
+        for (Map.Entry<String, Long> entry : checksums.entrySet())
+            entry.setValue(checksum(entry.getKey(), loader));
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(payload)) {
+            oos.writeObject(data);
+        }
+
+        DataOutputStream dos = new DataOutputStream(
+            new BufferedOutputStream(out));
+        dos.writeInt(MAGIC);
+        dos.writeShort(FORMAT_VERSION);
+        dos.writeUTF(OpenJPAVersion.VERSION_ID);
+        dos.writeInt(checksums.size());
+        for (Map.Entry<String, Long> entry : checksums.entrySet()) {
+            dos.writeUTF(entry.getKey());
+            dos.writeLong(entry.getValue());
+        }
+        dos.writeInt(payload.size());
+        payload.writeTo(dos);
+        dos.flush();
+    }
+
+    /**
+     * Add the names of the classes whose class files the validity of the
+     * given stored object depends on. By default, adds the persistent
+     * types and application identity classes of any
+     * {@link MetaDataRepository}, directly or within an array.
+     */
+    protected void collectTypes(Object o, Map<String, Long> types) {
+        if (o instanceof Object[]) {
+            for (Object elem : (Object[]) o)
+                collectTypes(elem, types);
+        } else if (o instanceof MetaDataRepository) {
+            for (ClassMetaData meta : ((MetaDataRepository) o).getMetaDatas()) {
+                types.put(meta.getDescribedType().getName(), null);
+                if (meta.getIdentityType() == ClassMetaData.ID_APPLICATION
+                    && !meta.isOpenJPAIdentity()
+                    && meta.getObjectIdType() != null)
+                    types.put(meta.getObjectIdType().getName(), null);
+            }
+        }
+    }
+
+    /**
+     * Return the CRC32 checksum of the class file for the given class, or
+     * -1 if the class file cannot be found. The checksum recorded in the
+     * jar directory is used for class files in jars; other class files are
+     * read.
+     */
+    private static long checksum(String name, ClassLoader loader)
+        throws IOException {
+        URL res = loader.getResource(name.replace('.', '/') + ".class");
+        if (res == null)
+            return -1;
+
+        URLConnection conn = res.openConnection();
+        if (conn instanceof JarURLConnection) {
+            JarEntry entry = ((JarURLConnection) conn).getJarEntry();
+            if (entry != null && entry.getCrc() != -1)
+                return entry.getCrc();
+        }
+
+        CRC32 crc = new CRC32();
+        byte[] bytes = new byte[8192];
+        try (InputStream in = conn.getInputStream()) {
+            for (int n; (n = in.read(bytes)) != -1;)
+                crc.update(bytes, 0, n);
+        }
+        return crc.getValue();
+    }
+}
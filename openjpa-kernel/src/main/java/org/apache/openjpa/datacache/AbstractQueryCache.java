@@ -31,6 +31,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.enhance.PCRegistry;
 import org.apache.openjpa.event.RemoteCommitEvent;
 import org.apache.openjpa.event.RemoteCommitListener;
 import org.apache.openjpa.kernel.QueryStatistics;
@@ -89,6 +90,10 @@ public abstract class AbstractQueryCache
     private QueryStatistics<QueryKey> _stats;
     private boolean _statsEnabled = false;
 
+    // least-derived access path type name to the keys that depend on it
+    private final Map<String, Set<QueryKey>> _typeIndex =
+        new ConcurrentHashMap<>();
+
     public void setEnableStatistics(boolean enable){
         _statsEnabled = enable;
     }
@@ -125,7 +130,24 @@ public abstract class AbstractQueryCache
 
     @Override
     public void onTypesChanged(TypesChangedEvent ev) {
-        if (evictPolicy == EvictPolicy.DEFAULT) {
+        if (evictPolicy == EvictPolicy.DEFAULT && isTypeIndexed()) {
+            // the index is only updated under the write lock, so holding
+            // it while collecting and removing the dependents ensures that
+            // no entry put for the changed types is missed
+            writeLock();
+            try {
+                if (hasListeners())
+                    fireEvent(ev);
+                List<QueryKey> removes = getDependentKeys(ev.getTypes());
+                if (removes != null) {
+                    removeAllInternal(removes);
+                    for (QueryKey qk : removes)
+                        keyRemoved(qk);
+                }
+            } finally {
+                writeUnlock();
+            }
+        } else if (evictPolicy == EvictPolicy.DEFAULT) {
             writeLock();
             Collection keys = null;
             try {
@@ -172,7 +194,16 @@ public abstract class AbstractQueryCache
         QueryResult o = getInternal(key);
         if (o != null && o.isTimedOut()) {
             o = null;
-            removeInternal(key);
+            if (isTypeIndexed()) {
+                writeLock();
+                try {
+                    removeInternal(key);
+                    keyRemoved(key);
+                } finally {
+                    writeUnlock();
+                }
+            } else
+                removeInternal(key);
             if (log.isTraceEnabled())
                 log.trace(s_loc.get("cache-timeout", key));
         }
@@ -189,9 +220,93 @@ public abstract class AbstractQueryCache
         return o;
     }
 
+    /**
+     * Return the indexed keys that depend on any of the given types, or
+     * null if none.
+     */
+    private List<QueryKey> getDependentKeys(Collection<Class<?>> changed) {
+        Set<String> names = new HashSet<>();
+        Class<?> sup;
+        for (Class<?> cls : changed) {
+            while ((sup = PCRegistry.getPersistentSuperclass(cls)) != null)
+                cls = sup;
+            names.add(cls.getName());
+        }
+
+        Set<QueryKey> keys = null;
+        Set<QueryKey> dependents;
+        for (String name : names) {
+            dependents = _typeIndex.get(name);
+            if (dependents == null || dependents.isEmpty())
+                continue;
+            if (keys == null)
+                keys = new HashSet<>();
+            keys.addAll(dependents);
+        }
+        return (keys == null) ? null : new ArrayList<>(keys);
+    }
+
+    /**
+     * Whether this cache keeps an index from types to the keys that depend
+     * on them, so that type changes only visit the affected keys. The index
+     * is updated by {@link #put} and {@link #remove} under the write lock.
+     * Caches that return true must call {@link #keyRemoved} under the write
+     * lock whenever they drop an entry on their own, such as on overflow,
+     * but not when an entry is replaced. Defaults to false, in which case
+     * type changes check every key in the cache.
+     *
+     * @since 4.1.2
+     */
+    protected boolean isTypeIndexed() {
+        return false;
+    }
+
+    /**
+     * Remove the given key from the type index. Invoked under the write
+     * lock when an entry is removed from the cache.
+     *
+     * @since 4.1.2
+     */
+    protected void keyRemoved(QueryKey qk) {
+        Set<String> names = qk.getAcessPathClassNames();
+        if (names == null)
+            return;
+        Set<QueryKey> dependents;
+        for (String name : names) {
+            dependents = _typeIndex.get(name);
+            if (dependents != null)
+                dependents.remove(qk);
+        }
+    }
+
+    /**
+     * Add the given key to the type index. Invoked under the write lock when
+     * an entry is added to the cache.
+     *
+     * @since 4.1.2
+     */
+    protected void keyAdded(QueryKey qk) {
+        Set<String> names = qk.getAcessPathClassNames();
+        if (names == null)
+            return;
+        for (String name : names)
+            _typeIndex.computeIfAbsent(name,
+                n -> ConcurrentHashMap.newKeySet()).add(qk);
+    }
+
     @Override
     public QueryResult put(QueryKey qk, QueryResult oids) {
-        QueryResult o = putInternal(qk, oids);
+        QueryResult o;
+        if (isTypeIndexed()) {
+            writeLock();
+            try {
+                o = putInternal(qk, oids);
+                keyAdded(qk);
+            } finally {
+                writeUnlock();
+            }
+        } else
+            o = putInternal(qk, oids);
         if (log.isTraceEnabled())
             log.trace(s_loc.get("cache-put", qk));
         return (o == null || o.isTimedOut()) ? null : o;
@@ -199,7 +314,17 @@ public abstract class AbstractQueryCache
 
     @Override
     public QueryResult remove(QueryKey key) {
-        QueryResult o = removeInternal(key);
+        QueryResult o;
+        if (isTypeIndexed()) {
+            writeLock();
+            try {
+                o = removeInternal(key);
+                keyRemoved(key);
+            } finally {
+                writeUnlock();
+            }
+        } else
+            o = removeInternal(key);
         if (_statsEnabled) {
             _stats.recordEviction(key);
         }
@@ -240,7 +365,16 @@ public abstract class AbstractQueryCache
 
     @Override
     public void clear() {
-        clearInternal();
+        if (isTypeIndexed()) {
+            writeLock();
+            try {
+                clearInternal();
+                _typeIndex.clear();
+            } finally {
+                writeUnlock();
+            }
+        } else
+            clearInternal();
         if (log.isTraceEnabled())
             log.trace(s_loc.get("cache-clear", "<query-cache>"));
         if (_statsEnabled) {
@@ -255,8 +389,10 @@ public abstract class AbstractQueryCache
 
     protected void close(boolean clear) {
         if (!_closed) {
-            if (clear)
+            if (clear) {
                 clearInternal();
+                _typeIndex.clear();
+            }
             _closed = true;
         }
     }
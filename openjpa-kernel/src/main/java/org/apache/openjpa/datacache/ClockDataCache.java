@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import org.apache.openjpa.util.CacheMap;
+import org.apache.openjpa.util.ClockCacheMap;
+
+/**
+ * A {@link ConcurrentDataCache} backed by a {@link ClockCacheMap}, so that
+ * reads and writes of different keys never contend on a cache-wide lock.
+ * When the cache fills up, entries that have not been read since the last
+ * eviction sweep are evicted first. The <code>Lru</code> property is ignored.
+ *
+ * @since 4.1.2
+ */
+public class ClockDataCache
+    extends ConcurrentDataCache {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected CacheMap newCacheMap() {
+        return new ClockCacheMap() {
+            @Override
+            protected void entryRemoved(Object key, Object value, boolean expired) {
+                keyRemoved(key, expired);
+            }
+        };
+    }
+}
@@ -122,11 +122,26 @@ public class ConcurrentQueryCache
      * Return the map to use as an internal cache.
      */
     protected CacheMap newCacheMap() {
-        CacheMap res = new CacheMap(_lru);
+        CacheMap res = new CacheMap(_lru) {
+            @Override
+            protected void entryRemoved(Object key, Object value,
+                boolean expired) {
+                // put and remove maintain the type index themselves; only
+                // entries dropped on overflow or expiry are reported here,
+                // under the write lock of the map
+                if (expired)
+                    keyRemoved((QueryKey) key);
+            }
+        };
 
         return res;
     }
 
+    @Override
+    protected boolean isTypeIndexed() {
+        return true;
+    }
+
     @Override
     protected QueryResult getInternal(QueryKey qk) {
         return (QueryResult) _cache.get(qk);
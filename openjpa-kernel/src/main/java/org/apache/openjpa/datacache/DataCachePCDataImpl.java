@@ -18,9 +18,11 @@
  */
 package org.apache.openjpa.datacache;
 
+import java.io.Serializable;
 import java.util.BitSet;
 
 import org.apache.openjpa.kernel.AbstractPCData;
+import org.apache.openjpa.kernel.FetchConfiguration;
 import org.apache.openjpa.kernel.OpenJPAStateManager;
 import org.apache.openjpa.kernel.PCData;
 import org.apache.openjpa.kernel.PCDataImpl;
@@ -32,8 +34,11 @@ import org.apache.openjpa.meta.JavaTypes;
 import org.apache.openjpa.meta.ValueMetaData;
 
 /**
- * Specialized {@link PCData} implementation for data caching. This
- * implementation is properly synchronized.
+ * Specialized {@link PCData} implementation for data caching. Field data,
+ * version and impl data are held in an immutable snapshot that is
+ * replaced as a whole on each change, so readers see a consistent state
+ * without locking. Writers are serialized on this instance; a
+ * {@link #store} publishes all of its changes at once.
  *
  * @author Patrick Linskey
  */
@@ -43,6 +48,10 @@ public class DataCachePCDataImpl
 
     private static final long serialVersionUID = 1L;
     private final long _exp;
+    private volatile State _state;
+
+    // changes not yet published by the update in progress; guarded by this
+    private transient State _edit = null;
 
     public DataCachePCDataImpl(Object oid, ClassMetaData meta) {
         this(oid, meta, DataCache.NAME_DEFAULT);
@@ -52,7 +61,8 @@ public class DataCachePCDataImpl
      * Constructor.
      */
     public DataCachePCDataImpl(Object oid, ClassMetaData meta, String name) {
-        super(oid, meta, name);
+        super(oid, meta.getDescribedType(), name);
+        _state = new State(meta.getFields().length);
 
         int timeout = meta.getDataCacheTimeout();
         if (timeout > 0)
@@ -71,79 +81,192 @@ public class DataCachePCDataImpl
         return _exp;
     }
 
+    /**
+     * Return the loaded fields of the current snapshot. The returned
+     * set must not be modified.
+     */
     @Override
-    public synchronized Object getData(int index) {
-        return super.getData(index);
+    public BitSet getLoaded() {
+        return _state.loaded;
+    }
+
+    @Override
+    public Object getData(int index) {
+        // make sure index is actually loaded to avoid returning an
+        // intermediate value
+        State state = _state;
+        return (state.loaded.get(index)) ? state.data[index] : null;
     }
 
     @Override
     public synchronized void setData(int index, Object val) {
-        super.setData(index, val);
+        State state = beginUpdate();
+        state.loaded.set(index);
+        state.data[index] = val;
+        endUpdate(state);
     }
 
     @Override
     public synchronized void clearData(int index) {
-        super.clearData(index);
+        State state = beginUpdate();
+        state.loaded.clear(index);
+        state.data[index] = null;
+        endUpdate(state);
     }
 
     @Override
-    public synchronized Object getImplData() {
-        return super.getImplData();
+    public Object getImplData() {
+        return _state.impl;
     }
 
     @Override
     public synchronized void setImplData(Object val) {
-        super.setImplData(val);
+        State state = beginUpdate();
+        state.impl = val;
+        endUpdate(state);
     }
 
     @Override
-    public synchronized Object getImplData(int index) {
-        return super.getImplData(index);
+    public Object getImplData(int index) {
+        State state = _state;
+        return (state.fieldImpl != null) ? state.fieldImpl[index] : null;
     }
 
     @Override
     public synchronized void setImplData(int index, Object val) {
-        super.setImplData(index, val);
+        State state = beginUpdate();
+        if (val != null) {
+            if (state.fieldImpl == null)
+                state.fieldImpl = new Object[state.data.length];
+            state.fieldImpl[index] = val;
+        } else if (state.fieldImpl != null)
+            state.fieldImpl[index] = null;
+        endUpdate(state);
     }
 
     @Override
-    public synchronized Object getIntermediate(int index) {
-        return super.getIntermediate(index);
+    public Object getIntermediate(int index) {
+        State state = _state;
+        return (!state.loaded.get(index)) ? state.data[index] : null;
     }
 
     @Override
     public synchronized void setIntermediate(int index, Object val) {
-        super.setIntermediate(index, val);
+        State state = beginUpdate();
+        state.loaded.clear(index);
+        state.data[index] = val;
+        endUpdate(state);
     }
 
     @Override
-    public synchronized boolean isLoaded(int index) {
-        return super.isLoaded(index);
+    public boolean isLoaded(int index) {
+        return _state.loaded.get(index);
     }
 
     @Override
     public synchronized void setLoaded(int index, boolean loaded) {
-        super.setLoaded(index, loaded);
+        State state = beginUpdate();
+        if (loaded)
+            state.loaded.set(index);
+        else
+            state.loaded.clear(index);
+        endUpdate(state);
     }
 
     @Override
-    public synchronized Object getVersion() {
-        return super.getVersion();
+    public Object getVersion() {
+        return _state.version;
     }
 
     @Override
     public synchronized void setVersion(Object version) {
-        super.setVersion(version);
+        State state = beginUpdate();
+        state.version = version;
+        endUpdate(state);
+    }
+
+    /**
+     * Load from a single snapshot, so that loaded state, field data,
+     * version and impl data are consistent with each other.
+     */
+    @Override
+    public void load(OpenJPAStateManager sm, FetchConfiguration fetch,
+        Object context) {
+        new Snapshot(_state).load(sm, fetch, context);
     }
 
+    /**
+     * Load from a single snapshot, so that loaded state, field data,
+     * version and impl data are consistent with each other.
+     */
     @Override
-    public synchronized void store(OpenJPAStateManager sm) {
-        super.store(sm);
+    public void load(OpenJPAStateManager sm, BitSet fields,
+        FetchConfiguration fetch, Object context) {
+        new Snapshot(_state).load(sm, fields, fetch, context);
     }
 
     @Override
-    public synchronized void store(OpenJPAStateManager sm, BitSet fields) {
-        super.store(sm, fields);
+    public void store(OpenJPAStateManager sm) {
+        store(sm, sm.getLoaded());
+    }
+
+    /**
+     * Store the given fields. Readers do not see any of the changes until
+     * all fields have been stored.
+     */
+    @Override
+    public void store(OpenJPAStateManager sm, BitSet fields) {
+        update(() -> {
+            storeVersion(sm);
+            storeImplData(sm);
+
+            State state = _edit;
+            FieldMetaData[] fmds = sm.getMetaData().getFields();
+            for (int i = 0; i < fmds.length; i++) {
+                if (fields != null && fields.get(i)) {
+                    storeField(sm, fmds[i]);
+                    storeImplData(sm, fmds[i], state.loaded.get(i));
+                } else if (!state.loaded.get(i))
+                    storeIntermediate(sm, fmds[i]);
+            }
+        });
+    }
+
+    /**
+     * Make the changes of the given updates visible to readers at once.
+     * Changes are discarded if the updates fail.
+     */
+    synchronized void update(Runnable updates) {
+        if (_edit != null) {
+            updates.run();
+            return;
+        }
+
+        State state = _state.copy();
+        _edit = state;
+        try {
+            updates.run();
+        } finally {
+            _edit = null;
+        }
+        _state = state;
+    }
+
+    /**
+     * Return the state to apply a change to: the pending state of the
+     * store in progress, or a copy of the current snapshot. Must be called
+     * while holding the lock on this instance.
+     */
+    private State beginUpdate() {
+        return (_edit != null) ? _edit : _state.copy();
+    }
+
+    /**
+     * Publish the given state unless it belongs to the store in progress.
+     */
+    private void endUpdate(State state) {
+        if (state != _edit)
+            _state = state;
     }
 
     /**
@@ -234,4 +357,97 @@ public class DataCachePCDataImpl
     public AbstractPCData newEmbeddedPCData(OpenJPAStateManager sm) {
         return new DataCachePCDataImpl(sm.getId(), sm.getMetaData(), getCache());
     }
+
+    /**
+     * Read-only view of one state, through which the inherited load logic
+     * reads all of its data.
+     */
+    private class Snapshot
+        extends PCDataImpl {
+
+        private static final long serialVersionUID = 1L;
+
+        private final State _snap;
+
+        Snapshot(State state) {
+            super(DataCachePCDataImpl.this.getId(),
+                DataCachePCDataImpl.this.getType(),
+                DataCachePCDataImpl.this.getCache());
+            _snap = state;
+        }
+
+        @Override
+        public BitSet getLoaded() {
+            return _snap.loaded;
+        }
+
+        @Override
+        public boolean isLoaded(int index) {
+            return _snap.loaded.get(index);
+        }
+
+        @Override
+        public Object getData(int index) {
+            return (_snap.loaded.get(index)) ? _snap.data[index] : null;
+        }
+
+        @Override
+        public Object getIntermediate(int index) {
+            return (!_snap.loaded.get(index)) ? _snap.data[index] : null;
+        }
+
+        @Override
+        public Object getImplData() {
+            return _snap.impl;
+        }
+
+        @Override
+        public Object getImplData(int index) {
+            return (_snap.fieldImpl != null) ? _snap.fieldImpl[index] : null;
+        }
+
+        @Override
+        public Object getVersion() {
+            return _snap.version;
+        }
+
+        @Override
+        public AbstractPCData newEmbeddedPCData(OpenJPAStateManager sm) {
+            return DataCachePCDataImpl.this.newEmbeddedPCData(sm);
+        }
+    }
+
+    /**
+     * Snapshot of the field data, version and impl data. A snapshot is
+     * never modified once published.
+     */
+    private static class State
+        implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final Object[] data;
+        final BitSet loaded;
+        Object version = null;
+        Object impl = null;
+        Object[] fieldImpl = null;
+
+        public State(int len) {
+            data = new Object[len];
+            loaded = new BitSet(len);
+        }
+
+        private State(State state) {
+            data = state.data.clone();
+            loaded = (BitSet) state.loaded.clone();
+            version = state.version;
+            impl = state.impl;
+            fieldImpl = (state.fieldImpl == null) ? null
+                : state.fieldImpl.clone();
+        }
+
+        public State copy() {
+            return new State(this);
+        }
+    }
 }
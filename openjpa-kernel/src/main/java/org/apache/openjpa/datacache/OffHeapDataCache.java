@@ -0,0 +1,417 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.openjpa.event.RemoteCommitListener;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.meta.ClassMetaData;
+
+/**
+ * A {@link DataCache} implementation that keeps cached field values outside
+ * of the Java heap. Each entry is encoded into a compact binary form and
+ * appended to one of a bounded number of direct memory segments; only the
+ * oid and a small locator object per entry remain on the heap. Entries are
+ * decoded into a new {@link DataCachePCData} on every get, so callers never
+ * share state with the cache.
+ * When the last segment is full, the oldest segment is recycled and the
+ * entries still stored in it are evicted, so eviction is approximately in
+ * insertion order. Pinned entries are copied forward instead of evicted.
+ * Readers never block; writers are serialized.
+ *
+ * @since 4.1.2
+ */
+public class OffHeapDataCache
+    extends AbstractDataCache
+    implements RemoteCommitListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Localizer _loc = Localizer.forPackage
+        (OffHeapDataCache.class);
+
+    private long _maxMemory = 64L * 1024 * 1024;
+    private int _segmentSize = 4 * 1024 * 1024;
+    private int _maxSegments;
+
+    private final Map<Object, Slot> _index = new ConcurrentHashMap<>();
+    private final Set<Object> _pinned = ConcurrentHashMap.newKeySet();
+
+    // guards segment writes and recycling
+    private final ReentrantLock _lock = new ReentrantLock();
+
+    // oldest first; the last segment is the one being written
+    private final ArrayDeque<Segment> _segments = new ArrayDeque<>();
+
+    // dictionary of classes referenced by encoded data
+    private final Map<Class<?>, Integer> _classIds = new ConcurrentHashMap<>();
+    private volatile Class<?>[] _classes = new Class<?>[0];
+
+    /**
+     * The maximum number of bytes of direct memory to use. Defaults to 64MB.
+     */
+    public long getMaxMemory() {
+        return _maxMemory;
+    }
+
+    /**
+     * The maximum number of bytes of direct memory to use. Defaults to 64MB.
+     */
+    public void setMaxMemory(long max) {
+        _maxMemory = max;
+    }
+
+    /**
+     * The size in bytes of each memory segment. Entries whose encoded form
+     * is larger than a segment are not cached. Defaults to 4MB.
+     */
+    public int getSegmentSize() {
+        return _segmentSize;
+    }
+
+    /**
+     * The size in bytes of each memory segment. Entries whose encoded form
+     * is larger than a segment are not cached. Defaults to 4MB.
+     */
+    public void setSegmentSize(int size) {
+        _segmentSize = size;
+    }
+
+    /**
+     * The number of entries in the cache.
+     */
+    public int size() {
+        return _index.size();
+    }
+
+    @Override
+    public void initialize(DataCacheManager mgr) {
+        super.initialize(mgr);
+        conf.getRemoteCommitEventManager().addInternalListener(this);
+        _maxSegments = (int) Math.max(1, _maxMemory / _segmentSize);
+    }
+
+    @Override
+    public void unpinAll(Class<?> cls, boolean subs) {
+        if (log.isWarnEnabled())
+            log.warn(_loc.get("cache-class-unpin-all", getName()));
+        unpinAll(new ArrayList<>(_pinned));
+    }
+
+    @Override
+    public void writeLock() {
+        _lock.lock();
+    }
+
+    @Override
+    public void writeUnlock() {
+        _lock.unlock();
+    }
+
+    @Override
+    protected DataCachePCData getInternal(Object key) {
+        return decode(_index.get(key));
+    }
+
+    @Override
+    protected DataCachePCData putInternal(Object key, DataCachePCData pc) {
+        ClassMetaData meta = getMetaData(pc.getType());
+        if (meta == null)
+            return null;
+
+        // encode outside of the lock
+        byte[] bytes = OffHeapPCData.encode(pc, meta, this);
+        if (bytes.length > _segmentSize) {
+            if (log.isWarnEnabled())
+                log.warn(_loc.get("offheap-too-large", key, bytes.length));
+            return removeInternal(key);
+        }
+
+        Slot old;
+        _lock.lock();
+        try {
+            old = _index.put(key, append(key, pc.getType(), bytes));
+        } finally {
+            _lock.unlock();
+        }
+        return decode(old);
+    }
+
+    @Override
+    protected DataCachePCData removeInternal(Object key) {
+        Slot old = _index.remove(key);
+        if (old == null)
+            return null;
+        DataCachePCData data = decode(old);
+        keyRemoved(key, false);
+        return data;
+    }
+
+    @Override
+    protected void removeAllInternal(Class<?> cls, boolean subs) {
+        for (Map.Entry<Object, Slot> entry : _index.entrySet()) {
+            Class<?> type = entry.getValue().type;
+            if ((type == cls || (subs && cls.isAssignableFrom(type)))
+                && _index.remove(entry.getKey(), entry.getValue()))
+                keyRemoved(entry.getKey(), false);
+        }
+    }
+
+    @Override
+    protected void clearInternal() {
+        _lock.lock();
+        try {
+            for (Object key : _index.keySet())
+                if (_index.remove(key) != null)
+                    keyRemoved(key, false);
+            _pinned.clear();
+
+            // invalidate reads in progress and release the memory
+            for (Segment seg : _segments)
+                seg.recycle();
+            _segments.clear();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    protected boolean pinInternal(Object key) {
+        _pinned.add(key);
+        return _index.containsKey(key);
+    }
+
+    @Override
+    protected boolean unpinInternal(Object key) {
+        return _pinned.remove(key) && _index.containsKey(key);
+    }
+
+    @Override
+    protected boolean recacheUpdates() {
+        return true;
+    }
+
+    /**
+     * Return the metadata for the given cached type, or null if none.
+     */
+    ClassMetaData getMetaData(Class<?> cls) {
+        return conf.getMetaDataRepositoryInstance().getMetaData(cls, null,
+            false);
+    }
+
+    /**
+     * Return the dictionary index of the given class, assigning one if
+     * needed.
+     */
+    int classIndex(Class<?> cls) {
+        Integer idx = _classIds.get(cls);
+        if (idx != null)
+            return idx;
+        synchronized (_classIds) {
+            idx = _classIds.get(cls);
+            if (idx == null) {
+                Class<?>[] classes = Arrays.copyOf(_classes,
+                    _classes.length + 1);
+                classes[classes.length - 1] = cls;
+                // publish the class before any data can refer to its index
+                _classes = classes;
+                idx = classes.length - 1;
+                _classIds.put(cls, idx);
+            }
+            return idx;
+        }
+    }
+
+    /**
+     * Return the class with the given dictionary index.
+     */
+    Class<?> indexClass(int idx) {
+        return _classes[idx];
+    }
+
+    /**
+     * Decode the data at the given location, or return null if the location
+     * is null or has been recycled.
+     */
+    private DataCachePCData decode(Slot slot) {
+        if (slot == null)
+            return null;
+        byte[] bytes = slot.read();
+        if (bytes == null)
+            return null;
+        return OffHeapPCData.decode(bytes, getMetaData(slot.type), this);
+    }
+
+    /**
+     * Append the given bytes to the current segment, recycling the oldest
+     * segment if needed. Must hold the lock.
+     */
+    private Slot append(Object key, Class<?> type, byte[] bytes) {
+        Segment seg = _segments.peekLast();
+        if (seg == null || seg.pos + bytes.length > _segmentSize)
+            seg = nextSegment();
+        return seg.write(key, type, bytes);
+    }
+
+    /**
+     * Make a new current segment, either allocating it or evicting the
+     * contents of the oldest one. Must hold the lock.
+     */
+    private Segment nextSegment() {
+        if (_segments.size() < _maxSegments) {
+            Segment seg = new Segment(ByteBuffer.allocateDirect(_segmentSize));
+            _segments.addLast(seg);
+            return seg;
+        }
+
+        Segment seg = _segments.pollFirst();
+        List<Object> pinned = null;
+        List<Slot> carry = null;
+        Slot slot;
+        for (Object key : seg.keys) {
+            slot = _index.get(key);
+            if (slot == null || slot.seg != seg || slot.gen != seg.gen)
+                continue;
+            if (_pinned.contains(key)) {
+                if (pinned == null) {
+                    pinned = new ArrayList<>();
+                    carry = new ArrayList<>();
+                }
+                pinned.add(key);
+                carry.add(slot);
+            } else if (_index.remove(key, slot))
+                keyRemoved(key, true);
+        }
+
+        // copy pinned entries out before their bytes are overwritten
+        List<byte[]> bytes = null;
+        if (pinned != null) {
+            bytes = new ArrayList<>(carry.size());
+            for (Slot s : carry)
+                bytes.add(s.read());
+        }
+
+        seg.recycle();
+        _segments.addLast(seg);
+        if (pinned == null)
+            return seg;
+
+        byte[] b;
+        Object key;
+        for (int i = 0; i < pinned.size(); i++) {
+            key = pinned.get(i);
+            slot = carry.get(i);
+            b = bytes.get(i);
+            if (b != null && seg.pos + b.length <= _segmentSize)
+                _index.replace(key, slot, seg.write(key, slot.type, b));
+            else if (_index.remove(key, slot))
+                keyRemoved(key, true);
+        }
+        return seg;
+    }
+
+    /**
+     * A region of direct memory that entries are appended to.
+     */
+    private static class Segment {
+
+        private final ByteBuffer buf;
+        private final List<Object> keys = new ArrayList<>();
+        private int pos = 0;
+
+        // incremented whenever the segment is recycled so that readers
+        // can detect overwritten data
+        private volatile int gen = 0;
+
+        public Segment(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        /**
+         * Append an entry. Must hold the cache lock.
+         */
+        public Slot write(Object key, Class<?> type, byte[] bytes) {
+            ByteBuffer dup = buf.duplicate();
+            dup.position(pos);
+            dup.put(bytes);
+            Slot slot = new Slot(this, gen, pos, bytes.length, type);
+            pos += bytes.length;
+            keys.add(key);
+            return slot;
+        }
+
+        /**
+         * Invalidate all slots in this segment. Must hold the cache lock.
+         */
+        public void recycle() {
+            gen++;
+            // order the generation change before any later writes
+            VarHandle.releaseFence();
+            pos = 0;
+            keys.clear();
+        }
+    }
+
+    /**
+     * Location of an encoded entry.
+     */
+    private static class Slot {
+
+        public final Segment seg;
+        public final int gen;
+        public final int offset;
+        public final int length;
+        public final Class<?> type;
+
+        public Slot(Segment seg, int gen, int offset, int length,
+            Class<?> type) {
+            this.seg = seg;
+            this.gen = gen;
+            this.offset = offset;
+            this.length = length;
+            this.type = type;
+        }
+
+        /**
+         * Copy the encoded entry onto the heap, or return null if the
+         * segment has been recycled.
+         */
+        public byte[] read() {
+            if (seg.gen != gen)
+                return null;
+            byte[] bytes = new byte[length];
+            ByteBuffer dup = seg.buf.duplicate();
+            dup.position(offset);
+            dup.get(bytes);
+            // order the copy before re-checking the generation
+            VarHandle.acquireFence();
+            return (seg.gen == gen) ? bytes : null;
+        }
+    }
+}
@@ -0,0 +1,550 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.openjpa.kernel.PCData;
+import org.apache.openjpa.kernel.PCDataImpl;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.util.Id;
+import org.apache.openjpa.util.IntId;
+import org.apache.openjpa.util.InternalException;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.OpenJPAId;
+import org.apache.openjpa.util.Serialization;
+import org.apache.openjpa.util.StoreException;
+import org.apache.openjpa.util.StringId;
+
+/**
+ * {@link DataCachePCData} decoded from the compact binary form kept by
+ * {@link OffHeapDataCache}. Also hosts the codec for that form.
+ * Well-known value types such as wrappers, strings, dates and OpenJPA
+ * identities are written with one tag byte followed by a varint or raw
+ * encoding; classes are written as indexes into a per-cache dictionary.
+ * Values of any other type fall back to Java serialization.
+ *
+ * @since 4.1.2
+ */
+class OffHeapPCData
+    extends DataCachePCDataImpl {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Localizer _loc = Localizer.forPackage
+        (OffHeapPCData.class);
+
+    private static final int STATE_LOADED = 1;
+    private static final int STATE_INTERMEDIATE = 2;
+    private static final int STATE_IMPL = 4;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_TRUE = 1;
+    private static final byte TAG_FALSE = 2;
+    private static final byte TAG_BYTE = 3;
+    private static final byte TAG_SHORT = 4;
+    private static final byte TAG_CHAR = 5;
+    private static final byte TAG_INT = 6;
+    private static final byte TAG_LONG = 7;
+    private static final byte TAG_FLOAT = 8;
+    private static final byte TAG_DOUBLE = 9;
+    private static final byte TAG_STRING = 10;
+    private static final byte TAG_DATE = 11;
+    private static final byte TAG_BIGDECIMAL = 12;
+    private static final byte TAG_BIGINTEGER = 13;
+    private static final byte TAG_BYTES = 14;
+    private static final byte TAG_ID = 15;
+    private static final byte TAG_LONGID = 16;
+    private static final byte TAG_INTID = 17;
+    private static final byte TAG_STRINGID = 18;
+    private static final byte TAG_LIST = 19;
+    private static final byte TAG_MAP = 20;
+    private static final byte TAG_EMPTY_MAP = 21;
+    private static final byte TAG_ARRAY = 22;
+    private static final byte TAG_EMBEDDED = 23;
+    private static final byte TAG_SERIALIZED = 24;
+
+    private final long _exp;
+
+    private OffHeapPCData(Object oid, ClassMetaData meta, String name,
+        long exp) {
+        super(oid, meta, name);
+        _exp = exp;
+    }
+
+    @Override
+    public boolean isTimedOut() {
+        return _exp != -1 && _exp < System.currentTimeMillis();
+    }
+
+    @Override
+    public long getTimeOut() {
+        return _exp;
+    }
+
+    /**
+     * Encode the given data, which must be of the given type.
+     */
+    static byte[] encode(DataCachePCData data, ClassMetaData meta,
+        OffHeapDataCache cache) {
+        Encoder out = new Encoder(cache);
+        out.writeLong(data.getTimeOut());
+        out.writeValue(data.getId());
+        out.writeState(data, meta);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode data of the given type from the given bytes.
+     */
+    static OffHeapPCData decode(byte[] bytes, ClassMetaData meta,
+        OffHeapDataCache cache) {
+        Decoder in = new Decoder(bytes, cache);
+        long exp = in.readLong();
+        OffHeapPCData data = new OffHeapPCData(in.readValue(), meta,
+            cache.getName(), exp);
+        data.update(() -> in.readState(data, meta));
+        return data;
+    }
+
+    /**
+     * Writes values into a growable byte array.
+     */
+    private static class Encoder {
+
+        private final OffHeapDataCache _cache;
+        private byte[] _buf = new byte[128];
+        private int _pos = 0;
+
+        public Encoder(OffHeapDataCache cache) {
+            _cache = cache;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(_buf, _pos);
+        }
+
+        private void ensure(int len) {
+            if (_pos + len > _buf.length)
+                _buf = Arrays.copyOf(_buf, Math.max(_buf.length * 2,
+                    _pos + len));
+        }
+
+        public void writeByte(int b) {
+            ensure(1);
+            _buf[_pos++] = (byte) b;
+        }
+
+        public void writeBytes(byte[] b) {
+            writeVarInt(b.length);
+            ensure(b.length);
+            System.arraycopy(b, 0, _buf, _pos, b.length);
+            _pos += b.length;
+        }
+
+        public void writeVarInt(int v) {
+            writeVarLong(v & 0xFFFFFFFFL);
+        }
+
+        public void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                _buf[_pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            _buf[_pos++] = (byte) v;
+        }
+
+        public void writeFixed(long v, int len) {
+            ensure(len);
+            for (int i = 0; i < len; i++, v >>>= 8)
+                _buf[_pos++] = (byte) v;
+        }
+
+        /**
+         * Zig-zag encode so that small negative values stay small.
+         */
+        public void writeLong(long v) {
+            writeVarLong((v << 1) ^ (v >> 63));
+        }
+
+        public void writeString(String s) {
+            writeBytes(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public void writeClass(Class<?> cls) {
+            writeVarInt(_cache.classIndex(cls));
+        }
+
+        /**
+         * Write version, impl data and the loaded and intermediate field
+         * values of the given data.
+         */
+        public void writeState(PCData data, ClassMetaData meta) {
+            writeValue(data.getVersion());
+            writeValue(data.getImplData());
+
+            PCDataImpl impl = (data instanceof PCDataImpl)
+                ? (PCDataImpl) data : null;
+            int fields = meta.getFields().length;
+            int count = 0;
+            for (int i = 0; i < fields; i++)
+                if (state(data, impl, i) != 0)
+                    count++;
+            writeVarInt(count);
+
+            int state;
+            for (int i = 0; i < fields; i++) {
+                state = state(data, impl, i);
+                if (state == 0)
+                    continue;
+                writeVarInt(i);
+                writeByte(state);
+                if ((state & STATE_LOADED) != 0)
+                    writeValue(data.getData(i));
+                else
+                    writeValue(impl.getIntermediate(i));
+                if ((state & STATE_IMPL) != 0)
+                    writeValue(impl.getImplData(i));
+            }
+        }
+
+        private static int state(PCData data, PCDataImpl impl, int i) {
+            int state;
+            if (data.isLoaded(i))
+                state = STATE_LOADED;
+            else if (impl != null && impl.getIntermediate(i) != null)
+                state = STATE_INTERMEDIATE;
+            else
+                return 0;
+            if (impl != null && impl.getImplData(i) != null)
+                state |= STATE_IMPL;
+            return state;
+        }
+
+        public void writeValue(Object val) {
+            if (val == null) {
+                writeByte(TAG_NULL);
+                return;
+            }
+
+            Class<?> type = val.getClass();
+            if (type == String.class) {
+                writeByte(TAG_STRING);
+                writeString((String) val);
+            } else if (type == Long.class) {
+                writeByte(TAG_LONG);
+                writeLong((Long) val);
+            } else if (type == Integer.class) {
+                writeByte(TAG_INT);
+                writeLong((Integer) val);
+            } else if (type == Boolean.class)
+                writeByte((Boolean) val ? TAG_TRUE : TAG_FALSE);
+            else if (type == Short.class) {
+                writeByte(TAG_SHORT);
+                writeLong((Short) val);
+            } else if (type == Byte.class) {
+                writeByte(TAG_BYTE);
+                writeByte((Byte) val);
+            } else if (type == Character.class) {
+                writeByte(TAG_CHAR);
+                writeVarInt((Character) val);
+            } else if (type == Double.class) {
+                writeByte(TAG_DOUBLE);
+                writeFixed(Double.doubleToRawLongBits((Double) val), 8);
+            } else if (type == Float.class) {
+                writeByte(TAG_FLOAT);
+                writeFixed(Float.floatToRawIntBits((Float) val), 4);
+            } else if (type == Date.class) {
+                writeByte(TAG_DATE);
+                writeLong(((Date) val).getTime());
+            } else if (type == BigDecimal.class) {
+                writeByte(TAG_BIGDECIMAL);
+                BigDecimal dec = (BigDecimal) val;
+                writeBytes(dec.unscaledValue().toByteArray());
+                writeLong(dec.scale());
+            } else if (type == BigInteger.class) {
+                writeByte(TAG_BIGINTEGER);
+                writeBytes(((BigInteger) val).toByteArray());
+            } else if (type == byte[].class) {
+                writeByte(TAG_BYTES);
+                writeBytes((byte[]) val);
+            } else if (type == Id.class) {
+                writeByte(TAG_ID);
+                writeId((OpenJPAId) val);
+                writeLong(((Id) val).getId());
+            } else if (type == LongId.class) {
+                writeByte(TAG_LONGID);
+                writeId((OpenJPAId) val);
+                writeLong(((LongId) val).getId());
+            } else if (type == IntId.class) {
+                writeByte(TAG_INTID);
+                writeId((OpenJPAId) val);
+                writeLong(((IntId) val).getId());
+            } else if (type == StringId.class) {
+                writeByte(TAG_STRINGID);
+                writeId((OpenJPAId) val);
+                writeString(((StringId) val).getId());
+            } else if (type == ProxyDataList.class) {
+                ProxyDataList list = (ProxyDataList) val;
+                writeByte(TAG_LIST);
+                writeVarInt(list.nextSequence);
+                writeVarInt(list.size());
+                for (Object elem : list)
+                    writeValue(elem);
+            } else if (type == HashMap.class) {
+                Map<?, ?> map = (Map<?, ?>) val;
+                writeByte(TAG_MAP);
+                writeVarInt(map.size());
+                for (Map.Entry<?, ?> e : map.entrySet()) {
+                    writeValue(e.getKey());
+                    writeValue(e.getValue());
+                }
+            } else if (val == Collections.EMPTY_MAP)
+                writeByte(TAG_EMPTY_MAP);
+            else if (type == Object[].class) {
+                Object[] arr = (Object[]) val;
+                writeByte(TAG_ARRAY);
+                writeVarInt(arr.length);
+                for (Object elem : arr)
+                    writeValue(elem);
+            } else if (val instanceof PCDataImpl
+                && writeEmbedded((PCDataImpl) val))
+                return;
+            else {
+                writeByte(TAG_SERIALIZED);
+                writeBytes(serialize(val));
+            }
+        }
+
+        private void writeId(OpenJPAId oid) {
+            writeClass(oid.getType());
+            writeByte(oid.hasSubclasses() ? 1 : 0);
+        }
+
+        private boolean writeEmbedded(PCDataImpl data) {
+            ClassMetaData meta = _cache.getMetaData(data.getType());
+            if (meta == null)
+                return false;
+            writeByte(TAG_EMBEDDED);
+            writeClass(data.getType());
+            writeValue(data.getId());
+            writeState(data, meta);
+            return true;
+        }
+
+        private static byte[] serialize(Object val) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objs = new ObjectOutputStream(bytes)) {
+                objs.writeObject(val);
+            } catch (IOException ioe) {
+                throw new StoreException(ioe);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Reads values written by {@link Encoder}.
+     */
+    private static class Decoder {
+
+        private final OffHeapDataCache _cache;
+        private final byte[] _buf;
+        private int _pos = 0;
+
+        public Decoder(byte[] buf, OffHeapDataCache cache) {
+            _buf = buf;
+            _cache = cache;
+        }
+
+        public int readByte() {
+            return _buf[_pos++];
+        }
+
+        public byte[] readBytes() {
+            int len = readVarInt();
+            byte[] b = Arrays.copyOfRange(_buf, _pos, _pos + len);
+            _pos += len;
+            return b;
+        }
+
+        public int readVarInt() {
+            return (int) readVarLong();
+        }
+
+        public long readVarLong() {
+            long v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = _buf[_pos++];
+                v |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return v;
+        }
+
+        public long readFixed(int len) {
+            long v = 0;
+            for (int i = 0; i < len; i++)
+                v |= (_buf[_pos++] & 0xFFL) << (8 * i);
+            return v;
+        }
+
+        public long readLong() {
+            long v = readVarLong();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        public String readString() {
+            int len = readVarInt();
+            String s = new String(_buf, _pos, len, StandardCharsets.UTF_8);
+            _pos += len;
+            return s;
+        }
+
+        public Class<?> readClass() {
+            return _cache.indexClass(readVarInt());
+        }
+
+        public void readState(PCDataImpl data, ClassMetaData meta) {
+            data.setVersion(readValue());
+            data.setImplData(readValue());
+
+            int count = readVarInt();
+            int index;
+            int state;
+            for (int i = 0; i < count; i++) {
+                index = readVarInt();
+                state = readByte();
+                if ((state & STATE_LOADED) != 0)
+                    data.setData(index, readValue());
+                else
+                    data.setIntermediate(index, readValue());
+                if ((state & STATE_IMPL) != 0)
+                    data.setImplData(index, readValue());
+            }
+        }
+
+        public Object readValue() {
+            int tag = readByte();
+            Class<?> cls;
+            boolean subs;
+            switch (tag) {
+                case TAG_NULL:
+                    return null;
+                case TAG_TRUE:
+                    return Boolean.TRUE;
+                case TAG_FALSE:
+                    return Boolean.FALSE;
+                case TAG_BYTE:
+                    return (byte) readByte();
+                case TAG_SHORT:
+                    return (short) readLong();
+                case TAG_CHAR:
+                    return (char) readVarInt();
+                case TAG_INT:
+                    return (int) readLong();
+                case TAG_LONG:
+                    return readLong();
+                case TAG_FLOAT:
+                    return Float.intBitsToFloat((int) readFixed(4));
+                case TAG_DOUBLE:
+                    return Double.longBitsToDouble(readFixed(8));
+                case TAG_STRING:
+                    return readString();
+                case TAG_DATE:
+                    return new Date(readLong());
+                case TAG_BIGDECIMAL:
+                    BigInteger unscaled = new BigInteger(readBytes());
+                    return new BigDecimal(unscaled, (int) readLong());
+                case TAG_BIGINTEGER:
+                    return new BigInteger(readBytes());
+                case TAG_BYTES:
+                    return readBytes();
+                case TAG_ID:
+                    cls = readClass();
+                    subs = readByte() == 1;
+                    return new Id(cls, readLong(), subs);
+                case TAG_LONGID:
+                    cls = readClass();
+                    subs = readByte() == 1;
+                    return new LongId(cls, readLong(), subs);
+                case TAG_INTID:
+                    cls = readClass();
+                    subs = readByte() == 1;
+                    return new IntId(cls, (int) readLong(), subs);
+                case TAG_STRINGID:
+                    cls = readClass();
+                    subs = readByte() == 1;
+                    return new StringId(cls, readString(), subs);
+                case TAG_LIST:
+                    int seq = readVarInt();
+                    int size = readVarInt();
+                    if (size == 0 && seq == 0)
+                        return ProxyDataList.EMPTY_LIST;
+                    ProxyDataList list = new ProxyDataList(size);
+                    list.nextSequence = seq;
+                    for (int i = 0; i < size; i++)
+                        list.add(readValue());
+                    return list;
+                case TAG_MAP:
+                    int entries = readVarInt();
+                    Map<Object, Object> map = new HashMap<>(entries);
+                    Object key;
+                    for (int i = 0; i < entries; i++) {
+                        key = readValue();
+                        map.put(key, readValue());
+                    }
+                    return map;
+                case TAG_EMPTY_MAP:
+                    return Collections.EMPTY_MAP;
+                case TAG_ARRAY:
+                    Object[] arr = new Object[readVarInt()];
+                    for (int i = 0; i < arr.length; i++)
+                        arr[i] = readValue();
+                    return arr;
+                case TAG_EMBEDDED:
+                    cls = readClass();
+                    ClassMetaData meta = _cache.getMetaData(cls);
+                    DataCachePCDataImpl embed = new DataCachePCDataImpl
+                        (readValue(), meta, _cache.getName());
+                    readState(embed, meta);
+                    return embed;
+                case TAG_SERIALIZED:
+                    return Serialization.deserialize(readBytes(), null);
+                default:
+                    throw new InternalException(_loc.get("offheap-bad-tag",
+                        tag));
+            }
+        }
+    }
+}
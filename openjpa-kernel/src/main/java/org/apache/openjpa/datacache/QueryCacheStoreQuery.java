@@ -259,6 +259,11 @@ public class QueryCacheStoreQuery
         return _query.newCompilationKey();
     }
 
+    @Override
+    public Object newQueryKey() {
+        return _query.newQueryKey();
+    }
+
     @Override
     public Object newCompilation() {
         return _query.newCompilation();
@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.security.AccessController;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.openjpa.lib.util.J2DoPrivHelper;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.lib.util.MultiClassLoader;
+import org.apache.openjpa.util.BlacklistClassResolver;
+import org.apache.openjpa.util.Id;
+import org.apache.openjpa.util.IntId;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.OpenJPAId;
+import org.apache.openjpa.util.Serialization;
+import org.apache.openjpa.util.StringId;
+
+/**
+ * Compact binary {@link RemoteCommitEventCodec}. Each frame starts with a
+ * dictionary of the class names it refers to; type names and the types of
+ * OpenJPA identity objects are then written as dictionary indexes.
+ * Datastore and single-field identities are written as a tag byte, the
+ * type index and the key, with integral keys as zig-zag varints. Any other
+ * object id falls back to Java serialization.
+ *
+ * @since 4.1.2
+ */
+public class BinaryRemoteCommitEventCodec
+    implements RemoteCommitEventCodec {
+
+    private static final Localizer s_loc = Localizer.forPackage
+        (BinaryRemoteCommitEventCodec.class);
+
+    private static final int TAG_TYPE_NAME = 0;
+    private static final int TAG_ID = 1;
+    private static final int TAG_LONGID = 2;
+    private static final int TAG_INTID = 3;
+    private static final int TAG_STRINGID = 4;
+    private static final int TAG_SERIALIZED = 5;
+
+    @Override
+    public void encode(List<RemoteCommitEvent> events, DataOutput out)
+        throws IOException {
+        Map<String, Integer> dict = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+
+        writeVarInt(body, events.size());
+        int payload;
+        for (RemoteCommitEvent event : events) {
+            payload = event.getPayloadType();
+            writeVarInt(body, payload);
+            writeCollection(body, event.getPersistedTypeNames(), dict, names);
+            if (payload == RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS)
+                writeCollection(body, event.getPersistedObjectIds(), dict,
+                    names);
+            if (payload == RemoteCommitEvent.PAYLOAD_EXTENTS) {
+                writeCollection(body, event.getUpdatedTypeNames(), dict,
+                    names);
+                writeCollection(body, event.getDeletedTypeNames(), dict,
+                    names);
+            } else {
+                writeCollection(body, event.getUpdatedObjectIds(), dict,
+                    names);
+                writeCollection(body, event.getDeletedObjectIds(), dict,
+                    names);
+            }
+        }
+        body.flush();
+
+        writeVarInt(out, names.size());
+        for (String name : names)
+            out.writeUTF(name);
+        out.write(bytes.toByteArray());
+    }
+
+    @Override
+    public List<RemoteCommitEvent> decode(DataInput in)
+        throws IOException {
+        String[] names = new String[readVarInt(in)];
+        for (int i = 0; i < names.length; i++)
+            names[i] = in.readUTF();
+        Class<?>[] types = new Class<?>[names.length];
+
+        int count = readVarInt(in);
+        List<RemoteCommitEvent> events = new ArrayList<>(count);
+        int payload;
+        Collection addClasses;
+        Collection addIds;
+        Collection updates;
+        Collection deletes;
+        for (int i = 0; i < count; i++) {
+            payload = readVarInt(in);
+            addClasses = readCollection(in, names, types);
+            addIds = (payload == RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS)
+                ? readCollection(in, names, types) : null;
+            updates = readCollection(in, names, types);
+            deletes = readCollection(in, names, types);
+            events.add(new RemoteCommitEvent(payload, addIds, addClasses,
+                updates, deletes));
+        }
+        return events;
+    }
+
+    private static void writeCollection(DataOutput out, Collection c,
+        Map<String, Integer> dict, List<String> names)
+        throws IOException {
+        writeVarInt(out, c.size());
+        for (Object o : c)
+            writeItem(out, o, dict, names);
+    }
+
+    private static void writeItem(DataOutput out, Object o,
+        Map<String, Integer> dict, List<String> names)
+        throws IOException {
+        Class<?> type = o.getClass();
+        if (type == String.class) {
+            out.writeByte(TAG_TYPE_NAME);
+            writeVarInt(out, nameIndex((String) o, dict, names));
+        } else if (type == Id.class) {
+            out.writeByte(TAG_ID);
+            writeIdType(out, (OpenJPAId) o, dict, names);
+            writeVarLong(out, ((Id) o).getId());
+        } else if (type == LongId.class) {
+            out.writeByte(TAG_LONGID);
+            writeIdType(out, (OpenJPAId) o, dict, names);
+            writeVarLong(out, ((LongId) o).getId());
+        } else if (type == IntId.class) {
+            out.writeByte(TAG_INTID);
+            writeIdType(out, (OpenJPAId) o, dict, names);
+            writeVarLong(out, ((IntId) o).getId());
+        } else if (type == StringId.class) {
+            out.writeByte(TAG_STRINGID);
+            writeIdType(out, (OpenJPAId) o, dict, names);
+            out.writeUTF(((StringId) o).getId());
+        } else {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(o);
+            }
+            out.writeByte(TAG_SERIALIZED);
+            writeVarInt(out, bytes.size());
+            out.write(bytes.toByteArray());
+        }
+    }
+
+    private static void writeIdType(DataOutput out, OpenJPAId oid,
+        Map<String, Integer> dict, List<String> names)
+        throws IOException {
+        // low bit carries the subclasses flag
+        int idx = nameIndex(oid.getType().getName(), dict, names);
+        writeVarInt(out, (idx << 1) | (oid.hasSubclasses() ? 1 : 0));
+    }
+
+    private static int nameIndex(String name, Map<String, Integer> dict,
+        List<String> names) {
+        Integer idx = dict.get(name);
+        if (idx == null) {
+            idx = names.size();
+            names.add(name);
+            dict.put(name, idx);
+        }
+        return idx;
+    }
+
+    private Collection readCollection(DataInput in, String[] names,
+        Class<?>[] types)
+        throws IOException {
+        int size = readVarInt(in);
+        List<Object> c = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            c.add(readItem(in, names, types));
+        return c;
+    }
+
+    private Object readItem(DataInput in, String[] names, Class<?>[] types)
+        throws IOException {
+        int tag = in.readByte();
+        switch (tag) {
+            case TAG_TYPE_NAME:
+                return names[readVarInt(in)];
+            case TAG_SERIALIZED:
+                byte[] bytes = new byte[readVarInt(in)];
+                in.readFully(bytes);
+                return Serialization.deserialize(bytes, null);
+            default:
+                break;
+        }
+
+        int idx = readVarInt(in);
+        boolean subs = (idx & 1) == 1;
+        Class<?> type = resolve(idx >>> 1, names, types);
+        switch (tag) {
+            case TAG_ID:
+                return new Id(type, readVarLong(in), subs);
+            case TAG_LONGID:
+                return new LongId(type, readVarLong(in), subs);
+            case TAG_INTID:
+                return new IntId(type, (int) readVarLong(in), subs);
+            case TAG_STRINGID:
+                return new StringId(type, in.readUTF(), subs);
+            default:
+                throw new IOException(s_loc.get("tcp-bad-frame-tag",
+                    String.valueOf(tag)).getMessage());
+        }
+    }
+
+    /**
+     * Resolve the class with the given dictionary index, caching the result
+     * for the rest of the frame.
+     */
+    protected Class<?> resolve(int idx, String[] names, Class<?>[] types)
+        throws IOException {
+        if (types[idx] != null)
+            return types[idx];
+
+        String name = BlacklistClassResolver.DEFAULT.check(names[idx]);
+        MultiClassLoader loader = AccessController
+            .doPrivileged(J2DoPrivHelper.newMultiClassLoaderAction());
+        loader.addClassLoader(AccessController.doPrivileged(
+            J2DoPrivHelper.getContextClassLoaderAction()));
+        loader.addClassLoader(getClass().getClassLoader());
+        loader.addClassLoader(MultiClassLoader.SYSTEM_LOADER);
+        try {
+            types[idx] = Class.forName(name, true, loader);
+        } catch (ClassNotFoundException cnfe) {
+            throw new IOException(cnfe);
+        }
+        return types[idx];
+    }
+
+    private static void writeVarInt(DataOutput out, int v)
+        throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(DataInput in)
+        throws IOException {
+        int v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            v |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return v;
+    }
+
+    /**
+     * Zig-zag varint, so that small negative keys stay small.
+     */
+    private static void writeVarLong(DataOutput out, long v)
+        throws IOException {
+        v = (v << 1) ^ (v >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInput in)
+        throws IOException {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Encodes batches of {@link RemoteCommitEvent}s for transmission between
+ * remote commit providers. Implementations must be thread safe and must
+ * produce self-contained frames: a frame may be sent to any number of peers
+ * and must be decodable without knowledge of previously sent frames.
+ *
+ * @since 4.1.2
+ */
+public interface RemoteCommitEventCodec {
+
+    /**
+     * Encode the given events as a single frame.
+     */
+    void encode(List<RemoteCommitEvent> events, DataOutput out)
+        throws IOException;
+
+    /**
+     * Decode the events of a frame written by {@link #encode}.
+     */
+    List<RemoteCommitEvent> decode(DataInput in)
+        throws IOException;
+}
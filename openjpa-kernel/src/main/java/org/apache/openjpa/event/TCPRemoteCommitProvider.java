@@ -19,7 +19,10 @@
 package org.apache.openjpa.event;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -27,22 +30,32 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.pool2.BasePooledObjectFactory;
@@ -51,6 +64,7 @@ import org.apache.commons.pool2.impl.DefaultPooledObject;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.apache.openjpa.lib.conf.Configurable;
+import org.apache.openjpa.lib.conf.Configurations;
 import org.apache.openjpa.lib.log.Log;
 import org.apache.openjpa.lib.util.J2DoPrivHelper;
 import org.apache.openjpa.lib.util.Localizer;
@@ -58,6 +72,7 @@ import org.apache.openjpa.lib.util.StringUtil;
 import org.apache.openjpa.util.GeneralException;
 import org.apache.openjpa.util.InternalException;
 import org.apache.openjpa.util.Serialization;
+import org.apache.openjpa.util.UserException;
 
 
 /**
@@ -89,6 +104,11 @@ public class TCPRemoteCommitProvider
     private int _maxTotal = 2;
     private int _maxIdle = 2;
     private int _recoveryTimeMillis = 15000;
+    private int _maxEventsPerFrame = 256;
+    private RemoteCommitEventCodec _codec = null;
+    private boolean _nonBlocking = false;
+    private long _maxPendingBytes = 1024 * 1024;
+    private ChannelSender _sender;
     private TCPPortListener _listener;
     private final BroadcastQueue _broadcastQueue = new BroadcastQueue();
     private final List<BroadcastWorkerThread> _broadcastThreads = Collections.synchronizedList(new LinkedList<>());
@@ -186,6 +206,91 @@ public class TCPRemoteCommitProvider
         return _maxIdle;
     }
 
+    /**
+     * Set the codec used to encode commit events. Use <code>java</code> (the default) for Java serialization,
+     * <code>binary</code> for {@link BinaryRemoteCommitEventCodec}, or the name of a class implementing
+     * {@link RemoteCommitEventCodec}. All peers in the cluster must use the same codec.
+     *
+     * @param codec the codec alias or class name
+     */
+    public void setCodec(final String codec) {
+        if (StringUtil.isEmpty(codec) || "java".equals(codec)) {
+            _codec = null;
+        } else if ("binary".equals(codec)) {
+            _codec = new BinaryRemoteCommitEventCodec();
+        } else {
+            _codec = (RemoteCommitEventCodec) Configurations.newInstance(codec,
+                TCPRemoteCommitProvider.class.getClassLoader());
+        }
+    }
+
+    /**
+     * @return the codec used to encode commit events, or <code>null</code> when Java serialization is used.
+     */
+    public RemoteCommitEventCodec getCodecInstance() {
+        return _codec;
+    }
+
+    /**
+     * Set the maximum number of queued events that a worker thread coalesces into a single packet.
+     *
+     * @param max the maximum number of events per packet
+     */
+    public void setMaxEventsPerFrame(final int max) {
+        _maxEventsPerFrame = Math.max(1, max);
+    }
+
+    /**
+     * @return the maximum number of queued events that a worker thread coalesces into a single packet.
+     */
+    public int getMaxEventsPerFrame() {
+        return _maxEventsPerFrame;
+    }
+
+    /**
+     * Set the transport used to send and receive packets. <code>blocking</code> (the default) uses a pool of
+     * sockets per peer and a receiver thread per connection. <code>nio</code> uses one non-blocking channel per
+     * peer, driven by a single sender thread, and reads all inbound connections from the listener thread. The
+     * <code>nio</code> transport requires a codec and uses the <code>binary</code> codec if none is set.
+     *
+     * @param transport <code>blocking</code> or <code>nio</code>
+     */
+    public void setTransport(final String transport) {
+        if (StringUtil.isEmpty(transport) || "blocking".equals(transport)) {
+            _nonBlocking = false;
+        } else if ("nio".equals(transport)) {
+            _nonBlocking = true;
+        } else {
+            throw new UserException(s_loc.get("tcp-bad-transport", transport));
+        }
+    }
+
+    /**
+     * @return the transport used to send and receive packets.
+     */
+    public String getTransport() {
+        return _nonBlocking ? "nio" : "blocking";
+    }
+
+    /**
+     * Set the number of bytes that may be waiting to be written to a single peer with the <code>nio</code>
+     * transport. Broadcasts wait while a peer's backlog is full; a peer whose backlog does not drain within the
+     * recovery time is treated as unreachable.
+     *
+     * @param maxPendingBytes the maximum backlog per peer, in bytes
+     */
+    public void setMaxPendingBytes(final long maxPendingBytes) {
+        _maxPendingBytes = maxPendingBytes;
+    }
+
+    /**
+     * @return the number of bytes that may be waiting to be written to a single peer with the <code>nio</code>
+     * transport.
+     */
+    public long getMaxPendingBytes() {
+        return _maxPendingBytes;
+    }
+
     /**
      * Set the number of worker threads that are used for transmitting packets to peers in the cluster.
      * 
@@ -291,13 +396,27 @@ public class TCPRemoteCommitProvider
     @Override
     public void endConfiguration() {
         super.endConfiguration();
+        if (_nonBlocking) {
+            // non-blocking receivers rely on the length prefix of codec frames
+            if (_codec == null) {
+                _codec = new BinaryRemoteCommitEventCodec();
+            }
+            try {
+                _sender = new ChannelSender();
+            } catch (IOException ioe) {
+                throw new GeneralException(s_loc.get("tcp-init-exception", String.valueOf(_port)), ioe).
+                        setFatal(true);
+            }
+            _sender.start();
+        }
+
         synchronized (s_portListenerMap) {
             // see if a listener exists for this port.
             _listener = s_portListenerMap.get(String.valueOf(_port));
 
             if (_listener == null || (!_listener.isRunning() && _listener._port == _port)) {
                 try {
-                    _listener = new TCPPortListener(_port, log);
+                    _listener = new TCPPortListener(_port, log, _sender != null);
                     _listener.listen();
                     s_portListenerMap.put(String.valueOf(_port), _listener);
                 } catch (Exception e) {
@@ -333,30 +452,62 @@ public class TCPRemoteCommitProvider
     // 3.4 			= 0x1428acff;
     private static final long PROTOCOL_VERSION = 0x1428acff;
 
+    // marks packets written by a RemoteCommitEventCodec; must not start
+    // with the 0xaced magic of Java serialization streams
+    private static final int FRAME_MAGIC = 0x4f4a5043;
+
     @Override
     public void broadcast(final RemoteCommitEvent event) {
-        // build a packet notifying other JVMs of object changes.
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ObjectOutputStream oos = new ObjectOutputStream(baos)) {
-
-            oos.writeLong(PROTOCOL_VERSION);
-            oos.writeLong(_id);
-            oos.writeInt(_port);
-            oos.writeObject(_localhost);
-            oos.writeObject(event);
-            oos.flush();
-
-            byte[] bytes = baos.toByteArray();
-            baos.close();
-            if (_broadcastThreads.isEmpty()) {
+        if (_broadcastThreads.isEmpty()) {
+            byte[] bytes = createPacket(Collections.singletonList(event));
+            if (bytes != null) {
                 sendUpdatePacket(bytes);
+            }
+        } else {
+            _broadcastQueue.addEvent(event);
+        }
+    }
+
+    /**
+     * Build a packet notifying other JVMs of the given object changes. With the default Java serialization the
+     * packet is a sequence of serialized events; with a codec it is a single frame holding all events.
+     *
+     * @return the packet, or <code>null</code> if it could not be created
+     */
+    private byte[] createPacket(final List<RemoteCommitEvent> events) {
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            if (_codec == null) {
+                for (RemoteCommitEvent event : events) {
+                    ObjectOutputStream oos = new ObjectOutputStream(baos);
+                    oos.writeLong(PROTOCOL_VERSION);
+                    oos.writeLong(_id);
+                    oos.writeInt(_port);
+                    oos.writeObject(_localhost);
+                    oos.writeObject(event);
+                    oos.flush();
+                }
             } else {
-                _broadcastQueue.addPacket(bytes);
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                DataOutputStream bodyOut = new DataOutputStream(body);
+                _codec.encode(events, bodyOut);
+                bodyOut.flush();
+
+                DataOutputStream out = new DataOutputStream(baos);
+                out.writeInt(FRAME_MAGIC);
+                out.writeLong(_id);
+                out.writeInt(_port);
+                out.writeByte(_localhost.length);
+                out.write(_localhost);
+                out.writeInt(body.size());
+                body.writeTo(out);
+                out.flush();
             }
+            return baos.toByteArray();
         } catch (IOException ioe) {
             if (log.isWarnEnabled()) {
                 log.warn(s_loc.get("tcp-payload-create-error"), ioe);
             }
+            return null;
         }
     }
 
@@ -365,6 +516,11 @@ public class TCPRemoteCommitProvider
      * provider cluster.
      */
     private void sendUpdatePacket(final byte[] bytes) {
+        if (_sender != null) {
+            sendUpdateBuffer(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+            return;
+        }
+
         _addressesLock.lock();
         try {
             _addresses.forEach(address -> address.sendUpdatePacket(bytes));
@@ -373,6 +529,22 @@ public class TCPRemoteCommitProvider
         }
     }
 
+    /**
+     * Queue a packet for every peer of the non-blocking transport. Each peer gets its own view of the shared
+     * buffer, so the packet is never copied.
+     */
+    private void sendUpdateBuffer(final ByteBuffer buf) {
+        // don't hold the lock while waiting on a slow peer
+        List<HostAddress> addresses;
+        _addressesLock.lock();
+        try {
+            addresses = new ArrayList<>(_addresses);
+        } finally {
+            _addressesLock.unlock();
+        }
+        addresses.forEach(address -> address.enqueue(buf.duplicate()));
+    }
+
     @Override
     public void close() {
         if (_listener != null) {
@@ -397,16 +569,21 @@ public class TCPRemoteCommitProvider
         } finally {
             _addressesLock.unlock();
         }
+
+        if (_sender != null) {
+            _sender.shutdown();
+        }
     }
 
     /**
-     * Utility class to hold messages to be sent. This
+     * Utility class to hold events to be sent. This
      * allows calls to broadcast () to return without
-     * waiting for the send to complete.
+     * waiting for the send to complete, and lets events that
+     * accumulate while a send is in progress share one packet.
      */
     private static class BroadcastQueue {
 
-        private final LinkedList<byte[]> _packetQueue = new LinkedList<>();
+        private final LinkedList<RemoteCommitEvent> _eventQueue = new LinkedList<>();
         private boolean _closed = false;
 
         public synchronized void close() {
@@ -418,27 +595,30 @@ public class TCPRemoteCommitProvider
             return _closed;
         }
 
-        public synchronized void addPacket(final byte[] bytes) {
-            _packetQueue.addLast(bytes);
+        public synchronized void addEvent(final RemoteCommitEvent event) {
+            _eventQueue.addLast(event);
             notify();
         }
 
         /**
-         * @return the bytes defining the packet to process, or
+         * @return up to <code>max</code> events to process, oldest first, or
          * <code>null</code> if the queue is empty.
          */
-        public synchronized byte[] removePacket() throws InterruptedException {
+        public synchronized List<RemoteCommitEvent> removeEvents(final int max) throws InterruptedException {
             // only wait if the queue is still open. This allows processing
             // of events in the queue to continue, while avoiding sleeping
             // during shutdown.
-            while (!_closed && _packetQueue.isEmpty()) {
+            while (!_closed && _eventQueue.isEmpty()) {
                 wait();
             }
-            if (_packetQueue.isEmpty()) {
+            if (_eventQueue.isEmpty()) {
                 return null;
-            } else {
-                return _packetQueue.removeFirst();
             }
+            List<RemoteCommitEvent> events = new ArrayList<>(Math.min(max, _eventQueue.size()));
+            while (events.size() < max && !_eventQueue.isEmpty()) {
+                events.add(_eventQueue.removeFirst());
+            }
+            return events;
         }
     }
 
@@ -454,11 +634,14 @@ public class TCPRemoteCommitProvider
         public void run() {
             while (_keepRunning) {
                 try {
-                    // This will block until there is a packet to send, or
+                    // This will block until there are events to send, or
                     // until the queue is closed.
-                    byte[] bytes = _broadcastQueue.removePacket();
-                    if (bytes != null) {
-                        sendUpdatePacket(bytes);
+                    List<RemoteCommitEvent> events = _broadcastQueue.removeEvents(_maxEventsPerFrame);
+                    if (events != null) {
+                        byte[] bytes = createPacket(events);
+                        if (bytes != null) {
+                            sendUpdatePacket(bytes);
+                        }
                     } else if (_broadcastQueue.isClosed()) {
                         _keepRunning = false;
                     }
@@ -479,6 +662,74 @@ public class TCPRemoteCommitProvider
         }
     }
 
+    /**
+     * Thread that writes queued packets to the channels of all peers of the
+     * non-blocking transport.
+     */
+    private class ChannelSender
+        extends Thread {
+
+        private final Selector _selector;
+        private final Queue<HostAddress> _ready = new ConcurrentLinkedQueue<>();
+        private volatile boolean _keepRunning = true;
+
+        private ChannelSender() throws IOException {
+            _selector = Selector.open();
+            setDaemon(true);
+        }
+
+        /**
+         * Notify this thread that the given peer has packets to write.
+         */
+        private void ready(final HostAddress address) {
+            _ready.add(address);
+            _selector.wakeup();
+        }
+
+        private void shutdown() {
+            _keepRunning = false;
+            _selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (_keepRunning) {
+                    HostAddress address;
+                    while ((address = _ready.poll()) != null) {
+                        address.register(_selector);
+                    }
+
+                    _selector.select();
+                    Iterator<SelectionKey> itr = _selector.selectedKeys().iterator();
+                    while (itr.hasNext()) {
+                        SelectionKey key = itr.next();
+                        itr.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        address = (HostAddress) key.attachment();
+                        if (key.isConnectable()) {
+                            address.connect(key);
+                        } else if (key.isWritable()) {
+                            address.write(key);
+                        }
+                    }
+                }
+            } catch (IOException ioe) {
+                if (log.isWarnEnabled()) {
+                    log.warn(s_loc.get("tcp-close-error"), ioe);
+                }
+            } finally {
+                try {
+                    _selector.close();
+                } catch (IOException ioe) {
+                    // ignore
+                }
+            }
+        }
+    }
+
     /**
      * Responsible for listening for incoming packets and processing them.
      */
@@ -486,6 +737,7 @@ public class TCPRemoteCommitProvider
 
         private final Log _log;
         private ServerSocket _receiveSocket;
+        private ServerSocketChannel _receiveChannel;
         private Thread _acceptThread;
         private Set<Thread> _receiverThreads = new HashSet<>();
         private final Set<TCPRemoteCommitProvider> _providers = new HashSet<>();
@@ -507,15 +759,23 @@ public class TCPRemoteCommitProvider
         private boolean _isRunning = false;
 
         /**
-         * Construct a new TCPPortListener configured to use the specified port.
+         * Construct a new TCPPortListener configured to use the specified port. A non-blocking listener
+         * reads all connections from a single thread and only accepts codec frames.
          */
-        private TCPPortListener(final int port, final Log log) throws IOException {
+        private TCPPortListener(final int port, final Log log, final boolean nonBlocking) throws IOException {
             _port = port;
             _log = log;
-            try {
-                _receiveSocket = AccessController.doPrivileged(J2DoPrivHelper.newServerSocketAction(_port));
-            } catch (PrivilegedActionException pae) {
-                throw (IOException) pae.getException();
+            if (nonBlocking) {
+                _receiveChannel = ServerSocketChannel.open();
+                _receiveChannel.bind(new InetSocketAddress(_port));
+                // closing the socket closes the channel
+                _receiveSocket = _receiveChannel.socket();
+            } else {
+                try {
+                    _receiveSocket = AccessController.doPrivileged(J2DoPrivHelper.newServerSocketAction(_port));
+                } catch (PrivilegedActionException pae) {
+                    throw (IOException) pae.getException();
+                }
             }
             _localhost = InetAddress.getLocalHost().getAddress();
 
@@ -576,6 +836,33 @@ public class TCPRemoteCommitProvider
                 _isRunning = true;
             }
 
+            if (_receiveChannel != null) {
+                receiveChannels();
+            } else {
+                acceptSockets();
+            }
+
+            synchronized (_providers) {
+                try {
+                    if (_isRunning) {
+                        _receiveSocket.close();
+                    }
+                } catch (Exception e) {
+                    if (_log.isWarnEnabled()) {
+                        _log.warn(s_loc.get("tcp-close-error"), e);
+                    }
+                }
+                _isRunning = false;
+                if (_log.isTraceEnabled()) {
+                    _log.trace(s_loc.get("tcp-close-listener", _port + ""));
+                }
+            }
+        }
+
+        /**
+         * Accept connections, handing each to its own receiver thread.
+         */
+        private void acceptSockets() {
             Socket s = null;
             while (_isRunning) {
                 try {
@@ -617,20 +904,186 @@ public class TCPRemoteCommitProvider
 
             // We are done listening. Interrupt any worker threads.
             _receiverThreads.forEach(Thread::interrupt);
+        }
+
+        /**
+         * Accept connections and read frames from all of them on this thread.
+         */
+        private void receiveChannels() {
+            try (Selector selector = Selector.open()) {
+                _receiveChannel.configureBlocking(false);
+                _receiveChannel.register(selector, SelectionKey.OP_ACCEPT);
+                while (_isRunning) {
+                    // interrupted by removeProvider
+                    selector.select();
+                    Iterator<SelectionKey> itr = selector.selectedKeys().iterator();
+                    while (itr.hasNext()) {
+                        SelectionKey key = itr.next();
+                        itr.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            SocketChannel channel = _receiveChannel.accept();
+                            if (channel == null) {
+                                continue;
+                            }
+                            channel.configureBlocking(false);
+                            FrameReader reader = new FrameReader(channel);
+                            channel.register(selector, SelectionKey.OP_READ, reader);
+                            if (_log.isTraceEnabled()) {
+                                _log.trace(s_loc.get("tcp-received-connection", reader._source));
+                            }
+                        } else if (key.isReadable()) {
+                            ((FrameReader) key.attachment()).read(key);
+                        }
+                    }
+                }
+
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+            } catch (Exception e) {
+                if (_isRunning && _log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-accept-error"), e);
+                }
+            }
+        }
 
+        /**
+         * Process a frame of events written by a {@link RemoteCommitEventCodec}.
+         */
+        private void handleFrame(final InputStream in, final String source) throws IOException {
+            DataInputStream din = new DataInputStream(in);
+            if (din.readInt() != FRAME_MAGIC) {
+                // we cannot find the start of the next packet; give up on this connection
+                throw new IOException(s_loc.get("tcp-wrong-version-error", source).getMessage());
+            }
+
+            long senderId = din.readLong();
+            int senderPort = din.readInt();
+            byte[] senderAddress = new byte[din.readUnsignedByte()];
+            din.readFully(senderAddress);
+            byte[] body = new byte[din.readInt()];
+            din.readFully(body);
+
+            RemoteCommitEventCodec codec = null;
+            synchronized (_providers) {
+                for (TCPRemoteCommitProvider provider : _providers) {
+                    if (provider._codec != null) {
+                        codec = provider._codec;
+                        break;
+                    }
+                }
+            }
+            if (codec == null) {
+                codec = new BinaryRemoteCommitEventCodec();
+            }
+            List<RemoteCommitEvent> events = codec.decode(new DataInputStream(new ByteArrayInputStream(body)));
+            fireEvents(source, senderId, senderPort, senderAddress, events);
+        }
+
+        private void fireEvents(final String source, final long senderId, final int senderPort,
+            final byte[] senderAddress, final List<RemoteCommitEvent> events) {
+            if (_log.isTraceEnabled()) {
+                _log.trace(s_loc.get("tcp-received-event", source));
+            }
+
+            boolean fromSelf = senderPort == _port && Arrays.equals(senderAddress, _localhost);
             synchronized (_providers) {
+                // bleair: We're iterating, but currenlty there can really
+                // only be a single provider.
+                _providers.stream().filter(provider -> senderId != provider._id || !fromSelf).
+                        forEach(provider -> events.forEach(provider.eventManager::fireEvent));
+            }
+        }
+
+        /**
+         * Accumulates the bytes read from a non-blocking connection and
+         * processes each frame once it is complete.
+         */
+        private final class FrameReader {
+
+            // magic, sender id, sender port and address length
+            private static final int HEADER_LENGTH = 17;
+
+            private final SocketChannel _channel;
+            private final String _source;
+            private ByteBuffer _buf = ByteBuffer.allocate(8 * 1024);
+
+            private FrameReader(final SocketChannel channel) throws IOException {
+                _channel = channel;
+                _channel.socket().setTcpNoDelay(true);
+                _source = _channel.socket().getInetAddress().getHostAddress() + ":" + _channel.socket().getPort();
+            }
+
+            private void read(final SelectionKey key) {
                 try {
-                    if (_isRunning) {
-                        _receiveSocket.close();
+                    if (_channel.read(_buf) == -1) {
+                        if (_log.isTraceEnabled()) {
+                            _log.trace(s_loc.get("tcp-close-socket", _source));
+                        }
+                        close(key);
+                        return;
                     }
-                } catch (Exception e) {
+                    _buf.flip();
+                    while (processFrame()) {
+                        // keep going while complete frames are buffered
+                    }
+                    _buf.compact();
+                } catch (Throwable e) {
                     if (_log.isWarnEnabled()) {
-                        _log.warn(s_loc.get("tcp-close-error"), e);
+                        _log.warn(s_loc.get("tcp-receive-error"), e);
                     }
+                    close(key);
                 }
-                _isRunning = false;
-                if (_log.isTraceEnabled()) {
-                    _log.trace(s_loc.get("tcp-close-listener", _port + ""));
+            }
+
+            /**
+             * Process the frame at the buffer position if it is complete.
+             *
+             * @return whether a frame was processed
+             */
+            private boolean processFrame() throws IOException {
+                int pos = _buf.position();
+                if (_buf.remaining() < HEADER_LENGTH) {
+                    return false;
+                }
+                if (_buf.getInt(pos) != FRAME_MAGIC) {
+                    throw new IOException(s_loc.get("tcp-wrong-version-error", _source).getMessage());
+                }
+                int bodyPos = pos + HEADER_LENGTH + (_buf.get(pos + HEADER_LENGTH - 1) & 0xff) + 4;
+                if (_buf.limit() < bodyPos) {
+                    return false;
+                }
+                int bodyLength = _buf.getInt(bodyPos - 4);
+                if (bodyLength < 0) {
+                    throw new IOException(s_loc.get("tcp-wrong-version-error", _source).getMessage());
+                }
+
+                int length = bodyPos - pos + bodyLength;
+                if (_buf.remaining() < length) {
+                    if (length > _buf.capacity()) {
+                        ByteBuffer grown = ByteBuffer.allocate(Math.max(length, _buf.capacity() * 2));
+                        grown.put(_buf);
+                        grown.flip();
+                        _buf = grown;
+                    }
+                    return false;
+                }
+
+                byte[] frame = new byte[length];
+                _buf.get(frame);
+                handleFrame(new ByteArrayInputStream(frame), _source);
+                return true;
+            }
+
+            private void close(final SelectionKey key) {
+                key.cancel();
+                try {
+                    _channel.close();
+                } catch (IOException e) {
+                    _log.warn(s_loc.get("tcp-close-socket-error", _source), e);
                 }
             }
         }
@@ -708,7 +1161,27 @@ public class TCPRemoteCommitProvider
              * by {@link TCPRemoteCommitProvider#broadcast(RemoteCommitEvent)}.
              */
             private void handle(final InputStream in) throws IOException, ClassNotFoundException {
-                // This will block waiting for the next
+                // This will block waiting for the next packet. Java
+                // serialization streams start with 0xaced; anything else
+                // is a codec frame
+                in.mark(2);
+                int b0 = in.read();
+                int b1 = in.read();
+                if (b1 == -1) {
+                    throw new EOFException();
+                }
+                in.reset();
+                if (b0 == 0xac && b1 == 0xed) {
+                    handleSerialized(in);
+                } else {
+                    handleFrame(in, _s.getInetAddress().getHostAddress() + ":" + _s.getPort());
+                }
+            }
+
+            /**
+             * Process a single event written with Java serialization.
+             */
+            private void handleSerialized(final InputStream in) throws IOException, ClassNotFoundException {
                 ObjectInputStream ois = new Serialization.ClassResolvingObjectInputStream(in);
 
                 long protocolVersion = ois.readLong();
@@ -724,19 +1197,8 @@ public class TCPRemoteCommitProvider
                 int senderPort = ois.readInt();
                 byte[] senderAddress = (byte[]) ois.readObject();
                 RemoteCommitEvent rce = (RemoteCommitEvent) ois.readObject();
-                if (_log.isTraceEnabled()) {
-                    _log.trace(s_loc.get("tcp-received-event",
-                        _s.getInetAddress().getHostAddress() + ":"
-                            + _s.getPort()));
-                }
-
-                boolean fromSelf = senderPort == _port && Arrays.equals(senderAddress, _localhost);
-                synchronized (_providers) {
-                    // bleair: We're iterating, but currenlty there can really
-                    // only be a single provider.
-                    _providers.stream().filter(provider -> senderId != provider._id || !fromSelf).
-                            forEach(provider -> provider.eventManager.fireEvent(rce));
-                }
+                fireEvents(_s.getInetAddress().getHostAddress() + ":" + _s.getPort(),
+                    senderId, senderPort, senderAddress, Collections.singletonList(rce));
             }
         }
     }
@@ -756,6 +1218,12 @@ public class TCPRemoteCommitProvider
 
         protected final GenericObjectPool<Socket> _socketPool; // reusable open sockets
 
+        // non-blocking transport state; guarded by this
+        private SocketChannel _channel;
+        private final ArrayDeque<ByteBuffer> _pending = new ArrayDeque<>();
+        private long _pendingBytes;
+        private boolean _closed;
+
         /**
          * Construct a new host address from a string of the form "host:port" or of the form "host".
          * @param host host name
@@ -800,6 +1268,11 @@ public class TCPRemoteCommitProvider
         }
 
         public void close() {
+            synchronized (this) {
+                _closed = true;
+                closeChannel();
+            }
+
             // Close the pool of sockets to this peer. This
             // will close all sockets in the pool.
             try {
@@ -843,33 +1316,177 @@ public class TCPRemoteCommitProvider
                     this.closeSocket(s);
                 }
                 this.clearAllSockets();
+                sendFailed(e);
+            }
+        }
+
+        /**
+         * Record a failure to send to this peer.
+         */
+        protected void sendFailed(final Exception e) {
+            if (_isAvailable) {
+                // Log a warning, the peer was up and has now gone down
+                if (log.isWarnEnabled()) {
+                    log.warn(s_loc.get("tcp-send-error", _address.getHostAddress() + ":" + _port), e);
+                }
+                _isAvailable = false;
+                // Once enough time has passed we will log another warning
+                _timeLastError = System.currentTimeMillis();
+            } else {
+                long now = System.currentTimeMillis();
+                if (now - _timeLastError > _recoveryTimeMillis) {
+                    if (_infosIssued < 5) {
+                        // Enough time has passed, and peer is still down
+                        _timeLastError = System.currentTimeMillis();
+                        // We were trying to reestablish the connection,
+                        // but we failed again. Log a message, but
+                        // lower severity. This log will occur periodically
+                        // for 5 times until the peer comes back.
+                        if (log.isInfoEnabled()) {
+                            log.info(s_loc.get("tcp-send-still-error", _address.getHostAddress() + ":" + _port), e);
+                        }
+                        _infosIssued++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Queue a packet for the non-blocking transport, waiting while the
+         * backlog to this peer is full.
+         */
+        protected void enqueue(final ByteBuffer buf) {
+            if (!_isAvailable) {
+                long now = System.currentTimeMillis();
+                if (now - _timeLastError < _recoveryTimeMillis) {
+                    // Not enough time has passed since the last error
+                    return;
+                }
+            }
 
-                if (_isAvailable) {
-                    // Log a warning, the peer was up and has now gone down
-                    if (log.isWarnEnabled()) {
-                        log.warn(s_loc.get("tcp-send-error", _address.getHostAddress() + ":" + _port), e);
+            synchronized (this) {
+                // always accept a packet into an empty backlog, however large
+                long deadline = System.currentTimeMillis() + _recoveryTimeMillis;
+                while (!_closed && _pendingBytes > 0 && _pendingBytes + buf.remaining() > _maxPendingBytes) {
+                    long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        channelFailed(new IOException(s_loc.get("tcp-send-backlog",
+                            _address.getHostAddress() + ":" + _port, String.valueOf(_pendingBytes)).getMessage()));
+                        return;
                     }
-                    _isAvailable = false;
-                    // Once enough time has passed we will log another warning
-                    _timeLastError = System.currentTimeMillis();
+                    try {
+                        wait(wait);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (_closed) {
+                    return;
+                }
+                _pending.addLast(buf);
+                _pendingBytes += buf.remaining();
+            }
+            _sender.ready(this);
+        }
+
+        /**
+         * Register interest in writing the queued packets, opening a channel
+         * if needed. Invoked by the sender thread.
+         */
+        synchronized void register(final Selector selector) {
+            if (_closed || _pending.isEmpty()) {
+                return;
+            }
+            try {
+                if (_channel == null) {
+                    _channel = SocketChannel.open();
+                    _channel.configureBlocking(false);
+                    _channel.socket().setTcpNoDelay(true);
+                    int ops = _channel.connect(new InetSocketAddress(_address, _port))
+                        ? SelectionKey.OP_WRITE : SelectionKey.OP_CONNECT;
+                    _channel.register(selector, ops, this);
                 } else {
-                    long now = System.currentTimeMillis();
-                    if (now - _timeLastError > _recoveryTimeMillis) {
-                        if (_infosIssued < 5) {
-                            // Enough time has passed, and peer is still down
-                            _timeLastError = System.currentTimeMillis();
-                            // We were trying to reestablish the connection,
-                            // but we failed again. Log a message, but
-                            // lower severity. This log will occur periodically
-                            // for 5 times until the peer comes back.
-                            if (log.isInfoEnabled()) {
-                                log.info(s_loc.get("tcp-send-still-error", _address.getHostAddress() + ":" + _port), e);
-                            }
-                            _infosIssued++;
-                        }
+                    SelectionKey key = _channel.keyFor(selector);
+                    if (key != null && key.isValid() && key.interestOps() == 0) {
+                        key.interestOps(SelectionKey.OP_WRITE);
+                    }
+                }
+            } catch (IOException ioe) {
+                channelFailed(ioe);
+            }
+        }
+
+        /**
+         * Complete a pending connection. Invoked by the sender thread.
+         */
+        synchronized void connect(final SelectionKey key) {
+            try {
+                if (_channel != null && _channel.finishConnect()) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    if (log.isTraceEnabled()) {
+                        log.trace(s_loc.get("tcp-open-connection", _address + ":" + _port,
+                            "" + _channel.socket().getLocalPort()));
+                    }
+                }
+            } catch (IOException ioe) {
+                channelFailed(ioe);
+            }
+        }
+
+        /**
+         * Write as much of the queued packets as the channel accepts without
+         * blocking. Invoked by the sender thread.
+         */
+        synchronized void write(final SelectionKey key) {
+            if (_channel == null) {
+                return;
+            }
+            try {
+                _pendingBytes -= _channel.write(_pending.toArray(new ByteBuffer[_pending.size()]));
+                while (!_pending.isEmpty() && !_pending.peekFirst().hasRemaining()) {
+                    _pending.removeFirst();
+                }
+                if (_pending.isEmpty()) {
+                    key.interestOps(0);
+                    if (log.isTraceEnabled()) {
+                        log.trace(s_loc.get("tcp-sent-update", _address.getHostAddress() + ":" + _port,
+                            String.valueOf(_channel.socket().getLocalPort())));
                     }
                 }
+                _isAvailable = true;
+                _infosIssued = 0;
+                notifyAll();
+            } catch (IOException ioe) {
+                channelFailed(ioe);
+            }
+        }
+
+        /**
+         * Drop the channel and backlog of the non-blocking transport after
+         * an error. Must hold the lock on this address.
+         */
+        private void channelFailed(final Exception e) {
+            closeChannel();
+            sendFailed(e);
+        }
+
+        /**
+         * Close the channel of the non-blocking transport, discarding any
+         * backlog. Must hold the lock on this address.
+         */
+        private void closeChannel() {
+            if (_channel != null) {
+                try {
+                    _channel.close();
+                } catch (IOException ioe) {
+                    log.warn(s_loc.get("tcp-close-socket-error", _address.getHostAddress() + ":" + _port), ioe);
+                }
+                _channel = null;
             }
+            _pending.clear();
+            _pendingBytes = 0;
+            notifyAll();
         }
 
         protected Socket getSocket() throws Exception {
@@ -409,7 +409,7 @@ public abstract class AbstractPCData
     /**
      * Tracks proxy data along with list elements.
      */
-    private static class ProxyDataList
+    protected static class ProxyDataList
         extends ArrayList {
 
         
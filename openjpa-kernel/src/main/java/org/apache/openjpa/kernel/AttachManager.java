@@ -62,6 +62,11 @@ public class AttachManager {
     private final IdentityHashMap _attached = new IdentityHashMap();
     private final Collection<StateManagerImpl> _visitedNodes = new ArrayList();
 
+    // instances of a bulk attach that were looked up in the store to tell
+    // whether they are detached, and found to have no record
+    private final Set<Object> _absent =
+        Collections.newSetFromMap(new IdentityHashMap<>());
+
     // reusable strategies
     private AttachStrategy _version;
     private AttachStrategy _detach;
@@ -119,6 +124,10 @@ public class AttachManager {
 
     /**
      * Return attached versions of the given instances.
+     * <p>
+     * The managed versions of the detached instances are loaded up front
+     * with as few selects as the store allows, so that each attach, and
+     * the comparison of its version, finds them in the context.
      */
     public Object[] attachAll(Collection instances) {
         Object[] attached = new Object[instances.size()];
@@ -127,6 +136,7 @@ public class AttachManager {
         boolean opt = true;
         boolean failFast = false;
         try {
+            loadAll(instances);
             int i = 0;
             for (Iterator itr = instances.iterator(); itr.hasNext(); i++) {
                 try {
@@ -154,11 +164,70 @@ public class AttachManager {
                 || exceps.size() < instances.size()))
                 exceps = invokeAfterAttach(exceps);
             _attached.clear();
+            _absent.clear();
         }
         throwExceptions(exceps, failed, opt);
         return attached;
     }
 
+    /**
+     * Find the managed versions of the given instances that may be detached
+     * in one call, so that the store can load them together rather than
+     * one at a time as each is attached. Instances that are new are
+     * skipped, and instances that may be new are looked up as well; those
+     * that turn out to have no store record are remembered so that they
+     * are not looked up again. If the lookup fails, the instances are left
+     * to be looked up one at a time.
+     */
+    private void loadAll(Collection instances) {
+        if (instances.size() < 2)
+            return;
+
+        List<Object> oids = new ArrayList<>(instances.size());
+        List<Object> unknown = new ArrayList<>(instances.size());
+        PersistenceCapable pc;
+        Boolean detached;
+        Object oid;
+        for (Object obj : instances) {
+            if (!ImplHelper.isManageable(obj))
+                continue;
+            pc = ImplHelper.toPersistenceCapable(obj,
+                _broker.getConfiguration());
+            if (pc.pcGetGenericContext() != null)
+                continue;
+            detached = pc.pcIsDetached();
+            if (Boolean.FALSE.equals(detached))
+                continue;
+
+            try {
+                oid = getDetachedObjectId(obj);
+            } catch (RuntimeException re) {
+                // left to the attach of the instance to report
+                continue;
+            }
+            if (oid == null)
+                continue;
+            oids.add(oid);
+            unknown.add((detached == null) ? obj : null);
+        }
+        if (oids.size() < 2)
+            return;
+
+        Object[] found;
+        try {
+            found = _broker.findAll(oids, true, null);
+        } catch (RuntimeException re) {
+            // the prefetch is only an optimization; each instance is looked
+            // up and any failure reported as it is attached
+            _absent.clear();
+            return;
+        }
+        for (int i = 0; i < found.length; i++)
+            if (found[i] == null && unknown.get(i) != null
+                && _broker.getStateManagerImplById(oids.get(i), true) == null)
+                _absent.add(ImplHelper.getManagedInstance(unknown.get(i)));
+    }
+
     /**
      * Invoke postAttach() on any attached instances that implement
      * PostAttachCallback. This will be done after the entire graph has
@@ -346,6 +415,17 @@ public class AttachManager {
             LifecycleEvent.BEFORE_ATTACH);
     }
 
+    /**
+     * Return whether the given instance is detached, without looking up
+     * instances already known to have no store record.
+     */
+    boolean isDetached(Object pc) {
+        if (!_absent.isEmpty()
+            && _absent.contains(ImplHelper.getManagedInstance(pc)))
+            return false;
+        return _broker.isDetached(pc);
+    }
+
     /**
      * Return the detached oid of the given instance.
      */
@@ -315,7 +315,7 @@ abstract class AttachStrategy
             }
         } else if (manager.getBroker().isPersistent(toAttach)) {
             return toAttach;
-        } else if (manager.getBroker().isDetached(toAttach)) {
+        } else if (manager.isDetached(toAttach)) {
             Object oid = manager.getDetachedObjectId(toAttach);
             if (oid != null) {
                 return manager.getBroker().find(oid, false, null);
@@ -243,6 +243,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
     private boolean _suppressBatchOLELogging = false;
     private boolean _allowReferenceToSiblingContext = false;
     private boolean _postLoadOnMerge = false;
+    private boolean _compactCache = false;
 
     // status
     private int _flags = 0;
@@ -429,9 +430,12 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
     /**
      * Create a {@link Map} to be used for the primary managed object cache.
      * Maps oids to state managers. By default, this creates a
-     * {@link ReferenceMap} with soft values.
+     * {@link ReferenceMap} with soft values, or a {@link ManagedObjectMap}
+     * if {@link #getCompactManagedObjectCache} is set.
      */
     protected Map<?,?> newManagedObjectCache() {
+        if (_compactCache)
+            return new ManagedObjectMap<StateManagerImpl>();
         return new ReferenceHashMap(
                 AbstractReferenceMap.ReferenceStrength.HARD, AbstractReferenceMap.ReferenceStrength.SOFT);
     }
@@ -980,6 +984,30 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
     public boolean getSuppressBatchOLELogging() {
         return _suppressBatchOLELogging;
     }
+
+    /**
+     * Set whether this Broker keeps its managed objects in a compact
+     * {@link ManagedObjectMap} rather than a map with soft values. The
+     * compact map takes less memory per instance and can be read without
+     * locking, but does not let unreferenced clean instances be garbage
+     * collected. Must be set before the Broker is initialized. Defaults
+     * to false.
+     *
+     * @since 4.1.2
+     */
+    public void setCompactManagedObjectCache(boolean compact) {
+        _compactCache = compact;
+    }
+
+    /**
+     * Return whether this Broker keeps its managed objects in a compact
+     * {@link ManagedObjectMap}.
+     *
+     * @since 4.1.2
+     */
+    public boolean getCompactManagedObjectCache() {
+        return _compactCache;
+    }
     ///////////
     // Lookups
     ///////////
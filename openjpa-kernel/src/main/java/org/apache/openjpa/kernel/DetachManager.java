@@ -33,6 +33,9 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import org.apache.openjpa.conf.Compatibility;
 import org.apache.openjpa.conf.DetachOptions;
@@ -60,6 +63,16 @@ public class DetachManager
 
     private static Localizer _loc = Localizer.forPackage(DetachManager.class);
 
+    // kinds of fields detached by InstanceDetachFieldManager.detachFields
+    private static final int KEYS = 1;
+    private static final int VALUES = 2;
+    private static final int CONTAINERS = 4;
+    private static final int ALL = KEYS | VALUES | CONTAINERS;
+
+    // number of copies of a bulk detach from which their non-container
+    // fields are copied in parallel
+    private static final int PARALLEL_COPY_THRESHOLD = 512;
+
     private final BrokerImpl _broker;
     private final boolean _copy;
     private final boolean _full;
@@ -78,6 +91,10 @@ public class DetachManager
     private final IdentityHashMap _detached;
     private final DetachFieldManager _fullFM;
 
+    // copies of a bulk detach whose fields are copied once the whole graph
+    // has been traversed; null when each copy is completed as it is made
+    private List<PendingCopy> _pending;
+
     /**
      * Used to prepare a detachable instance that does not externalize
      * detached state.
@@ -319,6 +336,12 @@ public class DetachManager
     /**
      * Return detached versions of all the given instances. If not copying,
      * null will be returned.
+     * <p>
+     * The fields to detach are loaded ahead, one level of the graphs of the
+     * instances at a time, so that the store can load each level in bulk.
+     * Copies are made as the graphs are traversed, but their fields other
+     * than the primary key and version are only copied afterwards, in
+     * parallel for large graphs.
      */
     public Object[] detachAll(Collection instances) {
         List exceps = null;
@@ -328,18 +351,25 @@ public class DetachManager
 
         boolean failFast = false;
         try {
+            loadAll(instances);
+            if (_copy && !_full && instances.size() > 1)
+                _pending = new ArrayList<>();
+
             Object detach;
             for (Object instance : instances) {
                 detach = detachInternal(instance);
                 if (_copy)
                     detached.add(detach);
             }
+            if (_pending != null)
+                copyAll();
         }
         catch (RuntimeException re) {
             if (re instanceof CallbackException && _failFast)
                 failFast = true;
             exceps = add(exceps, re);
         } finally {
+            _pending = null;
             if (!failFast)
                 exceps = invokeAfterDetach(instances, exceps);
             if (_detached != null)
@@ -352,6 +382,200 @@ public class DetachManager
         return null;
     }
 
+    /**
+     * Load the fields to be detached from the graphs of the given instances
+     * ahead of detaching them, so that the store can load all instances of a
+     * level of the graphs together rather than each as it is detached.
+     * Instances that fail to load are left to the load of their own detach.
+     */
+    private void loadAll(Collection instances) {
+        if (_full || _broker.getDetachState() != DETACH_FETCH_GROUPS)
+            return;
+
+        // loading ahead must not change when locks are obtained, nor load
+        // state that a flush before detach would change
+        FetchConfiguration fetch = _broker.getFetchConfiguration();
+        if (_broker.isActive()) {
+            if (!_broker.getOptimistic()
+                || fetch.getReadLockLevel() > LockLevels.LOCK_WRITE
+                || (_flushBeforeDetach
+                && !_broker.getDirtyObjects().isEmpty()))
+                return;
+        } else if (!_broker.getNontransactionalRead())
+            return;
+
+        Map<StateManagerImpl, Object> seen = new IdentityHashMap<>();
+        List<StateManagerImpl> level = new ArrayList<>();
+        for (Object instance : instances)
+            addToLoad(instance, level, seen);
+
+        List<OpenJPAStateManager> load = new ArrayList<>();
+        TransferFieldManager values = new TransferFieldManager();
+        FieldMetaData[] fmds;
+        while (!level.isEmpty()) {
+            for (StateManagerImpl sm : level)
+                if (!sm.isEmbedded() && !sm.getUnloaded(fetch).isEmpty())
+                    load.add(sm);
+            if (load.size() > 1) {
+                // same state transitions as a load through the instance
+                for (OpenJPAStateManager sm : load) {
+                    ((StateManagerImpl) sm).beforeRead(-1);
+                    ((StateManagerImpl) sm).setLoading(true);
+                }
+                try {
+                    _broker.getStoreManager().loadAll(load, null,
+                        StoreManager.FORCE_LOAD_DFG, fetch, null);
+                } finally {
+                    for (OpenJPAStateManager sm : load)
+                        ((StateManagerImpl) sm).setLoading(false);
+                }
+            }
+            load.clear();
+
+            // the next level holds the related instances that will be
+            // detached along with this one
+            List<StateManagerImpl> next = new ArrayList<>();
+            for (StateManagerImpl sm : level) {
+                fmds = sm.getMetaData().getFields();
+                for (int i = 0; i < fmds.length; i++) {
+                    if (!sm.getLoaded().get(i) || sm.isDelayed(i)
+                        || fmds[i].isLRS() || !isCascaded(fmds[i])
+                        || (!fmds[i].isPrimaryKey() && fetch.requiresFetch
+                        (fmds[i]) == FetchConfiguration.FETCH_NONE))
+                        continue;
+                    sm.provideField(sm.getPersistenceCapable(), values, i);
+                    forEachCascaded(fmds[i], values.fetchObjectField(i),
+                        o -> addToLoad(o, next, seen));
+                    values.clear();
+                }
+            }
+            level = next;
+        }
+    }
+
+    /**
+     * Add the state manager of the given instance to the given level if it
+     * has not been seen yet and it can be loaded.
+     */
+    private void addToLoad(Object instance, List<StateManagerImpl> level,
+        Map<StateManagerImpl, Object> seen) {
+        StateManagerImpl sm = (instance == null) ? null
+            : _broker.getStateManagerImpl(instance, false);
+        if (sm == null || seen.put(sm, sm) != null)
+            return;
+        if (sm.isPersistent() && !(sm.isNew() && !sm.isFlushed())
+            && !sm.isDeleted())
+            level.add(sm);
+    }
+
+    /**
+     * Complete the copies of a bulk detach. Their fields other than
+     * containers are copied in parallel if there are enough of them, as
+     * copying only reads the managed instances and writes to the copies,
+     * each of which is copied by a single thread. Containers are copied
+     * afterwards on this thread, once the copies that they hold have their
+     * fields, since adding to a container may hash its elements.
+     */
+    private void copyAll() {
+        int size = _pending.size();
+        if (size < PARALLEL_COPY_THRESHOLD) {
+            for (PendingCopy copy : _pending)
+                copy.fm.detachFields(copy.fields, VALUES);
+        } else {
+            int parts = Math.min(size,
+                ForkJoinPool.getCommonPoolParallelism() * 4);
+            IntStream.range(0, parts).parallel().forEach(part -> {
+                for (int i = part * size / parts,
+                    end = (part + 1) * size / parts; i < end; i++)
+                    _pending.get(i).fm.detachFields(_pending.get(i).fields,
+                        VALUES);
+            });
+        }
+
+        for (PendingCopy copy : _pending)
+            copy.fm.detachFields(copy.fields, CONTAINERS);
+        for (PendingCopy copy : _pending) {
+            if (!Boolean.FALSE.equals(copy.sm.getMetaData().
+                usesDetachedState()))
+                copy.detachedPC.pcSetDetachedState(getDetachedState(copy.sm,
+                    copy.fields));
+            if (copy.detSM != null)
+                copy.detachedPC.pcReplaceStateManager(copy.detSM);
+        }
+    }
+
+    /**
+     * Detach the instances related to the given one that are detached along
+     * with it, in the order in which copying its fields would.
+     */
+    private void detachRelated(StateManagerImpl sm, BitSet fields) {
+        FieldMetaData[] fmds = sm.getMetaData().getFields();
+        TransferFieldManager values = new TransferFieldManager();
+        for (int i = 0; i < fmds.length; i++) {
+            if (!fields.get(i) || fmds[i].isPrimaryKey()
+                || fmds[i].isVersion() || !isCascaded(fmds[i]))
+                continue;
+            sm.provideField(sm.getPersistenceCapable(), values, i);
+            forEachCascaded(fmds[i], values.fetchObjectField(i),
+                this::detachInternal);
+            values.clear();
+        }
+    }
+
+    /**
+     * Whether the persistent values of the given field are detached along
+     * with its owner.
+     */
+    private boolean isCascaded(FieldMetaData fmd) {
+        return _cascadeWithDetach
+            || fmd.getCascadeDetach() == ValueMetaData.CASCADE_IMMEDIATE
+            || fmd.getKey().getCascadeDetach()
+            == ValueMetaData.CASCADE_IMMEDIATE
+            || fmd.getElement().getCascadeDetach()
+            == ValueMetaData.CASCADE_IMMEDIATE;
+    }
+
+    /**
+     * Pass each persistent instance held by the given value of the given
+     * field to the given action.
+     */
+    private static void forEachCascaded(FieldMetaData fmd, Object val,
+        Consumer<Object> action) {
+        if (val == null)
+            return;
+
+        switch (fmd.getDeclaredTypeCode()) {
+        case JavaTypes.PC:
+        case JavaTypes.PC_UNTYPED:
+            action.accept(val);
+            break;
+        case JavaTypes.ARRAY:
+            if (fmd.getElement().isDeclaredTypePC())
+                for (int i = 0, len = Array.getLength(val); i < len; i++)
+                    action.accept(Array.get(val, i));
+            break;
+        case JavaTypes.COLLECTION:
+            if (fmd.getElement().isDeclaredTypePC())
+                for (Object o : (Collection) val)
+                    action.accept(o);
+            break;
+        case JavaTypes.MAP:
+            boolean keyPC = fmd.getKey().isDeclaredTypePC();
+            boolean valPC = fmd.getElement().isDeclaredTypePC();
+            if (!keyPC && !valPC)
+                break;
+            Map.Entry entry;
+            for (Object o : ((Map) val).entrySet()) {
+                entry = (Map.Entry) o;
+                if (keyPC)
+                    action.accept(entry.getKey());
+                if (valPC)
+                    action.accept(entry.getValue());
+            }
+            break;
+        }
+    }
+
     /**
      * Invoke postDetach() on any detached instances that implement
      * PostDetachCallback. This will be done after the entire graph has
@@ -474,10 +698,20 @@ public class DetachManager
             }
             _fullFM.reproxy(detSM);
             _fullFM.setStateManager(null);
+        } else if (_pending != null) {
+            // copy the keys first, as related instances may rely on them;
+            // the other fields are copied once the whole graph is detached
+            InstanceDetachFieldManager fm = new InstanceDetachFieldManager(detachedPC, detSM);
+            fm.setStateManager(sm);
+            fm.detachFields(fields, KEYS);
+            fm.setLookupRelated(true);
+            _pending.add(new PendingCopy(sm, detachedPC, detSM, fm, fields));
+            detachRelated(sm, fields);
+            return detachedPC;
         } else {
             InstanceDetachFieldManager fm = new InstanceDetachFieldManager(detachedPC, detSM);
             fm.setStateManager(sm);
-            fm.detachFields(fields);
+            fm.detachFields(fields, ALL);
         }
 
         if (!Boolean.FALSE.equals(sm.getMetaData().usesDetachedState()))
@@ -497,6 +731,28 @@ public class DetachManager
             opts.getDetachedStateManager();
     }
 
+    /**
+     * A copy whose fields are still to be detached.
+     */
+    private static class PendingCopy {
+
+        final StateManagerImpl sm;
+        final PersistenceCapable detachedPC;
+        final DetachedStateManager detSM;
+        final InstanceDetachFieldManager fm;
+        final BitSet fields;
+
+        PendingCopy(StateManagerImpl sm, PersistenceCapable detachedPC,
+            DetachedStateManager detSM, InstanceDetachFieldManager fm,
+            BitSet fields) {
+            this.sm = sm;
+            this.detachedPC = detachedPC;
+            this.detSM = detSM;
+            this.fm = fm;
+            this.fields = fields;
+        }
+    }
+
     /**
      * Base detach field manager.
      */
@@ -593,6 +849,7 @@ public class DetachManager
 
         private final PersistenceCapable _to;
         private final DetachedStateManager _detSM;
+        private boolean _lookup;
 
         /**
          * Constructor. Supply instance to to copy to.
@@ -608,12 +865,24 @@ public class DetachManager
             return _to;
         }
 
+        /**
+         * Whether related instances have all been detached already, so that
+         * their detached versions are looked up rather than detached.
+         */
+        public void setLookupRelated(boolean lookup) {
+            _lookup = lookup;
+        }
+
         /**
          * Detach the fields of the state manager given on construction to
          * the persistence capable given on construction.
          * Only the fields in the given bit set will be copied.
+         *
+         * @param kinds the kinds of fields to detach: the primary key and
+         * version fields, container fields, other fields, or any
+         * combination of them
          */
-        public void detachFields(BitSet fgfields) {
+        public void detachFields(BitSet fgfields, int kinds) {
             PersistenceCapable from = sm.getPersistenceCapable();
             FieldMetaData[] pks = sm.getMetaData().getPrimaryKeyFields();
             FieldMetaData[] fmds = sm.getMetaData().getFields();
@@ -625,13 +894,27 @@ public class DetachManager
                 // equals and hashCode methods, and this ensures that pk fields
                 // are set properly if we return any partially-detached objects
                 // due to reentrant calls when traversing relations
-                for (FieldMetaData pk : pks) {
-                    detachField(from, pk.getIndex(), true);
+                if ((kinds & KEYS) != 0) {
+                    for (FieldMetaData pk : pks) {
+                        detachField(from, pk.getIndex(), true);
+                    }
+                    detachVersion();
                 }
-                detachVersion();
-                for (int i = 0; i < fmds.length; i++)
-                    if (!fmds[i].isPrimaryKey() && !fmds[i].isVersion())
+                int kind;
+                for (int i = 0; i < fmds.length; i++) {
+                    if (fmds[i].isPrimaryKey() || fmds[i].isVersion())
+                        continue;
+                    switch (fmds[i].getDeclaredTypeCode()) {
+                    case JavaTypes.COLLECTION:
+                    case JavaTypes.MAP:
+                        kind = CONTAINERS;
+                        break;
+                    default:
+                        kind = VALUES;
+                    }
+                    if ((kinds & kind) != 0)
                         detachField(from, i, fgfields.get(i));
+                }
             } finally {
                 // clear the StateManager from the target object
                 if (_copy)
@@ -732,17 +1015,7 @@ public class DetachManager
                 return null;
 
             FieldMetaData fmd = sm.getMetaData().getField(field);
-
-            boolean cascade = false;
-            if(_cascadeWithDetach
-                || fmd.getCascadeDetach() ==
-                    ValueMetaData.CASCADE_IMMEDIATE
-                || fmd.getKey().getCascadeDetach() ==
-                    ValueMetaData.CASCADE_IMMEDIATE
-                || fmd.getElement().getCascadeDetach() ==
-                    ValueMetaData.CASCADE_IMMEDIATE) {
-                cascade = true;
-            }
+            boolean cascade = isCascaded(fmd);
 
             Object newVal = null;
             switch (fmd.getDeclaredTypeCode()) {
@@ -807,7 +1080,7 @@ public class DetachManager
             case JavaTypes.PC:
             case JavaTypes.PC_UNTYPED:
                 if (cascade) {
-                    return detachInternal(curVal);
+                    return detachRelated(curVal);
                 }
                 return curVal;
             default:
@@ -815,6 +1088,16 @@ public class DetachManager
             }
         }
 
+        /**
+         * Return the detached version of the given related instance.
+         */
+        private Object detachRelated(Object val) {
+            if (!_lookup)
+                return detachInternal(val);
+            Object detached = (val == null) ? null : _detached.get(val);
+            return (detached == null) ? val : detached;
+        }
+
         /**
          * Make sure all the values in the given array are detached.
          */
@@ -824,7 +1107,7 @@ public class DetachManager
 
             int len = Array.getLength(array);
             for (int i = 0; i < len; i++)
-                Array.set(array, i, detachInternal(Array.get(array, i)));
+                Array.set(array, i, detachRelated(Array.get(array, i)));
         }
 
         /**
@@ -843,7 +1126,7 @@ public class DetachManager
                 coll.clear();
             Object detached;
             for (Object o : orig) {
-                detached = detachInternal(o);
+                detached = detachRelated(o);
                 if (_copy)
                     coll.add(detached);
             }
@@ -872,17 +1155,17 @@ public class DetachManager
                     entry = (Map.Entry) o;
                     key = entry.getKey();
                     if (keyPC)
-                        key = detachInternal(key);
+                        key = detachRelated(key);
                     val = entry.getValue();
                     if (valPC)
-                        val = detachInternal(val);
+                        val = detachRelated(val);
                     if (_copy)
                         map.put(key, val);
                 }
             } else {
                 for (Object o : map.entrySet()) {
                     entry = (Map.Entry) o;
-                    entry.setValue(detachInternal(entry.getValue()));
+                    entry.setValue(detachRelated(entry.getValue()));
                 }
 			}
 		}
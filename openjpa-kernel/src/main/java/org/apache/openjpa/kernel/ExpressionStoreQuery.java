@@ -158,6 +158,11 @@ public class ExpressionStoreQuery
         return null;
     }
 
+    @Override
+    public Object newQueryKey() {
+        return _parsed == null ? null : _parser.newQueryKey(_parsed);
+    }
+
     @Override
     public Object newCompilation() {
         if (_parsed != null)
@@ -187,8 +192,11 @@ public class ExpressionStoreQuery
 
     @Override
     public Executor newInMemoryExecutor(ClassMetaData meta, boolean subs) {
+        InMemoryExpressionFactory factory = new InMemoryExpressionFactory();
+        factory.setParallelThreshold(ctx.getStoreContext().getConfiguration().
+            getInMemoryQueryParallelThreshold());
         return new InMemoryExecutor(this, meta, subs, _parser,
-        		ctx.getCompilation(), new InMemoryExpressionFactory());
+        		ctx.getCompilation(), factory);
     }
 
     @Override
@@ -668,12 +676,21 @@ public class ExpressionStoreQuery
             List results = new ArrayList();
             StoreContext ctx = q.getContext().getStoreContext();
             try {
-                Object obj;
-                while (itr.hasNext()) {
-                    obj = itr.next();
-                    if (_factory.matches(_exps[0], _meta, _subs, obj, ctx,
-                        params))
-                        results.add(obj);
+                if (_factory.getParallelThreshold() > 0) {
+                    // gather the candidates so that they can be partitioned
+                    List candidates = new ArrayList();
+                    while (itr.hasNext())
+                        candidates.add(itr.next());
+                    results = _factory.filter(_exps[0], _meta, _subs,
+                        candidates, ctx, params);
+                } else {
+                    Object obj;
+                    while (itr.hasNext()) {
+                        obj = itr.next();
+                        if (_factory.matches(_exps[0], _meta, _subs, obj, ctx,
+                            params))
+                            results.add(obj);
+                    }
                 }
             }
             finally {
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.openjpa.util.Id;
+import org.apache.openjpa.util.LongId;
+
+/**
+ * Compact map from object ids to managed objects, for use as the primary
+ * managed object cache of a {@link BrokerImpl}. Entries are kept in
+ * parallel arrays probed linearly rather than in per-entry objects. The
+ * numeric value of {@link Id} and {@link LongId} keys is also kept in a
+ * primitive array, so that probing rarely has to compare key objects.
+ * Unlike the default cache, values are held by hard references.
+ * Reads do not lock and may run concurrently with a writer; writes are
+ * serialized on the map. Null keys and values are not supported.
+ *
+ * @since 4.1.2
+ */
+public class ManagedObjectMap<V>
+    extends AbstractMap<Object, V>
+    implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MIN_CAPACITY = 16;
+    private static final VarHandle SLOT =
+        MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private volatile Table _table = new Table(MIN_CAPACITY);
+    private volatile int _size = 0;
+    private int _used = 0; // slots with a key, including removed entries
+
+    @Override
+    public int size() {
+        return _size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (key == null)
+            return null;
+
+        Table table = _table;
+        long id = idValue(key);
+        Object k;
+        for (int i = hash(key) & table.mask;; i = (i + 1) & table.mask) {
+            k = SLOT.getAcquire(table.keys, i);
+            if (k == null)
+                return null;
+            if (table.ids[i] == id && (k == key || k.equals(key)))
+                return (V) SLOT.getAcquire(table.values, i);
+        }
+    }
+
+    @Override
+    public synchronized V put(Object key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+
+        Table table = _table;
+        long id = idValue(key);
+        int i = hash(key) & table.mask;
+        for (Object k; (k = table.keys[i]) != null;
+            i = (i + 1) & table.mask) {
+            if (table.ids[i] == id && (k == key || k.equals(key))) {
+                V old = (V) table.values[i];
+                SLOT.setRelease(table.values, i, value);
+                if (old == null)
+                    _size++;
+                return old;
+            }
+        }
+
+        // keep at least a quarter of the slots empty so probes stay short
+        if (_used + 1 > table.keys.length - (table.keys.length >> 2)) {
+            rehash(_size + 1);
+            return put(key, value);
+        }
+
+        // publish the key last; readers that see it see the rest of the slot
+        table.ids[i] = id;
+        table.values[i] = value;
+        SLOT.setRelease(table.keys, i, key);
+        _used++;
+        _size++;
+        return null;
+    }
+
+    @Override
+    public synchronized V remove(Object key) {
+        if (key == null)
+            return null;
+
+        // removed entries keep their key so that probes pass over them;
+        // the slot is only reclaimed by the next rehash
+        Table table = _table;
+        long id = idValue(key);
+        for (int i = hash(key) & table.mask;; i = (i + 1) & table.mask) {
+            Object k = table.keys[i];
+            if (k == null)
+                return null;
+            if (table.ids[i] == id && (k == key || k.equals(key))) {
+                V old = (V) table.values[i];
+                if (old != null) {
+                    SLOT.setRelease(table.values, i, null);
+                    _size--;
+                }
+                return old;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        _table = new Table(MIN_CAPACITY);
+        _size = 0;
+        _used = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<Object, V>> entrySet() {
+        return new AbstractSet<Map.Entry<Object, V>>() {
+            @Override
+            public int size() {
+                return _size;
+            }
+
+            @Override
+            public Iterator<Map.Entry<Object, V>> iterator() {
+                return new EntryIterator(_table);
+            }
+        };
+    }
+
+    /**
+     * Copy the live entries into a new table that can hold the given
+     * number of entries at a load of at most three eighths.
+     */
+    private void rehash(int size) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 8 < size)
+            capacity <<= 1;
+
+        Table old = _table;
+        Table table = new Table(capacity);
+        Object val;
+        int j;
+        for (int i = 0; i < old.keys.length; i++) {
+            val = old.values[i];
+            if (val == null)
+                continue;
+            for (j = hash(old.keys[i]) & table.mask; table.keys[j] != null;
+                j = (j + 1) & table.mask);
+            table.keys[j] = old.keys[i];
+            table.values[j] = val;
+            table.ids[j] = old.ids[i];
+        }
+        _used = _size;
+        _table = table;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Return the numeric value of datastore and long identity keys, or 0
+     * for other keys.
+     */
+    private static long idValue(Object key) {
+        Class<?> type = key.getClass();
+        if (type == Id.class)
+            return ((Id) key).getId();
+        if (type == LongId.class)
+            return ((LongId) key).getId();
+        return 0;
+    }
+
+    /**
+     * Slot arrays of the map. A table is replaced as a whole when the map
+     * is rehashed.
+     */
+    private static class Table
+        implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final Object[] keys;
+        final Object[] values;
+        final long[] ids;
+        final int mask;
+
+        public Table(int capacity) {
+            keys = new Object[capacity];
+            values = new Object[capacity];
+            ids = new long[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    /**
+     * Iterator over the live entries of a table.
+     */
+    private class EntryIterator
+        implements Iterator<Map.Entry<Object, V>> {
+
+        private final Table _iterTable;
+        private int _next = -1;
+        private Object _nextVal = null;
+        private Object _last = null;
+
+        public EntryIterator(Table table) {
+            _iterTable = table;
+            advance();
+        }
+
+        private void advance() {
+            _nextVal = null;
+            while (++_next < _iterTable.keys.length) {
+                if (SLOT.getAcquire(_iterTable.keys, _next) != null) {
+                    _nextVal = SLOT.getAcquire(_iterTable.values, _next);
+                    if (_nextVal != null)
+                        return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _nextVal != null;
+        }
+
+        @Override
+        public Map.Entry<Object, V> next() {
+            if (_nextVal == null)
+                throw new NoSuchElementException();
+            Map.Entry<Object, V> entry = new SimpleImmutableEntry<>(
+                _iterTable.keys[_next], (V) _nextVal);
+            _last = entry.getKey();
+            advance();
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            if (_last == null)
+                throw new IllegalStateException();
+            ManagedObjectMap.this.remove(_last);
+            _last = null;
+        }
+    }
+}
@@ -61,6 +61,21 @@ public class PCDataImpl
         _loaded = new BitSet(len);
     }
 
+    /**
+     * Constructor for subclasses that keep field data in their own storage.
+     * Such subclasses must override all field, loaded state, version and
+     * impl data accessors.
+     *
+     * @since 4.1.2
+     */
+    protected PCDataImpl(Object oid, Class<?> type, String name) {
+        _oid = oid;
+        _type = type;
+        _cache = name;
+        _data = null;
+        _loaded = null;
+    }
+
     @Override
     public Object getId() {
         return _oid;
@@ -0,0 +1,452 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded, concurrent cache of query compilations, available as the
+ * <code>concurrent</code> alias of the
+ * <code>openjpa.QueryCompilationCache</code> property.
+ * <p>
+ * Lookups do not lock. A miss through {@link #get(Object, Function)} is
+ * single-flight: the first thread to miss a key compiles it, and the other
+ * threads that miss the same key meanwhile wait for that compilation
+ * instead of compiling again.
+ * <p>
+ * Once the cache holds more than {@link #getCacheSize} entries, the least
+ * frequently used entry of a small sample is evicted. The sample is taken
+ * by a hand that moves around the cache, and the use counts of sampled
+ * entries are halved so that entries that are no longer used age out.
+ * <p>
+ * Hits, misses, the time spent compiling on a miss and evictions are
+ * counted unless statistics are disabled.
+ */
+public class QueryCompilationCache
+    extends AbstractMap<Object, Object>
+    implements ConcurrentMap<Object, Object>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int SAMPLE_SIZE = 8;
+
+    private final ConcurrentHashMap<Object, Entry> _entries =
+        new ConcurrentHashMap<>();
+    private volatile int _size = 1000;
+    private volatile boolean _statsEnabled = true;
+    private final transient LongAdder _hits = new LongAdder();
+    private final transient LongAdder _misses = new LongAdder();
+    private final transient LongAdder _evictions = new LongAdder();
+    private final transient LongAdder _compileTime = new LongAdder();
+
+    // only moved by the thread that holds _evicting
+    private final transient AtomicBoolean _evicting = new AtomicBoolean();
+    private transient Iterator<Map.Entry<Object, Entry>> _hand;
+
+    /**
+     * The maximum number of compilations to cache. Defaults to 1000.
+     */
+    public int getCacheSize() {
+        return _size;
+    }
+
+    /**
+     * The maximum number of compilations to cache. Defaults to 1000.
+     */
+    public void setCacheSize(int size) {
+        _size = size;
+        evict();
+    }
+
+    /**
+     * Whether statistics are recorded. Defaults to true.
+     */
+    public boolean getEnableStatistics() {
+        return _statsEnabled;
+    }
+
+    /**
+     * Whether statistics are recorded. Defaults to true.
+     */
+    public void setEnableStatistics(boolean enable) {
+        _statsEnabled = enable;
+    }
+
+    /**
+     * Number of lookups that found a cached compilation, including lookups
+     * that waited for a compilation in progress.
+     */
+    public long getHitCount() {
+        return _hits.sum();
+    }
+
+    /**
+     * Number of lookups that found no cached compilation. For
+     * {@link #get(Object, Function)}, this is the number of compilations.
+     */
+    public long getMissCount() {
+        return _misses.sum();
+    }
+
+    /**
+     * Number of compilations evicted to keep the cache within its size.
+     */
+    public long getEvictionCount() {
+        return _evictions.sum();
+    }
+
+    /**
+     * Nanoseconds spent compiling on misses of
+     * {@link #get(Object, Function)}.
+     */
+    public long getCompilationTime() {
+        return _compileTime.sum();
+    }
+
+    /**
+     * Reset all statistics to zero.
+     */
+    public void resetStatistics() {
+        _hits.reset();
+        _misses.reset();
+        _evictions.reset();
+        _compileTime.reset();
+    }
+
+    /**
+     * Return the compilation cached for the given key, compiling and
+     * caching it with the given function on a miss. Threads that miss a key
+     * while it is being compiled wait for that compilation.
+     *
+     * @param compiler compiles the value for the key. A null return value
+     * is not cached.
+     * @return the cached value, or null if the value compiled for this key
+     * by another thread could not be cached
+     */
+    public Object get(Object key, Function<Object, Object> compiler) {
+        while (true) {
+            Entry e = _entries.get(key);
+            if (e == null) {
+                Entry created = new Entry();
+                e = _entries.putIfAbsent(key, created);
+                if (e == null)
+                    return compile(key, created, compiler);
+            }
+
+            try {
+                Object value = e.future.get();
+                if (value != null) {
+                    e.hit();
+                    if (_statsEnabled)
+                        _hits.increment();
+                }
+                return value;
+            } catch (ExecutionException ee) {
+                // the compiling thread failed and removed its entry, so
+                // take over the compilation
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return compiler.apply(key);
+            }
+        }
+    }
+
+    private Object compile(Object key, Entry e,
+        Function<Object, Object> compiler) {
+        long start = System.nanoTime();
+        Object value;
+        try {
+            value = compiler.apply(key);
+        } catch (RuntimeException | Error t) {
+            _entries.remove(key, e);
+            e.future.completeExceptionally(t);
+            throw t;
+        }
+        if (_statsEnabled) {
+            _misses.increment();
+            _compileTime.add(System.nanoTime() - start);
+        }
+        if (value == null)
+            _entries.remove(key, e);
+        e.future.complete(value);
+        if (value != null && _entries.size() > _size)
+            evict();
+        return value;
+    }
+
+    /**
+     * Evict the least frequently used of a sample of entries until the
+     * cache is within its size. Only one thread evicts at a time; others
+     * leave the work to it.
+     */
+    private void evict() {
+        if (!_evicting.compareAndSet(false, true))
+            return;
+        try {
+            while (_entries.size() > _size) {
+                Map.Entry<Object, Entry> victim = null;
+                int victimCount = Integer.MAX_VALUE;
+                for (int i = 0; i < SAMPLE_SIZE; i++) {
+                    if (_hand == null || !_hand.hasNext()) {
+                        _hand = _entries.entrySet().iterator();
+                        if (!_hand.hasNext())
+                            return;
+                    }
+                    Map.Entry<Object, Entry> candidate = _hand.next();
+                    Entry e = candidate.getValue();
+                    if (!e.isCached())
+                        continue;
+                    int count = e.age();
+                    if (count < victimCount) {
+                        victim = candidate;
+                        victimCount = count;
+                    }
+                }
+                if (victim == null)
+                    return;
+                if (_entries.remove(victim.getKey(), victim.getValue())
+                    && _statsEnabled)
+                    _evictions.increment();
+            }
+        } finally {
+            _evicting.set(false);
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        Entry e = _entries.get(key);
+        if (e == null || !e.isCached()) {
+            if (_statsEnabled)
+                _misses.increment();
+            return null;
+        }
+        e.hit();
+        if (_statsEnabled)
+            _hits.increment();
+        return e.value();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Entry e = _entries.get(key);
+        return e != null && e.isCached();
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        Objects.requireNonNull(value);
+        Entry old = _entries.put(key, new Entry(value));
+        if (_entries.size() > _size)
+            evict();
+        return old == null || !old.isCached() ? null : old.value();
+    }
+
+    @Override
+    public Object putIfAbsent(Object key, Object value) {
+        Objects.requireNonNull(value);
+        Entry created = new Entry(value);
+        while (true) {
+            Entry e = _entries.putIfAbsent(key, created);
+            if (e == null) {
+                if (_entries.size() > _size)
+                    evict();
+                return null;
+            }
+            if (e.isCached())
+                return e.value();
+            // a compilation is in progress, so the key is absent
+            if (!e.future.isDone() && _entries.replace(key, e, created))
+                return null;
+        }
+    }
+
+    @Override
+    public Object remove(Object key) {
+        Entry e = _entries.remove(key);
+        return e == null || !e.isCached() ? null : e.value();
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        Entry e = _entries.get(key);
+        return e != null && e.isCached() && Objects.equals(e.value(), value)
+            && _entries.remove(key, e);
+    }
+
+    @Override
+    public boolean replace(Object key, Object oldValue, Object newValue) {
+        Objects.requireNonNull(newValue);
+        Entry e = _entries.get(key);
+        return e != null && e.isCached()
+            && Objects.equals(e.value(), oldValue)
+            && _entries.replace(key, e, new Entry(newValue));
+    }
+
+    @Override
+    public Object replace(Object key, Object value) {
+        Objects.requireNonNull(value);
+        while (true) {
+            Entry e = _entries.get(key);
+            if (e == null || !e.isCached())
+                return null;
+            if (_entries.replace(key, e, new Entry(value)))
+                return e.value();
+        }
+    }
+
+    @Override
+    public int size() {
+        return _entries.size();
+    }
+
+    @Override
+    public void clear() {
+        _entries.clear();
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Object>> entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * Serialize the cached compilations as a plain map.
+     */
+    protected Object writeReplace() {
+        return new HashMap<>(this);
+    }
+
+    /**
+     * A cached value, or a compilation in progress. The use count is
+     * approximate; lost updates under contention do not matter for
+     * eviction.
+     */
+    private static class Entry {
+
+        final CompletableFuture<Object> future;
+        private volatile int _count;
+
+        /**
+         * A compilation in progress.
+         */
+        Entry() {
+            future = new CompletableFuture<>();
+        }
+
+        Entry(Object value) {
+            future = CompletableFuture.completedFuture(value);
+        }
+
+        boolean isCached() {
+            return future.isDone() && !future.isCompletedExceptionally()
+                && future.getNow(null) != null;
+        }
+
+        Object value() {
+            return future.getNow(null);
+        }
+
+        void hit() {
+            int count = _count;
+            if (count < Integer.MAX_VALUE)
+                _count = count + 1;
+        }
+
+        /**
+         * Halve the use count, returning the count before halving.
+         */
+        int age() {
+            int count = _count;
+            _count = count >>> 1;
+            return count;
+        }
+    }
+
+    /**
+     * View of the cached entries; compilations in progress are skipped.
+     */
+    private class EntrySet
+        extends AbstractSet<Map.Entry<Object, Object>> {
+
+        @Override
+        public int size() {
+            return QueryCompilationCache.this.size();
+        }
+
+        @Override
+        public void clear() {
+            QueryCompilationCache.this.clear();
+        }
+
+        @Override
+        public Iterator<Map.Entry<Object, Object>> iterator() {
+            final Iterator<Map.Entry<Object, Entry>> itr =
+                _entries.entrySet().iterator();
+            return new Iterator<Map.Entry<Object, Object>>() {
+                private Map.Entry<Object, Object> _next;
+                private Object _last;
+
+                @Override
+                public boolean hasNext() {
+                    while (_next == null && itr.hasNext()) {
+                        Map.Entry<Object, Entry> e = itr.next();
+                        if (e.getValue().isCached())
+                            _next = new SimpleImmutableEntry<>(e.getKey(),
+                                e.getValue().value());
+                    }
+                    return _next != null;
+                }
+
+                @Override
+                public Map.Entry<Object, Object> next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    Map.Entry<Object, Object> next = _next;
+                    _next = null;
+                    _last = next.getKey();
+                    return next;
+                }
+
+                @Override
+                public void remove() {
+                    if (_last == null)
+                        throw new IllegalStateException();
+                    _entries.remove(_last);
+                    _last = null;
+                }
+            };
+        }
+    }
+}
@@ -669,21 +669,27 @@ public class QueryImpl implements Query {
 
     /**
      * Find the cached compilation for the current query, creating one if it
-     * does not exist.
+     * does not exist. A query without a query string is cached by the key of
+     * its parsed state, if the store query provides one.
      */
     @SuppressWarnings("unchecked")
     protected Compilation compilationFromCache() {
         Map compCache = _broker.getConfiguration().getQueryCompilationCacheInstance();
-        if (compCache == null || !isParsedQuery()) {
+        Object query = (compCache == null) ? null
+            : isParsedQuery() ? getQueryString() : _storeQuery.newQueryKey();
+        if (query == null) {
             return newCompilation();
         } else {
             CompilationKey key = new CompilationKey();
             key.queryType = _storeQuery.getClass();
             key.candidateType = getCandidateType();
             key.subclasses = hasSubclasses();
-            key.query = getQueryString();
+            key.query = query;
             key.language = getLanguage();
             key.storeKey = _storeQuery.newCompilationKey();
+            if (compCache instanceof QueryCompilationCache)
+                return compilationFromCache((QueryCompilationCache) compCache,
+                    key);
             Compilation comp = (Compilation) compCache.get(key);
 
             // parse declarations if needed
@@ -709,6 +715,26 @@ public class QueryImpl implements Query {
         }
     }
 
+    /**
+     * Find the compilation for the given key in the given cache. Concurrent
+     * misses on the same key are compiled once.
+     */
+    private Compilation compilationFromCache(QueryCompilationCache compCache,
+        CompilationKey key) {
+        Compilation[] compiled = new Compilation[1];
+        Compilation comp = (Compilation) compCache.get(key, k -> {
+            compiled[0] = newCompilation();
+            // only cache those queries that can be compiled
+            return compiled[0].storeData == null ? null : compiled[0];
+        });
+        if (compiled[0] != null)
+            return compiled[0];
+        if (comp == null)
+            return newCompilation();
+        _storeQuery.populateFromCompilation(comp.storeData);
+        return comp;
+    }
+
     /**
      * Create and populate a new compilation.
      */
@@ -1898,7 +1924,7 @@ public class QueryImpl implements Query {
         public Class queryType = null;
         public Class candidateType = null;
         public boolean subclasses = true;
-        public String query = null;
+        public Object query = null;
         public String language = null;
         public Object storeKey = null;
 
@@ -1937,6 +1963,11 @@ public class QueryImpl implements Query {
             return key.candidateType == null || candidateType == null
                 || key.candidateType == candidateType;
         }
+
+        @Override
+        public String toString() {
+            return String.valueOf(query);
+        }
     }
 
     /**
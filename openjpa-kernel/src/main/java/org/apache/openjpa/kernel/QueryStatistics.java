@@ -54,9 +54,19 @@ public interface QueryStatistics<T> extends Serializable {
 	void recordExecution(T query);
 
     /**
-     * Record that the given query has been evicted.
+     * Record that the given query has been evicted. Does nothing by default.
      */
-    void recordEviction(T query);
+    default void recordEviction(T query) {
+    }
+
+    /**
+     * Record that the given query has been compiled in the given number of
+     * nanoseconds. Does nothing by default.
+     *
+     * @since 4.1.2
+     */
+    default void recordCompilation(T query, long nanos) {
+    }
 
 	/**
 	 * Gets number of total query execution since last reset.
@@ -110,6 +120,45 @@ public interface QueryStatistics<T> extends Serializable {
      */
     long getTotalEvictionCount();
 
+    /**
+     * Gets number of query compilations since last reset. Returns 0 by
+     * default.
+     *
+     * @since 4.1.2
+     */
+    default long getCompilationCount() {
+        return 0;
+    }
+
+    /**
+     * Gets number of query compilations since start. Returns 0 by default.
+     *
+     * @since 4.1.2
+     */
+    default long getTotalCompilationCount() {
+        return 0;
+    }
+
+    /**
+     * Gets nanoseconds spent compiling queries since last reset. Returns 0
+     * by default.
+     *
+     * @since 4.1.2
+     */
+    default long getCompilationTime() {
+        return 0;
+    }
+
+    /**
+     * Gets nanoseconds spent compiling queries since start. Returns 0 by
+     * default.
+     *
+     * @since 4.1.2
+     */
+    default long getTotalCompilationTime() {
+        return 0;
+    }
+
 	/**
 	 * Gets the time of last reset.
 	 */
@@ -149,10 +198,12 @@ public interface QueryStatistics<T> extends Serializable {
 	    private static final float LOAD_FACTOR = 0.75f;
 	    private static final int CONCURRENCY = 16;
 
-		private static final int ARRAY_SIZE = 3;
+		private static final int ARRAY_SIZE = 5;
         private static final int READ  = 0;
         private static final int HIT   = 1;
         private static final int EVICT = 2;
+        private static final int COMPILE = 3;
+        private static final int COMPILE_TIME = 4;
 
 		private long[] astat = new long[ARRAY_SIZE];
 		private long[] stat  = new long[ARRAY_SIZE];
@@ -255,18 +306,22 @@ public interface QueryStatistics<T> extends Serializable {
 
 
 		private void addSample(T query, int index) {
-			stat[index]++;
-			astat[index]++;
-			addSample(stats, query, index);
-			addSample(astats, query, index);
+			addSample(query, index, 1);
+		}
+
+		private void addSample(T query, int index, long amount) {
+			stat[index] += amount;
+			astat[index] += amount;
+			addSample(stats, query, index, amount);
+			addSample(astats, query, index, amount);
 		}
 
-		private void addSample(Map<T, long[]> target, T query, int i) {
+		private void addSample(Map<T, long[]> target, T query, int i, long amount) {
 			long[] row = target.get(query);
 			if (row == null) {
 				row = new long[ARRAY_SIZE];
 			}
-			row[i]++;
+			row[i] += amount;
 			target.put(query, row);
 		}
 
@@ -288,6 +343,15 @@ public interface QueryStatistics<T> extends Serializable {
             addSample(query, EVICT);
         }
 
+        @Override
+        public void recordCompilation(T query, long nanos) {
+            if (query == null) {
+                return;
+            }
+            addSample(query, COMPILE);
+            addSample(query, COMPILE_TIME, nanos);
+        }
+
 		@Override
         public void dump(PrintStream out) {
             String header = "Query Statistics starting from " + start;
@@ -334,6 +398,26 @@ public interface QueryStatistics<T> extends Serializable {
         public long getTotalEvictionCount() {
             return astat[EVICT];
         }
+
+        @Override
+        public long getCompilationCount() {
+            return stat[COMPILE];
+        }
+
+        @Override
+        public long getTotalCompilationCount() {
+            return astat[COMPILE];
+        }
+
+        @Override
+        public long getCompilationTime() {
+            return stat[COMPILE_TIME];
+        }
+
+        @Override
+        public long getTotalCompilationTime() {
+            return astat[COMPILE_TIME];
+        }
 	}
 
 	/**
@@ -86,6 +86,16 @@ public interface StoreQuery
      */
     Object newCompilationKey();
 
+    /**
+     * Create a new key that identifies the parsed state set through
+     * {@link #setQuery}, for caching compiled information of a query that
+     * has no query string. Returns null by default, i.e. the compilation of
+     * such a query is not cached.
+     */
+    default Object newQueryKey() {
+        return null;
+    }
+
     /**
      * Create a new compilation for this query. May be null.
      */
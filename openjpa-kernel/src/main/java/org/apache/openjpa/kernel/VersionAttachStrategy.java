@@ -82,7 +82,7 @@ class VersionAttachStrategy
         // OJ-2405: If toAttach has a StateManagerImpl, then it is important to check if it
         // is being managed by different broker.  If it is, then it should not be
         // considered "new".
-        boolean isNew = !broker.isDetached(pc) && !isManagedByAnotherPCtx(pc, broker);
+        boolean isNew = !manager.isDetached(pc) && !isManagedByAnotherPCtx(pc, broker);
         Object version = null;
         StateManagerImpl sm;
 
@@ -319,7 +319,7 @@ class VersionAttachStrategy
             copy = (Collection) sm.newFieldProxy(fmd.getIndex());
         else {
             for (Object o : coll) {
-                if (manager.getBroker().isDetached(o)) {
+                if (manager.isDetached(o)) {
                     copy = (Collection) sm.newFieldProxy(fmd.getIndex());
                     break;
                 }
@@ -356,9 +356,8 @@ class VersionAttachStrategy
         else {
             for (Object o : map.entrySet()) {
                 entry = (Map.Entry) o;
-                if ((keyPC && manager.getBroker().isDetached(entry.getKey()))
-                        || (valPC && manager.getBroker().isDetached
-                        (entry.getValue()))) {
+                if ((keyPC && manager.isDetached(entry.getKey()))
+                        || (valPC && manager.isDetached(entry.getValue()))) {
                     copy = (Map) sm.newFieldProxy(fmd.getIndex());
                     break;
                 }
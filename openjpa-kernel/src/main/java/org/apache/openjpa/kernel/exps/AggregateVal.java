@@ -83,6 +83,21 @@ abstract class AggregateVal
         return Collections.singleton(operate(args, _val.getType()));
     }
 
+    /**
+     * Return the aggregated value.
+     */
+    Val getValue() {
+        return _val;
+    }
+
+    /**
+     * Aggregate the given values of {@link #getValue}, which have been
+     * evaluated for each candidate.
+     */
+    Object aggregate(Collection os) {
+        return operate(os, _val.getType());
+    }
+
     /**
      * Return the type of this aggregate based on the value type.
      */
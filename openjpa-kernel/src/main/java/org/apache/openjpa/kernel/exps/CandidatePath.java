@@ -22,9 +22,11 @@ import java.util.LinkedList;
 import java.util.ListIterator;
 import java.util.Objects;
 
+import org.apache.openjpa.enhance.PersistenceCapable;
 import org.apache.openjpa.kernel.Broker;
 import org.apache.openjpa.kernel.Filters;
 import org.apache.openjpa.kernel.OpenJPAStateManager;
+import org.apache.openjpa.kernel.StateManagerImpl;
 import org.apache.openjpa.kernel.StoreContext;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.meta.FieldMetaData;
@@ -109,6 +111,12 @@ public class CandidatePath
         if (_actions == null)
             return candidate;
 
+        // on a thread that evaluates a partition of the candidates in
+        // parallel, the path has been resolved by the calling thread
+        ResolvedPaths resolved = ResolvedPaths.current();
+        if (resolved != null)
+            return resolved.get(this, candidate);
+
         Object action;
         OpenJPAStateManager sm;
         Broker tmpBroker = null;
@@ -159,6 +167,52 @@ public class CandidatePath
         return candidate;
     }
 
+    /**
+     * Return the value of this path for the given candidate if it can be
+     * read from state that is already loaded, or
+     * {@link ResolvedPaths#UNRESOLVED} otherwise. Must be called on the
+     * thread of the context, as reading the fields makes the usual state
+     * transitions.
+     */
+    Object resolve(Object candidate, StoreContext ctx) {
+        if (_actions == null)
+            return candidate;
+
+        StateManagerImpl sm;
+        FieldMetaData fmd;
+        for (Object action : _actions) {
+            // fail on null value, as eval does
+            if (candidate == null) {
+                if (action instanceof Traversal
+                    && ((Traversal) action).nullTraversal)
+                    return null;
+                throw new NullPointerException();
+            }
+
+            if (action instanceof Class) {
+                candidate = Filters.convert(candidate, (Class) action);
+                continue;
+            }
+
+            // only loaded fields of managed instances can be read without
+            // loading or enlisting through the context
+            if (!(candidate instanceof PersistenceCapable)
+                || !(((PersistenceCapable) candidate).pcGetStateManager()
+                instanceof StateManagerImpl))
+                return ResolvedPaths.UNRESOLVED;
+            sm = (StateManagerImpl) ((PersistenceCapable) candidate).
+                pcGetStateManager();
+            fmd = ((Traversal) action).field;
+            if (fmd.isLRS() || !sm.getLoaded().get(fmd.getIndex())
+                || sm.isDelayed(fmd.getIndex()))
+                return ResolvedPaths.UNRESOLVED;
+            // resolved on the calling thread, so the field access makes the
+            // same state transitions as it would when evaluated there
+            candidate = sm.fetchField(fmd.getIndex(), true);
+        }
+        return candidate;
+    }
+
     @Override
     public int hashCode() {
         return (_actions == null) ? 0 : _actions.hashCode();
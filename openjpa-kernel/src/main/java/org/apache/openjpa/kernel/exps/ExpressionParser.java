@@ -49,6 +49,16 @@ public interface ExpressionParser
      */
     void populate(Object parsed, ExpressionStoreQuery query);
 
+    /**
+     * Return a key that identifies the given parsed form, set directly on
+     * a query rather than parsed from a query string, for caching compiled
+     * query information. Returns null by default, i.e. the compilation of
+     * the parsed form is not shared.
+     */
+    default Object newQueryKey(Object parsed) {
+        return null;
+    }
+
     /**
      * Parse the given query string.
      */
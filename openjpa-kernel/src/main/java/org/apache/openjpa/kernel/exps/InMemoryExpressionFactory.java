@@ -26,11 +26,16 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Objects;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 import org.apache.openjpa.kernel.Extent;
 import org.apache.openjpa.kernel.StoreContext;
@@ -55,6 +60,27 @@ public class InMemoryExpressionFactory
     // list of unbound variables in this query
     private List<UnboundVariable> _unbounds = null;
 
+    // number of candidates from which to evaluate in parallel
+    private int _parallel = 0;
+
+    /**
+     * The number of candidates from which the candidates are partitioned
+     * and the partitions evaluated in parallel, or 0 to always evaluate on
+     * the calling thread. Defaults to 0.
+     */
+    public int getParallelThreshold() {
+        return _parallel;
+    }
+
+    /**
+     * The number of candidates from which the candidates are partitioned
+     * and the partitions evaluated in parallel, or 0 to always evaluate on
+     * the calling thread. Defaults to 0.
+     */
+    public void setParallelThreshold(int threshold) {
+        _parallel = threshold;
+    }
+
     /**
      * Tests whether the given candidate matches the given type and this
      * expression.
@@ -76,6 +102,25 @@ public class InMemoryExpressionFactory
         return matches((Exp) exps.filter, candidate, ctx, params, 0);
     }
 
+    /**
+     * Return the given candidates that match the given type and this
+     * expression, in candidate order.
+     */
+    public List filter(final QueryExpressions exps, final ClassMetaData type,
+        final boolean subs, List candidates, final StoreContext ctx,
+        final Object[] params) {
+        if (!(candidates instanceof RandomAccess))
+            candidates = new ArrayList(candidates);
+        Object[] matched = evaluate(exps, candidates, false, ctx,
+            candidate -> matches(exps, type, subs, candidate, ctx, params));
+
+        List results = new ArrayList();
+        for (int i = 0; i < matched.length; i++)
+            if ((Boolean) matched[i])
+                results.add(candidates.get(i));
+        return results;
+    }
+
     /**
      * Recursive method to evaluate the expression for all possible
      * combinations of unbound variables. This method simulates a sequence
@@ -231,11 +276,10 @@ public class InMemoryExpressionFactory
         }
 
         // evaluate each candidate
-        List projected = new ArrayList(matches.size());
-        for (Object match : matches)
-            projected.add(project(match, exps, exps.grouping.length > 0,
-                    ctx, params));
-        return projected;
+        final boolean agg = exps.grouping.length > 0;
+        Object[] projected = evaluate(exps, matches, agg, ctx,
+            match -> project(match, exps, agg, ctx, params));
+        return new ArrayList(Arrays.asList(projected));
     }
 
     /**
@@ -249,12 +293,8 @@ public class InMemoryExpressionFactory
         // calcualte result values
         Object result = null;
         for (int i = 0; i < exps.projections.length; i++) {
-            if (agg)
-                result = ((Val) exps.projections[i]).evaluate((Collection)
-                    candidate, null, ctx, params);
-            else
-                result = ((Val) exps.projections[i]).evaluate(candidate,
-                    candidate, ctx, params);
+            result = evaluate(exps, (Val) exps.projections[i], candidate,
+                agg, ctx, params);
             projection[i] = result;
         }
 
@@ -271,20 +311,130 @@ public class InMemoryExpressionFactory
             }
 
             // not selected as result; calculate value
-            if (!repeat) {
-                if (agg)
-                    result = ((Val) exps.ordering[i]).evaluate((Collection)
-                        candidate, null, ctx, params);
-                else
-                    result = ((Val) exps.ordering[i]).evaluate(candidate,
-                        candidate, ctx, params);
-            }
+            if (!repeat)
+                result = evaluate(exps, (Val) exps.ordering[i], candidate,
+                    agg, ctx, params);
 
             projection[i + exps.projections.length] = result;
         }
         return projection;
     }
 
+    /**
+     * Evaluate the given value on the given candidate, or as an aggregate
+     * on the given group of candidates.
+     */
+    private Object evaluate(QueryExpressions exps, Val val, Object candidate,
+        boolean agg, final StoreContext ctx, final Object[] params) {
+        if (!agg)
+            return val.evaluate(candidate, candidate, ctx, params);
+
+        Collection group = (Collection) candidate;
+        if (_parallel > 0 && group.size() >= _parallel
+            && val instanceof AggregateVal && group instanceof List) {
+            // evaluate the aggregated value of each candidate, in parallel
+            // if possible, and aggregate the values in candidate order, as
+            // AggregateVal does
+            final Val arg = ((AggregateVal) val).getValue();
+            if (!arg.isAggregate() && !(arg instanceof Distinct)
+                && !(arg instanceof Cast)) {
+                Object[] args = evaluate(exps, (List) group, false, ctx,
+                    c -> arg.evaluate(c, c, ctx, params));
+                try {
+                    return ((AggregateVal) val).aggregate(Arrays.asList(args));
+                } catch (NullPointerException | ClassCastException e) {
+                    return null;
+                }
+            }
+        }
+        return val.evaluate(group, null, ctx, params);
+    }
+
+    /**
+     * Apply the given function to each of the given candidates, returning
+     * the results in candidate order. If there are at least
+     * {@link #getParallelThreshold} candidates and the given expressions
+     * can be evaluated off the calling thread, the candidates are
+     * partitioned and the partitions are evaluated in parallel.
+     *
+     * @param groups whether the candidates are groups of candidates
+     */
+    private Object[] evaluate(QueryExpressions exps, List candidates,
+        boolean groups, StoreContext ctx, final Function<Object, Object> fn) {
+        if (!(candidates instanceof RandomAccess))
+            candidates = new ArrayList(candidates);
+        final List list = candidates;
+        final Object[] results = new Object[list.size()];
+        final ResolvedPaths paths = newResolvedPaths(exps, results.length);
+        if (paths == null) {
+            for (int i = 0; i < results.length; i++)
+                results[i] = fn.apply(list.get(i));
+            return results;
+        }
+
+        // evaluating paths may go through the context, so resolve them on
+        // this thread; candidates whose paths can not be resolved from
+        // loaded state are evaluated on this thread after the others
+        final boolean[] deferred = new boolean[results.length];
+        for (int i = 0; i < results.length; i++) {
+            if (!groups)
+                deferred[i] = !paths.resolve(list.get(i), ctx);
+            else {
+                for (Object member : (Collection) list.get(i)) {
+                    if (!paths.resolve(member, ctx)) {
+                        deferred[i] = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        final int size = results.length;
+        final int parts = Math.min(size,
+            ForkJoinPool.getCommonPoolParallelism() * 4);
+        IntStream.range(0, parts).parallel().forEach(part -> {
+            int end = (int) ((long) size * (part + 1) / parts);
+            paths.bind();
+            try {
+                for (int i = (int) ((long) size * part / parts); i < end; i++)
+                    if (!deferred[i])
+                        results[i] = fn.apply(list.get(i));
+            } finally {
+                ResolvedPaths.unbind();
+            }
+        });
+
+        for (int i = 0; i < size; i++)
+            if (deferred[i])
+                results[i] = fn.apply(list.get(i));
+        return results;
+    }
+
+    /**
+     * Return the paths to resolve for evaluating the given number of
+     * candidates in parallel, or null if they are to be evaluated on the
+     * calling thread.
+     */
+    private ResolvedPaths newResolvedPaths(QueryExpressions exps, int size) {
+        if (_parallel <= 0 || size < _parallel
+            || (_unbounds != null && !_unbounds.isEmpty())
+            || ResolvedPaths.current() != null)
+            return null;
+
+        ParallelVisitor visitor = new ParallelVisitor();
+        if (exps.filter != null)
+            exps.filter.acceptVisit(visitor);
+        if (exps.having != null)
+            exps.having.acceptVisit(visitor);
+        for (Value val : exps.projections)
+            val.acceptVisit(visitor);
+        for (Value val : exps.grouping)
+            val.acceptVisit(visitor);
+        for (Value val : exps.ordering)
+            val.acceptVisit(visitor);
+        return (visitor.parallel) ? new ResolvedPaths(visitor.paths) : null;
+    }
+
     /**
      * Order the given list of matches on the given value.
      */
@@ -306,6 +456,10 @@ public class InMemoryExpressionFactory
 
         int results = (projected) ? exps.projections.length : 0;
         boolean[] asc = (projected) ? exps.ascending : null;
+        if (_parallel > 0 && matches.size() >= _parallel)
+            return order(exps, orderValues, results, asc, matches, ctx,
+                params);
+
         int idx;
         for (int i = orderValues.length - 1; i >= 0; i--) {
             // if this is a projection, then in project() we must have selected
@@ -318,6 +472,49 @@ public class InMemoryExpressionFactory
         return matches;
     }
 
+    /**
+     * Order the given list of matches on the given values, evaluating each
+     * value once per match, in parallel if possible, and sorting in
+     * parallel. The resulting order is the same as that of sorting on each
+     * value in turn, starting with the last.
+     *
+     * @param results the number of projection values of projected matches,
+     * after which the ordering values have been selected; 0 if the matches
+     * have not been projected
+     */
+    private List order(QueryExpressions exps, final Value[] orderValues,
+        int results, boolean[] asc, List matches, final StoreContext ctx,
+        final Object[] params) {
+        OrderedMatch[] ordered = new OrderedMatch[matches.size()];
+        if (results > 0) {
+            int i = 0;
+            for (Object match : matches)
+                ordered[i++] = new OrderedMatch(match, (Object[]) match,
+                    results);
+        } else {
+            if (!(matches instanceof RandomAccess))
+                matches = new ArrayList(matches);
+            Object[] values = evaluate(exps, matches, false, ctx, match -> {
+                Object[] vals = new Object[orderValues.length];
+                for (int i = 0; i < vals.length; i++)
+                    vals[i] = ((Val) orderValues[i]).evaluate(match, match,
+                        ctx, params);
+                return vals;
+            });
+            for (int i = 0; i < ordered.length; i++)
+                ordered[i] = new OrderedMatch(matches.get(i),
+                    (Object[]) values[i], 0);
+        }
+
+        // the sort is stable, as are the successive sorts it stands for
+        Arrays.parallelSort(ordered,
+            new OrderedMatchComparator(orderValues.length, asc));
+        List sorted = new ArrayList(ordered.length);
+        for (OrderedMatch match : ordered)
+            sorted.add(match.match);
+        return sorted;
+    }
+
     /**
      * Filter the given list of matches, removing duplicate entries.
      */
@@ -861,12 +1058,19 @@ public class InMemoryExpressionFactory
                 o2 = _val.evaluate(o2, o2, _ctx, _params);
             }
 
+            return compare(o1, o2, _asc);
+        }
+
+        /**
+         * Compare the given ordering values.
+         */
+        static int compare(Object o1, Object o2, boolean asc) {
             if (o1 == null && o2 == null)
                 return 0;
             if (o1 == null)
-                return (_asc) ? 1 : -1;
+                return (asc) ? 1 : -1;
             if (o2 == null)
-                return (_asc) ? -1 : 1;
+                return (asc) ? -1 : 1;
 
             if (o1 instanceof Boolean && o2 instanceof Boolean) {
                 int i1 = (Boolean) o1 ? 1 : 0;
@@ -875,7 +1079,7 @@ public class InMemoryExpressionFactory
             }
 
             try {
-                if (_asc)
+                if (asc)
                     return ((Comparable) o1).compareTo(o2);
                 return ((Comparable) o2).compareTo(o1);
             } catch (ClassCastException cce) {
@@ -886,6 +1090,74 @@ public class InMemoryExpressionFactory
 		}
 	}
 
+    /**
+     * A match and the values it is ordered on.
+     */
+    private static class OrderedMatch {
+
+        final Object match;
+        final Object[] values;
+        final int offset;
+
+        OrderedMatch(Object match, Object[] values, int offset) {
+            this.match = match;
+            this.values = values;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Comparator of matches on each of their ordering values in turn, as
+     * compared by {@link OrderValueComparator}.
+     */
+    private static class OrderedMatchComparator
+        implements Comparator<OrderedMatch> {
+
+        private final int _len;
+        private final boolean[] _asc;
+
+        private OrderedMatchComparator(int len, boolean[] asc) {
+            _len = len;
+            _asc = asc;
+        }
+
+        @Override
+        public int compare(OrderedMatch m1, OrderedMatch m2) {
+            int cmp;
+            for (int i = 0; i < _len; i++) {
+                cmp = OrderValueComparator.compare(m1.values[m1.offset + i],
+                    m2.values[m2.offset + i], _asc == null || _asc[i]);
+                if (cmp != 0)
+                    return cmp;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Collects the candidate paths of a query, and detects values that can
+     * not be evaluated off the calling thread: variables, whose values are
+     * set during evaluation, subqueries, listeners, which need not be thread
+     * safe, and values that go through the context.
+     */
+    private static class ParallelVisitor
+        extends AbstractExpressionVisitor {
+
+        final Set<CandidatePath> paths =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+        boolean parallel = true;
+
+        @Override
+        public void enter(Value val) {
+            if (val.getClass() == CandidatePath.class)
+                paths.add((CandidatePath) val);
+            else if (val instanceof CandidatePath || val.isVariable()
+                || val instanceof SubQ || val instanceof Extension
+                || val instanceof Aggregate || val instanceof GetObjectId)
+                parallel = false;
+        }
+    }
+
     @Override
     public Value generalCaseExpression(Expression[] exp, Value val) {
         Exp[] exps = new Exp[exp.length];
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel.exps;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.openjpa.kernel.StoreContext;
+import org.apache.openjpa.util.InternalException;
+
+/**
+ * Values of candidate paths resolved ahead of a parallel in-memory
+ * evaluation. Traversing a path may load state through the context, which
+ * is not thread safe, so the paths of a query are resolved on the calling
+ * thread before the candidates are partitioned, and the threads that
+ * evaluate the partitions look the resolved values up instead.
+ */
+class ResolvedPaths {
+
+    /**
+     * Returned by {@link CandidatePath#resolve} for a path that can not be
+     * resolved without going through the context.
+     */
+    static final Object UNRESOLVED = new Object();
+
+    private static final ThreadLocal<ResolvedPaths> _current =
+        new ThreadLocal<>();
+
+    private final Map<CandidatePath, Map<Object, Object>> _values =
+        new IdentityHashMap<>();
+
+    /**
+     * Constructor. Supply the paths to resolve.
+     */
+    public ResolvedPaths(Collection<CandidatePath> paths) {
+        for (CandidatePath path : paths)
+            _values.put(path, new IdentityHashMap<>());
+    }
+
+    /**
+     * Return the resolved paths bound to the current thread, if any.
+     */
+    public static ResolvedPaths current() {
+        return _current.get();
+    }
+
+    /**
+     * Bind these paths to the current thread for the evaluation of a
+     * partition.
+     */
+    public void bind() {
+        _current.set(this);
+    }
+
+    /**
+     * Unbind the paths bound to the current thread.
+     */
+    public static void unbind() {
+        _current.remove();
+    }
+
+    /**
+     * Resolve all paths on the given candidate. Return false if some path
+     * can not be resolved without going through the context, in which case
+     * the candidate must be evaluated on the calling thread.
+     */
+    public boolean resolve(Object candidate, StoreContext ctx) {
+        Object value;
+        for (Map.Entry<CandidatePath, Map<Object, Object>> entry
+            : _values.entrySet()) {
+            try {
+                value = entry.getKey().resolve(candidate, ctx);
+                if (value == UNRESOLVED)
+                    return false;
+            } catch (RuntimeException re) {
+                // rethrown if and when the path is evaluated, as it would
+                // have been on the calling thread
+                value = new Failure(re);
+            }
+            entry.getValue().put(candidate, value);
+        }
+        return true;
+    }
+
+    /**
+     * Return the resolved value of the given path on the given candidate.
+     */
+    public Object get(CandidatePath path, Object candidate) {
+        Map<Object, Object> values = _values.get(path);
+        if (values == null || !values.containsKey(candidate))
+            throw new InternalException();
+
+        Object value = values.get(candidate);
+        if (value instanceof Failure)
+            throw ((Failure) value).exception;
+        return value;
+    }
+
+    /**
+     * Exception raised while resolving a path.
+     */
+    private static class Failure {
+
+        final RuntimeException exception;
+
+        Failure(RuntimeException exception) {
+            this.exception = exception;
+        }
+    }
+}
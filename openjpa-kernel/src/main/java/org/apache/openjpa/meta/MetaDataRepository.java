@@ -18,6 +18,8 @@
  */
 package org.apache.openjpa.meta;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
@@ -34,6 +36,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.enhance.DynamicPersistenceCapable;
@@ -112,6 +115,15 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
     // to metadatas
     private Map<Class<?>, ClassMetaData> _metas = new HashMap<>();
     private Map<String, ClassMetaData> _metaStringMap = new ConcurrentHashMap<>();
+    // fully resolved metadata, read without locking
+    private Map<Class<?>, ClassMetaData> _resolved = new ConcurrentHashMap<>();
+    // the same by alias and by application identity class; a registration
+    // may change these lookups, so it invalidates them
+    private transient Map<String, ResolvedAlias> _resolvedAliases =
+        new ConcurrentHashMap<>();
+    private transient Map<Class<?>, ClassMetaData> _resolvedOids =
+        new ConcurrentHashMap<>();
+    private final AtomicInteger _resolvedGeneration = new AtomicInteger();
     private Map<Class<?>, Class<?>> _oids = Collections.synchronizedMap(new HashMap<>());
     private Map<Class<?>, Collection<Class<?>>> _impls =
         Collections.synchronizedMap(new HashMap<>());
@@ -249,6 +261,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public void setResolve(int mode) {
         _resMode = mode;
+        clearResolved();
     }
 
     /**
@@ -261,6 +274,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
             _resMode |= mode;
         else
             _resMode &= ~mode;
+        clearResolved();
     }
 
     /**
@@ -277,6 +291,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public void setSourceMode(int mode) {
         _sourceMode = mode;
+        clearResolved();
     }
 
     /**
@@ -290,6 +305,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
             _sourceMode |= mode;
         else
             _sourceMode &= ~mode;
+        clearResolved();
     }
 
     /**
@@ -390,8 +406,17 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public ClassMetaData getMetaData(Class<?> cls, ClassLoader envLoader, boolean mustExist) {
         if (_locking) {
+            // metadata that has completed resolution does not change, so
+            // it can be returned without waiting for other resolutions
+            ClassMetaData meta = (cls == null) ? null : _resolved.get(cls);
+            if (meta != null)
+                return meta;
             synchronized(this){
-                return getMetaDataInternal(cls, envLoader, mustExist);
+                meta = getMetaDataInternal(cls, envLoader, mustExist);
+                if (meta != null && (meta.getResolve() & _resMode) == _resMode
+                    && _metas.get(meta.getDescribedType()) == meta)
+                    _resolved.put(cls, meta);
+                return meta;
             }
         } else {
             return getMetaDataInternal(cls, envLoader, mustExist);
@@ -441,6 +466,13 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         if (alias == null)
             return null;
 
+        if (_locking) {
+            ResolvedAlias resolved = _resolvedAliases.get(alias);
+            if (resolved != null && resolved.loader == envLoader)
+                return resolved.meta;
+        }
+        int generation = _resolvedGeneration.get();
+
         // check cache
         processRegisteredClasses(envLoader);
         List<Class<?>> classList = _aliases.get(alias);
@@ -473,8 +505,13 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
                 // other class loading problems
             }
         }
-        if (cls != null)
-            return getMetaData(cls, envLoader, mustExist);
+        if (cls != null) {
+            ClassMetaData meta = getMetaData(cls, envLoader, mustExist);
+            if (_locking && meta != null && _resolved.get(cls) == meta)
+                putResolved(_resolvedAliases, alias,
+                    new ResolvedAlias(envLoader, meta), generation);
+            return meta;
+        }
 
         // maybe this is some type we've seen but just isn't valid
         if (_aliases.containsKey(alias)) {
@@ -944,7 +981,8 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
     private ClassMetaData metasPutInternal(Class<?> cls, ClassMetaData meta){
             if (_pawares.containsKey(cls))
                 throw new MetaDataException(_loc.get("pc-and-aware", cls));
-            _metas.put(cls, meta);
+            if (_metas.put(cls, meta) != null)
+                clearResolved();
         return meta;
     }
 
@@ -1090,6 +1128,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
     private boolean removeMetaDataInternal(Class<?> cls) {
             if (cls == null)
                 return false;
+            clearResolved();
             if (_metas.remove(cls) != null) {
                 Class<?> impl = _ifaces.remove(cls);
                 if (impl != null)
@@ -1176,11 +1215,18 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
             return getMetaData(cls, envLoader, mustExist);
         }
 
+        if (_locking) {
+            ClassMetaData meta = _resolvedOids.get(oid.getClass());
+            if (meta != null)
+                return meta;
+        }
+        int generation = _resolvedGeneration.get();
+
         // check cache
         processRegisteredClasses(envLoader);
         Class<?> cls = _oids.get(oid.getClass());
         if (cls != null)
-            return getMetaData(cls, envLoader, mustExist);
+            return getOidMetaData(oid, cls, envLoader, mustExist, generation);
 
         // maybe this is some type we've seen but just isn't valid
         if (_oids.containsKey(oid.getClass())) {
@@ -1195,7 +1241,8 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         if (processRegisteredClasses(envLoader).length > 0) {
             cls = _oids.get(oid.getClass());
             if (cls != null)
-                return getMetaData(cls, envLoader, mustExist);
+                return getOidMetaData(oid, cls, envLoader, mustExist,
+                    generation);
         }
 
         // record that this is an invalid type
@@ -1206,6 +1253,41 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         throw new MetaDataException(_loc.get("no-oid-meta", oid, oid.getClass(), _oids)).setFailedObject(oid);
     }
 
+    /**
+     * Return the metadata for the given class, which the class of the given
+     * oid maps to. Fully resolved metadata is remembered for lock-free
+     * lookups by oid class.
+     */
+    private ClassMetaData getOidMetaData(Object oid, Class<?> cls,
+        ClassLoader envLoader, boolean mustExist, int generation) {
+        ClassMetaData meta = getMetaData(cls, envLoader, mustExist);
+        if (_locking && meta != null && _resolved.get(cls) == meta)
+            putResolved(_resolvedOids, oid.getClass(), meta, generation);
+        return meta;
+    }
+
+    /**
+     * Remember the given resolved lookup, unless lookups have been
+     * invalidated since the given generation.
+     */
+    private <K, V> void putResolved(Map<K, V> resolved, K key, V val,
+        int generation) {
+        resolved.put(key, val);
+        // an invalidation in the meantime may have missed this entry
+        if (_resolvedGeneration.get() != generation)
+            resolved.remove(key, val);
+    }
+
+    /**
+     * Forget all metadata that is returned without locking.
+     */
+    private void clearResolved() {
+        _resolvedGeneration.incrementAndGet();
+        _resolved.clear();
+        _resolvedAliases.clear();
+        _resolvedOids.clear();
+    }
+
     /**
      * Make some guesses about the name of a target class for an unknown application identity class.
      */
@@ -1462,6 +1544,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
     private void clearInternal(){
         // Recreating these datastructures is probably faster than calling clear. Future change?
             _metas.clear();
+            clearResolved();
             _oids.clear();
             _subs.clear();
             _impls.clear();
@@ -1631,6 +1714,10 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
             _registered.add(cls);
             registerAlias(cls);
         }
+        // the new class may change alias and oid lookups
+        _resolvedGeneration.incrementAndGet();
+        _resolvedAliases.clear();
+        _resolvedOids.clear();
     }
 
     /**
@@ -2436,6 +2523,28 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         clear();
     }
 
+    private void readObject(ObjectInputStream in)
+        throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        _resolvedAliases = new ConcurrentHashMap<>();
+        _resolvedOids = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Fully resolved metadata for an alias, and the environmental class
+     * loader it was looked up with.
+     */
+    private static class ResolvedAlias {
+
+        final ClassLoader loader;
+        final ClassMetaData meta;
+
+        ResolvedAlias(ClassLoader loader, ClassMetaData meta) {
+            this.loader = loader;
+            this.meta = meta;
+        }
+    }
+
     /**
      * Query key struct.
      */
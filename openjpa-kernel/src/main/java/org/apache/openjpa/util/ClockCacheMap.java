@@ -0,0 +1,562 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link CacheMap} that does not guard lookups and updates with a global
+ * lock. Entries live in a single striped concurrent hash table and are
+ * evicted with the CLOCK (second chance) algorithm: a read only sets a
+ * reference bit on the entry, and a single evicting thread at a time sweeps
+ * the table clearing bits and evicting entries that have not been referenced
+ * since the previous sweep. Threads that find another thread already evicting
+ * do not wait for it, so the hard cache may briefly overshoot its maximum
+ * size under heavy concurrent insertion.
+ * Pinned entries are flagged in place and are skipped by the sweep; evicted
+ * entries move to the inherited soft reference map as in the superclass.
+ * The {@link #readLock} methods are no-ops, and {@link #writeLock} only
+ * serializes callers that explicitly request it against each other.
+ *
+ * @since 4.1.2
+ */
+public class ClockCacheMap
+    extends CacheMap {
+
+    private final ConcurrentHashMap<Object, Node> _entries;
+
+    // number of unpinned entries with hard references
+    private final AtomicInteger _hardSize = new AtomicInteger();
+
+    // number of pinned values (not including keys not mapped to values)
+    private final AtomicInteger _pinnedSize = new AtomicInteger();
+
+    // serializes evicting threads; never waited on
+    private final ReentrantLock _evictLock = new ReentrantLock();
+
+    // serializes explicit writeLock() callers such as data cache commits
+    private final ReentrantLock _writeLock = new ReentrantLock();
+
+    // clock hand; only accessed while holding _evictLock
+    private Iterator<Node> _hand = null;
+
+    private volatile int _max;
+
+    /**
+     * Create a cache map with a size of 1000.
+     */
+    public ClockCacheMap() {
+        this(1000);
+    }
+
+    /**
+     * Create a cache map with the given maximum number of hard references.
+     */
+    public ClockCacheMap(int max) {
+        this(max, max / 2, .75F, 16);
+    }
+
+    /**
+     * Create a cache map with the given properties.
+     */
+    public ClockCacheMap(int max, int size, float load, int concurrencyLevel) {
+        // the superclass hard map is never used; keep it minimal
+        super(false, 0, size, load, concurrencyLevel);
+        if (size < 0)
+            size = 500;
+        _entries = new ConcurrentHashMap<>(size, load, concurrencyLevel);
+        _max = (max < 0) ? Integer.MAX_VALUE : max;
+    }
+
+    @Override
+    protected void cacheMapOverflowRemoved(Object key, Object value) {
+        // superclass hard map is unused
+    }
+
+    @Override
+    public void readLock() {
+    }
+
+    @Override
+    public void readUnlock() {
+    }
+
+    @Override
+    public void writeLock() {
+        _writeLock.lock();
+    }
+
+    @Override
+    public void writeUnlock() {
+        _writeLock.unlock();
+    }
+
+    /**
+     * CLOCK eviction approximates LRU order.
+     */
+    @Override
+    public boolean isLRU() {
+        return true;
+    }
+
+    @Override
+    public void setCacheSize(int size) {
+        _max = (size < 0) ? Integer.MAX_VALUE : size;
+        evict();
+    }
+
+    @Override
+    public int getCacheSize() {
+        return (_max == Integer.MAX_VALUE) ? -1 : _max;
+    }
+
+    @Override
+    public void setSoftReferenceSize(int size) {
+        softMap.setMaxSize((size < 0) ? Integer.MAX_VALUE : size);
+    }
+
+    @Override
+    public Set getPinnedKeys() {
+        Set keys = new HashSet();
+        for (Node node : _entries.values())
+            if (node.pinned)
+                keys.add(node.key);
+        return Collections.unmodifiableSet(keys);
+    }
+
+    @Override
+    public boolean pin(Object key) {
+        final boolean[] pinned = new boolean[1];
+        _entries.compute(key, (k, node) -> {
+            if (node == null) {
+                node = new Node(k, remove(softMap, k));
+                node.pinned = true;
+                if (node.value != null)
+                    _pinnedSize.incrementAndGet();
+            } else if (!node.pinned) {
+                node.pinned = true;
+                _hardSize.decrementAndGet();
+                _pinnedSize.incrementAndGet();
+            }
+            pinned[0] = node.value != null;
+            return node;
+        });
+        return pinned[0];
+    }
+
+    @Override
+    public boolean unpin(Object key) {
+        final boolean[] unpinned = new boolean[1];
+        _entries.computeIfPresent(key, (k, node) -> {
+            if (!node.pinned)
+                return node;
+            if (node.value == null)
+                return null;
+            node.pinned = false;
+            _pinnedSize.decrementAndGet();
+            _hardSize.incrementAndGet();
+            unpinned[0] = true;
+            return node;
+        });
+        if (unpinned[0])
+            evict();
+        return unpinned[0];
+    }
+
+    @Override
+    public Object get(Object key) {
+        Node node = _entries.get(key);
+        if (node != null) {
+            // avoid dirtying the cache line when the bit is already set
+            if (!node.referenced)
+                node.referenced = true;
+            return node.value;
+        }
+
+        Object val = softMap.get(key);
+        if (val != null)
+            put(key, val);
+        return val;
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        final Object[] prev = new Object[1];
+        final boolean[] added = new boolean[1];
+        _entries.compute(key, (k, node) -> {
+            if (node == null) {
+                // if no hard refs, don't put anything
+                if (_max == 0)
+                    return null;
+                _hardSize.incrementAndGet();
+                added[0] = true;
+                return new Node(k, value);
+            }
+            prev[0] = node.value;
+            node.value = value;
+            node.referenced = true;
+            if (node.pinned && prev[0] == null)
+                _pinnedSize.incrementAndGet();
+            added[0] = true;
+            return node;
+        });
+        if (!added[0])
+            return null;
+
+        // always clear the soft map so that no stale value survives there
+        Object val = remove(softMap, key);
+        if (prev[0] != null)
+            val = prev[0];
+        if (val != null)
+            entryRemoved(key, val, false);
+        entryAdded(key, value);
+        evict();
+        return val;
+    }
+
+    /**
+     * If <code>key</code> is pinned into the cache, the pin is
+     * retained and only the value is removed.
+     */
+    @Override
+    public Object remove(Object key) {
+        final Object[] prev = new Object[1];
+        _entries.computeIfPresent(key, (k, node) -> {
+            prev[0] = node.value;
+            if (node.pinned) {
+                // we still want key pinned
+                node.value = null;
+                if (prev[0] != null)
+                    _pinnedSize.decrementAndGet();
+                return node;
+            }
+            _hardSize.decrementAndGet();
+            return null;
+        });
+
+        Object val = softMap.remove(key);
+        if (prev[0] != null)
+            val = prev[0];
+        if (val != null)
+            entryRemoved(key, val, false);
+        return val;
+    }
+
+    /**
+     * Removes pinned objects as well as unpinned ones.
+     */
+    @Override
+    public void clear() {
+        for (Node node : _entries.values()) {
+            Object val = removeNode(node);
+            if (val != null)
+                entryRemoved(node.key, val, false);
+        }
+
+        Map.Entry entry;
+        for (Object o : softMap.entrySet()) {
+            entry = (Map.Entry) o;
+            if (entry.getValue() != null)
+                entryRemoved(entry.getKey(), entry.getValue(), false);
+        }
+        softMap.clear();
+    }
+
+    @Override
+    public int size() {
+        return _pinnedSize.get() + _hardSize.get() + softMap.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Node node = _entries.get(key);
+        if (node != null && node.value != null)
+            return true;
+        return softMap.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object val) {
+        for (Node node : _entries.values())
+            if (val.equals(node.value))
+                return true;
+        return softMap.containsValue(val);
+    }
+
+    @Override
+    public Set keySet() {
+        return new KeySet();
+    }
+
+    @Override
+    public Collection values() {
+        return new ValueCollection();
+    }
+
+    @Override
+    public Set entrySet() {
+        return new EntrySet();
+    }
+
+    @Override
+    public String toString() {
+        return "ClockCacheMap:" + _entries.toString() + "::"
+            + softMap.toString();
+    }
+
+    /**
+     * Evict unreferenced entries until the hard cache is back within its
+     * maximum size. Returns immediately if another thread is evicting.
+     */
+    private void evict() {
+        if (_hardSize.get() <= _max || !_evictLock.tryLock())
+            return;
+        try {
+            // each sweep either clears a reference bit or evicts, so two
+            // passes over the table always make progress
+            int budget = 2 * _entries.size() + 1;
+            Node node;
+            while (_hardSize.get() > _max && budget-- > 0) {
+                if (_hand == null || !_hand.hasNext()) {
+                    _hand = _entries.values().iterator();
+                    if (!_hand.hasNext())
+                        break;
+                }
+                node = _hand.next();
+                if (node.pinned)
+                    continue;
+                if (node.referenced) {
+                    node.referenced = false;
+                    continue;
+                }
+
+                Object val = evictNode(node);
+                if (val != null)
+                    entryRemoved(node.key, val, true);
+            }
+        } finally {
+            _evictLock.unlock();
+        }
+    }
+
+    /**
+     * Atomically remove the given node, pinned or not, if it is still
+     * mapped, returning its value at the time of removal.
+     */
+    private Object removeNode(Node node) {
+        final Object[] prev = new Object[1];
+        _entries.computeIfPresent(node.key, (k, cur) -> {
+            if (cur != node)
+                return cur;
+            prev[0] = cur.value;
+            if (!cur.pinned)
+                _hardSize.decrementAndGet();
+            else if (cur.value != null)
+                _pinnedSize.decrementAndGet();
+            return null;
+        });
+        return prev[0];
+    }
+
+    /**
+     * Atomically remove the given unpinned node if it is still mapped, and
+     * move its value to the soft map in the same update, so that a
+     * concurrent put or remove of the key cannot be overwritten by the move.
+     * Returns the value if it was dropped because the soft map is full.
+     */
+    private Object evictNode(Node node) {
+        final Object[] dropped = new Object[1];
+        _entries.computeIfPresent(node.key, (k, cur) -> {
+            if (cur != node || cur.pinned)
+                return cur;
+            _hardSize.decrementAndGet();
+            if (cur.value != null) {
+                if (softMap.size() < softMap.getMaxSize())
+                    put(softMap, k, cur.value);
+                else
+                    dropped[0] = cur.value;
+            }
+            return null;
+        });
+        return dropped[0];
+    }
+
+    /**
+     * Snapshot of the current entries with non-null values.
+     */
+    private List<Map.Entry> snapshot() {
+        List<Map.Entry> entries = new ArrayList<>(_entries.size()
+            + softMap.size());
+        Object val;
+        for (Node node : _entries.values()) {
+            val = node.value;
+            if (val != null)
+                entries.add(new AbstractMap.SimpleImmutableEntry(node.key,
+                    val));
+        }
+        Map.Entry entry;
+        for (Object o : softMap.entrySet()) {
+            entry = (Map.Entry) o;
+            if (entry.getValue() != null)
+                entries.add(new AbstractMap.SimpleImmutableEntry(
+                    entry.getKey(), entry.getValue()));
+        }
+        return entries;
+    }
+
+    /**
+     * Cache entry. The value and pinned flag are mutated only inside hash
+     * table compute functions, which the table serializes per key. The
+     * reference bit is also set by {@link #get} and cleared by the sweep
+     * without any lock; a lost update only affects eviction order.
+     */
+    private static final class Node {
+
+        final Object key;
+        volatile Object value;
+        volatile boolean pinned;
+        volatile boolean referenced;
+
+        Node(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+
+    /**
+     * View of the entry set.
+     */
+    private class EntrySet
+        extends AbstractSet {
+
+        @Override
+        public int size() {
+            return ClockCacheMap.this.size();
+        }
+
+        @Override
+        public boolean add(Object o) {
+            Map.Entry entry = (Map.Entry) o;
+            put(entry.getKey(), entry.getValue());
+            return true;
+        }
+
+        @Override
+        public Iterator iterator() {
+            return new EntryIterator(EntryIterator.ENTRY);
+        }
+    }
+
+    /**
+     * View of the key set.
+     */
+    private class KeySet
+        extends AbstractSet {
+
+        @Override
+        public int size() {
+            return ClockCacheMap.this.size();
+        }
+
+        @Override
+        public Iterator iterator() {
+            return new EntryIterator(EntryIterator.KEY);
+        }
+    }
+
+    /**
+     * View of the value collection.
+     */
+    private class ValueCollection
+        extends AbstractCollection {
+
+        @Override
+        public int size() {
+            return ClockCacheMap.this.size();
+        }
+
+        @Override
+        public Iterator iterator() {
+            return new EntryIterator(EntryIterator.VALUE);
+        }
+    }
+
+    /**
+     * Weakly consistent iterator over a snapshot of all entries.
+     */
+    private class EntryIterator
+        implements Iterator {
+
+        public static final int ENTRY = 0;
+        public static final int KEY = 1;
+        public static final int VALUE = 2;
+
+        private final Iterator<Map.Entry> _itr = snapshot().iterator();
+        private final int _type;
+        private Map.Entry _last = null;
+
+        public EntryIterator(int type) {
+            _type = type;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _itr.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            _last = _itr.next();
+            switch (_type) {
+                case KEY:
+                    return _last.getKey();
+                case VALUE:
+                    return _last.getValue();
+                default:
+                    return _last;
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (_last == null)
+                throw new IllegalStateException();
+            ClockCacheMap.this.remove(_last.getKey());
+            _last = null;
+        }
+    }
+}
@@ -85,6 +85,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
     private int _warningAction = WARN_IGNORE;
     private SQLWarningHandler _warningHandler;
     private boolean _printParameters = false;
+    private volatile SQLStatistics _stats = null;
 
     /**
      * If set to <code>true</code>, pretty-print SQL by running it
@@ -181,6 +182,27 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
         return _logs;
     }
 
+    /**
+     * Statistics to record the execution times, batch sizes and fetched
+     * rows of statements into, or null to record none. Statistics are
+     * recorded independently of logging.
+     *
+     * @since 4.1.2
+     */
+    public SQLStatistics getSQLStatistics() {
+        return _stats;
+    }
+
+    /**
+     * Statistics to record the execution times, batch sizes and fetched
+     * rows of statements into, or null to record none.
+     *
+     * @since 4.1.2
+     */
+    public void setSQLStatistics(SQLStatistics stats) {
+        _stats = stats;
+    }
+
     @Override
     public Connection decorate(Connection conn) throws SQLException {
         return newLoggingConnection(conn);
@@ -557,6 +579,39 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 _logs.logSQL("spent", startTime, this);
         }
 
+        /**
+         * Return the start time to record statement statistics from, if
+         * statistics are being collected.
+         */
+        private long startTiming() {
+            return (_stats == null) ? Long.MIN_VALUE : System.nanoTime();
+        }
+
+        /**
+         * Log time elapsed since given start, and record the execution of
+         * the given SQL since the given nano time start.
+         */
+        private void logTime(long startTime, String sql, long startNanos)
+            throws SQLException {
+            SQLStatistics stats = _stats;
+            if (stats != null && startNanos != Long.MIN_VALUE)
+                stats.recordExecution(sql, System.nanoTime() - startNanos);
+            logTime(startTime);
+        }
+
+        /**
+         * Log time elapsed since given start, and record the execution of
+         * a batch of the given SQL since the given nano time start.
+         */
+        private void logBatchTime(long startTime, String sql, long startNanos,
+            int size)
+            throws SQLException {
+            SQLStatistics stats = _stats;
+            if (stats != null && startNanos != Long.MIN_VALUE)
+                stats.recordBatch(sql, System.nanoTime() - startNanos, size);
+            logTime(startTime);
+        }
+
         /**
          * Log time elapsed since given start.
          */
@@ -895,7 +950,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             }
 
             private LoggingResultSet newLoggingResultSet(ResultSet rs, Statement stmnt) {
-                return new LoggingResultSet(rs, stmnt);
+                return new LoggingResultSet(rs, stmnt, _sql);
             }
 
             @Override
@@ -931,6 +986,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 _sql = sql;
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeQuery(sql, wrap);
@@ -938,7 +994,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     handleSQLErrors(LoggingStatement.this, err);
                 }
             }
@@ -948,6 +1004,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 _sql = sql;
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeUpdate(sql);
@@ -955,7 +1012,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     handleSQLErrors(LoggingStatement.this, err);
                 }
             }
@@ -965,6 +1022,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 _sql = sql;
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.execute(sql);
@@ -972,7 +1030,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     handleSQLErrors(LoggingStatement.this, err);
                 }
             }
@@ -982,6 +1040,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 _sql = sql;
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeUpdate(sql, i);
@@ -989,7 +1048,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     handleSQLErrors(LoggingStatement.this, err);
                 }
             }
@@ -999,6 +1058,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 _sql = sql;
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeUpdate(sql, ia);
@@ -1006,7 +1066,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     handleSQLErrors(LoggingStatement.this, err);
                 }
             }
@@ -1016,6 +1076,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 _sql = sql;
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeUpdate(sql, sa);
@@ -1023,7 +1084,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     handleSQLErrors(LoggingStatement.this, err);
                 }
             }
@@ -1033,6 +1094,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 _sql = sql;
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.execute(sql, i);
@@ -1040,7 +1102,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     handleSQLErrors(LoggingStatement.this, err);
                 }
             }
@@ -1050,6 +1112,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 _sql = sql;
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.execute(sql, ia);
@@ -1057,7 +1120,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     handleSQLErrors(LoggingStatement.this, err);
                 }
             }
@@ -1067,6 +1130,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 _sql = sql;
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.execute(sql, sa);
@@ -1074,7 +1138,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     handleSQLErrors(LoggingStatement.this, err);
                 }
             }
@@ -1086,6 +1150,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             private final String _sql;
             private List<String> _params = null;
             private List<List<String>> _paramBatch = null;
+            private int _batchSize = 0;
             // When batching is used, this variable contains the index into the
             // last successfully executed batched statement.
             int batchedRowsBaseIndex = 0;
@@ -1098,7 +1163,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
 
             private LoggingResultSet newLoggingResultSet(ResultSet rs,
                 PreparedStatement stmnt) {
-                return new LoggingResultSet(rs, stmnt);
+                return new LoggingResultSet(rs, stmnt, _sql);
             }
 
             @Override
@@ -1113,6 +1178,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeQuery(sql, wrap);
@@ -1120,7 +1186,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingPreparedStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingPreparedStatement.this, err);
                 }
@@ -1130,6 +1196,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public int executeUpdate(String sql) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeUpdate(sql);
@@ -1137,7 +1204,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err =  wrap(se, LoggingPreparedStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingPreparedStatement.this, err);
                 }
@@ -1147,6 +1214,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public boolean execute(String sql) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.execute(sql);
@@ -1154,7 +1222,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingPreparedStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingPreparedStatement.this, err);
                 }
@@ -1164,6 +1232,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             protected ResultSet executeQuery(boolean wrap) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeQuery(wrap);
@@ -1171,7 +1240,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingPreparedStatement.this, _sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, _sql, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingPreparedStatement.this, err);
                 }
@@ -1181,6 +1250,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public int executeUpdate() throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeUpdate();
@@ -1188,7 +1258,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingPreparedStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, _sql, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingPreparedStatement.this, err);
                 }
@@ -1200,6 +1270,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
 
                 logBatchSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     int[] toReturn = super.executeBatch();
@@ -1270,7 +1341,8 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingPreparedStatement.this, indexOfFirstFailedObject);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logBatchTime(start, _sql, nanos, _batchSize);
+                    _batchSize = 0;
                     handleSQLErrors(LoggingPreparedStatement.this, err);
                 }
             }
@@ -1279,6 +1351,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public boolean execute() throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.execute();
@@ -1286,7 +1359,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingPreparedStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, _sql, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingPreparedStatement.this, err);
                 }
@@ -1296,6 +1369,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public int executeUpdate(String s, int i) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeUpdate(s, i);
@@ -1303,7 +1377,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingPreparedStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, s, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingPreparedStatement.this, err);
                 }
@@ -1313,6 +1387,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public int executeUpdate(String s, int[] ia) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeUpdate(s, ia);
@@ -1320,7 +1395,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingPreparedStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, s, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingPreparedStatement.this, err);
                 }
@@ -1330,6 +1405,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public int executeUpdate(String s, String[] sa) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeUpdate(s, sa);
@@ -1337,7 +1413,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingPreparedStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, s, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingPreparedStatement.this, err);
                 }
@@ -1347,6 +1423,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public boolean execute(String s, int i) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.execute(s, i);
@@ -1354,7 +1431,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingPreparedStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, s, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingPreparedStatement.this, err);
                 }
@@ -1364,6 +1441,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public boolean execute(String s, int[] ia) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.execute(s, ia);
@@ -1371,7 +1449,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingPreparedStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, s, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingPreparedStatement.this, err);
                 }
@@ -1381,6 +1459,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public boolean execute(String s, String[] sa) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.execute(s, sa);
@@ -1388,7 +1467,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingPreparedStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, s, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingPreparedStatement.this, err);
                 }
@@ -1550,6 +1629,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 long start = System.currentTimeMillis();
                 try {
                     super.addBatch();
+                    _batchSize++;
                     if (shouldTrackParameters()) {
                         // make sure our list is initialized
                         if (_paramBatch == null)
@@ -1569,6 +1649,12 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 }
             }
 
+            @Override
+            public void clearBatch() throws SQLException {
+                super.clearBatch();
+                _batchSize = 0;
+            }
+
             @Override
             public void setCharacterStream(int i1, Reader r, int i2)
                 throws SQLException {
@@ -1743,15 +1829,32 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
          */
         protected class LoggingResultSet extends DelegatingResultSet {
 
+            private final String _sql;
+            private int _rows = 0;
+
             public LoggingResultSet(ResultSet rs, Statement stmnt) {
+                this(rs, stmnt, null);
+            }
+
+            /**
+             * Constructor; supply the SQL of the result for statistics.
+             *
+             * @since 4.1.2
+             */
+            public LoggingResultSet(ResultSet rs, Statement stmnt,
+                String sql) {
                 super(rs, stmnt);
+                _sql = sql;
             }
 
             @Override
             public boolean next() throws SQLException {
                 SQLException err = null;
                 try {
-                    return super.next();
+                    boolean next = super.next();
+                    if (next)
+                        _rows++;
+                    return next;
                 } catch (SQLException se) {
                     err = se;
                     throw se;
@@ -1769,6 +1872,11 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = se;
                     throw se;
                 } finally {
+                    SQLStatistics stats = _stats;
+                    if (stats != null && _sql != null) {
+                        stats.recordRows(_sql, _rows);
+                        _rows = 0;
+                    }
                     handleSQLErrors(LoggingResultSet.this, err);
                 }
             }
@@ -1875,6 +1983,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             private final String _sql;
             private List<String> _params = null;
             private List<List<String>> _paramBatch = null;
+            private int _batchSize = 0;
             //When batching is used, this variable contains the index into the last
             //successfully executed batched statement.
             int batchedRowsBaseIndex = 0;
@@ -1887,7 +1996,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
 
             private LoggingResultSet newLoggingResultSet(ResultSet rs,
                 CallableStatement stmnt) {
-                return new LoggingResultSet(rs, stmnt);
+                return new LoggingResultSet(rs, stmnt, _sql);
             }
 
             protected ResultSet wrapResult(ResultSet rs, boolean wrap) {
@@ -1901,6 +2010,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeQuery(sql, wrap);
@@ -1908,7 +2018,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingCallableStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingCallableStatement.this, err);
                 }
@@ -1918,6 +2028,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public int executeUpdate(String sql) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeUpdate(sql);
@@ -1925,7 +2036,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingCallableStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingCallableStatement.this, err);
                 }
@@ -1935,6 +2046,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public boolean execute(String sql) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.execute(sql);
@@ -1942,7 +2054,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingCallableStatement.this, sql);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, sql, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingCallableStatement.this, err);
                 }
@@ -1952,6 +2064,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             protected ResultSet executeQuery(boolean wrap) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeQuery(wrap);
@@ -1959,7 +2072,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingCallableStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, _sql, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingCallableStatement.this, err);
                 }
@@ -1969,6 +2082,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public int executeUpdate() throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeUpdate();
@@ -1976,7 +2090,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingCallableStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, _sql, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingCallableStatement.this, err);
                 }
@@ -1988,6 +2102,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
 
                 logBatchSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     int[] toReturn = super.executeBatch();
@@ -2059,7 +2174,8 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingCallableStatement.this, indexOfFirstFailedObject);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logBatchTime(start, _sql, nanos, _batchSize);
+                    _batchSize = 0;
                     handleSQLErrors(LoggingCallableStatement.this, err);
                 }
             }
@@ -2068,6 +2184,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public boolean execute() throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.execute();
@@ -2075,7 +2192,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingCallableStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, _sql, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingCallableStatement.this, err);
                 }
@@ -2085,6 +2202,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public int executeUpdate(String s, int i) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeUpdate(s, i);
@@ -2092,7 +2210,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingCallableStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, s, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingCallableStatement.this, err);
                 }
@@ -2102,6 +2220,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public int executeUpdate(String s, int[] ia) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeUpdate(s, ia);
@@ -2109,7 +2228,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingCallableStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, s, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingCallableStatement.this, err);
                 }
@@ -2119,6 +2238,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public int executeUpdate(String s, String[] sa) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.executeUpdate(s, sa);
@@ -2126,7 +2246,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingCallableStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, s, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingCallableStatement.this, err);
                 }
@@ -2136,6 +2256,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public boolean execute(String s, int i) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.execute(s, i);
@@ -2143,7 +2264,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingCallableStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, s, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingCallableStatement.this, err);
                 }
@@ -2153,6 +2274,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public boolean execute(String s, int[] ia) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.execute(s, ia);
@@ -2160,7 +2282,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingCallableStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, s, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingCallableStatement.this, err);
                 }
@@ -2170,6 +2292,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
             public boolean execute(String s, String[] sa) throws SQLException {
                 logSQL(this);
                 long start = System.currentTimeMillis();
+                long nanos = startTiming();
                 SQLException err = null;
                 try {
                     return super.execute(s, sa);
@@ -2177,7 +2300,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                     err = wrap(se, LoggingCallableStatement.this);
                     throw err;
                 } finally {
-                    logTime(start);
+                    logTime(start, s, nanos);
                     clearLogParameters(true);
                     handleSQLErrors(LoggingCallableStatement.this, err);
                 }
@@ -2332,6 +2455,7 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 long start = System.currentTimeMillis();
                 try {
                     super.addBatch();
+                    _batchSize++;
                     if (shouldTrackParameters()) {
                         // make sure our list is initialized
                         if (_paramBatch == null)
@@ -2351,6 +2475,12 @@ public class LoggingConnectionDecorator implements ConnectionDecorator {
                 }
             }
 
+            @Override
+            public void clearBatch() throws SQLException {
+                super.clearBatch();
+                _batchSize = 0;
+            }
+
             @Override
             public void setCharacterStream(int i1, Reader r, int i2)
                 throws SQLException {
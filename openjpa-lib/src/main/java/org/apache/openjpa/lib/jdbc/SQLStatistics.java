@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.jdbc;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Execution statistics of SQL statements, kept per distinct SQL string.
+ * For prepared statements the SQL string is the shape of the statement,
+ * as parameter values are not part of it. Each shape records a histogram
+ * of execution times in nanoseconds with power-of-two buckets, along with
+ * the rows fetched and the sizes of executed batches. Recording for a
+ * shape that has been seen before does not allocate or lock.
+ * Once {@link #getMaxShapes} shapes are tracked, further statements are
+ * counted under the empty string.
+ *
+ * @since 4.1.2
+ */
+public class SQLStatistics {
+
+    /**
+     * The number of histogram buckets. Bucket <code>i</code> counts
+     * executions that took less than <code>2^i</code> nanoseconds and
+     * at least half that; the last bucket also counts longer ones.
+     */
+    public static final int BUCKETS = 40;
+
+    private final ConcurrentMap<String, Shape> _shapes =
+        new ConcurrentHashMap<>();
+    private final Shape _other = new Shape();
+    private int _maxShapes = 1000;
+    private volatile Date _since = new Date();
+
+    /**
+     * The maximum number of distinct SQL strings to track.
+     * Defaults to 1000.
+     */
+    public int getMaxShapes() {
+        return _maxShapes;
+    }
+
+    /**
+     * The maximum number of distinct SQL strings to track.
+     * Defaults to 1000.
+     */
+    public void setMaxShapes(int max) {
+        _maxShapes = max;
+    }
+
+    /**
+     * Record an execution of the given SQL.
+     */
+    public void recordExecution(String sql, long nanos) {
+        shape(sql).recordExecution(nanos);
+    }
+
+    /**
+     * Record an execution of a batch of the given size.
+     */
+    public void recordBatch(String sql, long nanos, int size) {
+        Shape shape = shape(sql);
+        shape.recordExecution(nanos);
+        shape._batches.incrementAndGet();
+        shape._batched.addAndGet(size);
+    }
+
+    /**
+     * Record rows fetched from the result of the given SQL.
+     */
+    public void recordRows(String sql, int rows) {
+        if (rows > 0)
+            shape(sql)._rows.addAndGet(rows);
+    }
+
+    /**
+     * Return the SQL strings tracked, including the empty string once
+     * statements beyond the limit have been counted.
+     */
+    public Set<String> getSQL() {
+        return Collections.unmodifiableSet(_shapes.keySet());
+    }
+
+    /**
+     * Return the statistics of the given SQL, or null if it is not tracked.
+     */
+    public Shape getShape(String sql) {
+        return _shapes.get(sql);
+    }
+
+    /**
+     * Return the date since which statistics have been collected.
+     */
+    public Date since() {
+        return _since;
+    }
+
+    /**
+     * Discard all statistics.
+     */
+    public void reset() {
+        _shapes.clear();
+        _other.reset();
+        _since = new Date();
+    }
+
+    private Shape shape(String sql) {
+        if (sql == null)
+            sql = "";
+        Shape shape = _shapes.get(sql);
+        if (shape != null)
+            return shape;
+        if (_shapes.size() >= _maxShapes) {
+            _shapes.putIfAbsent("", _other);
+            return _other;
+        }
+        return _shapes.computeIfAbsent(sql, k -> new Shape());
+    }
+
+    /**
+     * Statistics of a single SQL shape.
+     */
+    public static class Shape {
+
+        private final AtomicLongArray _histogram = new AtomicLongArray(BUCKETS);
+        private final AtomicLong _count = new AtomicLong();
+        private final AtomicLong _nanos = new AtomicLong();
+        private final AtomicLong _max = new AtomicLong();
+        private final AtomicLong _rows = new AtomicLong();
+        private final AtomicLong _batches = new AtomicLong();
+        private final AtomicLong _batched = new AtomicLong();
+
+        void recordExecution(long nanos) {
+            if (nanos < 0)
+                nanos = 0;
+            _histogram.incrementAndGet(Math.min(BUCKETS - 1,
+                64 - Long.numberOfLeadingZeros(nanos)));
+            _count.incrementAndGet();
+            _nanos.addAndGet(nanos);
+            for (long max = _max.get(); nanos > max
+                && !_max.compareAndSet(max, nanos); max = _max.get());
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++)
+                _histogram.set(i, 0);
+            _count.set(0);
+            _nanos.set(0);
+            _max.set(0);
+            _rows.set(0);
+            _batches.set(0);
+            _batched.set(0);
+        }
+
+        /**
+         * Number of executions, counting each batch once.
+         */
+        public long getExecutionCount() {
+            return _count.get();
+        }
+
+        /**
+         * Total execution time in nanoseconds.
+         */
+        public long getTotalNanos() {
+            return _nanos.get();
+        }
+
+        /**
+         * Longest execution time in nanoseconds.
+         */
+        public long getMaxNanos() {
+            return _max.get();
+        }
+
+        /**
+         * Mean execution time in nanoseconds.
+         */
+        public double getMeanNanos() {
+            long count = _count.get();
+            return (count == 0) ? 0 : (double) _nanos.get() / count;
+        }
+
+        /**
+         * Return the upper bound of the histogram bucket holding the given
+         * percentile of execution times, in nanoseconds.
+         *
+         * @param percentile a value between 0 and 100
+         */
+        public long getPercentileNanos(double percentile) {
+            long[] histogram = getHistogram();
+            long total = 0;
+            for (long count : histogram)
+                total += count;
+            if (total == 0)
+                return 0;
+
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < histogram.length - 1; i++) {
+                seen += histogram[i];
+                if (seen >= rank)
+                    return 1L << i;
+            }
+            return getMaxNanos();
+        }
+
+        /**
+         * Return a copy of the execution time histogram.
+         *
+         * @see SQLStatistics#BUCKETS
+         */
+        public long[] getHistogram() {
+            long[] histogram = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++)
+                histogram[i] = _histogram.get(i);
+            return histogram;
+        }
+
+        /**
+         * Number of rows fetched from results.
+         */
+        public long getRowCount() {
+            return _rows.get();
+        }
+
+        /**
+         * Number of batches executed.
+         */
+        public long getBatchCount() {
+            return _batches.get();
+        }
+
+        /**
+         * Number of statements executed in batches.
+         */
+        public long getBatchedStatementCount() {
+            return _batched.get();
+        }
+    }
+}
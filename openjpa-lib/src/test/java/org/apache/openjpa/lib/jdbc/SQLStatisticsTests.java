@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+/**
+ * Tests for SQLStatistics: recording per SQL shape, the execution time
+ * histogram and its percentiles, the shape limit and reset.
+ */
+public class SQLStatisticsTests {
+
+    private static final String SELECT = "SELECT t0.id FROM T t0 WHERE t0.id = ?";
+    private static final String UPDATE = "UPDATE T SET v = ? WHERE id = ?";
+
+    @Test
+    public void recordsExecutionsPerShape() {
+        SQLStatistics stats = new SQLStatistics();
+        stats.recordExecution(SELECT, 100);
+        stats.recordExecution(SELECT, 300);
+        stats.recordExecution(UPDATE, 50);
+
+        assertEquals(2, stats.getSQL().size());
+        SQLStatistics.Shape select = stats.getShape(SELECT);
+        assertEquals(2, select.getExecutionCount());
+        assertEquals(400, select.getTotalNanos());
+        assertEquals(300, select.getMaxNanos());
+        assertEquals(200.0, select.getMeanNanos(), 0.0);
+        assertEquals(1, stats.getShape(UPDATE).getExecutionCount());
+        assertNull(stats.getShape("SELECT 1"));
+    }
+
+    @Test
+    public void recordsBatchesAndRows() {
+        SQLStatistics stats = new SQLStatistics();
+        stats.recordBatch(UPDATE, 1000, 25);
+        stats.recordBatch(UPDATE, 1000, 5);
+        stats.recordRows(SELECT, 0);
+        assertNull(stats.getShape(SELECT));
+        stats.recordRows(SELECT, 3);
+        stats.recordRows(SELECT, 4);
+
+        SQLStatistics.Shape update = stats.getShape(UPDATE);
+        assertEquals(2, update.getExecutionCount());
+        assertEquals(2, update.getBatchCount());
+        assertEquals(30, update.getBatchedStatementCount());
+        assertEquals(7, stats.getShape(SELECT).getRowCount());
+        assertEquals(0, stats.getShape(SELECT).getExecutionCount());
+    }
+
+    @Test
+    public void histogramBucketsArePowersOfTwo() {
+        SQLStatistics stats = new SQLStatistics();
+        stats.recordExecution(SELECT, 0);
+        stats.recordExecution(SELECT, -5);
+        stats.recordExecution(SELECT, 1);
+        stats.recordExecution(SELECT, 64);
+        stats.recordExecution(SELECT, 127);
+        stats.recordExecution(SELECT, 1L << 50);
+
+        long[] histogram = stats.getShape(SELECT).getHistogram();
+        assertEquals(SQLStatistics.BUCKETS, histogram.length);
+        assertEquals(2, histogram[0]);
+        assertEquals(1, histogram[1]);
+        assertEquals(2, histogram[7]);
+        assertEquals(1, histogram[SQLStatistics.BUCKETS - 1]);
+    }
+
+    @Test
+    public void percentilesReturnTheUpperBoundOfTheirBucket() {
+        SQLStatistics stats = new SQLStatistics();
+        SQLStatistics.Shape shape;
+        for (int i = 0; i < 9; i++)
+            stats.recordExecution(SELECT, 100);
+        stats.recordExecution(SELECT, 1000);
+        shape = stats.getShape(SELECT);
+
+        assertEquals(128, shape.getPercentileNanos(50));
+        assertEquals(128, shape.getPercentileNanos(90));
+        assertEquals(1024, shape.getPercentileNanos(99));
+        assertEquals(1024, shape.getPercentileNanos(100));
+    }
+
+    @Test
+    public void percentileInTheLastBucketIsTheMaximum() {
+        SQLStatistics stats = new SQLStatistics();
+        stats.recordExecution(SELECT, 10);
+        stats.recordExecution(SELECT, 1L << 45);
+
+        assertEquals(1L << 45,
+            stats.getShape(SELECT).getPercentileNanos(100));
+    }
+
+    @Test
+    public void percentileOfNoExecutionsIsZero() {
+        SQLStatistics stats = new SQLStatistics();
+        stats.recordRows(SELECT, 1);
+
+        assertEquals(0, stats.getShape(SELECT).getPercentileNanos(50));
+        assertEquals(0.0, stats.getShape(SELECT).getMeanNanos(), 0.0);
+    }
+
+    @Test
+    public void shapesBeyondTheLimitAreCountedUnderTheEmptyString() {
+        SQLStatistics stats = new SQLStatistics();
+        stats.setMaxShapes(1);
+        stats.recordExecution(SELECT, 10);
+        stats.recordExecution(UPDATE, 20);
+        stats.recordExecution("DELETE FROM T", 30);
+
+        assertTrue(stats.getSQL().contains(SELECT));
+        assertTrue(stats.getSQL().contains(""));
+        assertFalse(stats.getSQL().contains(UPDATE));
+        assertEquals(2, stats.getShape("").getExecutionCount());
+        assertEquals(1, stats.getShape(SELECT).getExecutionCount());
+    }
+
+    @Test
+    public void resetDiscardsAllStatistics() throws Exception {
+        SQLStatistics stats = new SQLStatistics();
+        stats.setMaxShapes(1);
+        stats.recordExecution(SELECT, 10);
+        stats.recordExecution(UPDATE, 20);
+        Date since = stats.since();
+        Thread.sleep(5);
+
+        stats.reset();
+
+        assertTrue(stats.getSQL().isEmpty());
+        assertNull(stats.getShape(SELECT));
+        assertTrue(stats.since().after(since));
+
+        // the shape for statements beyond the limit starts over as well
+        stats.recordExecution(SELECT, 10);
+        stats.recordExecution(UPDATE, 20);
+        SQLStatistics.Shape other = stats.getShape("");
+        assertNotNull(other);
+        assertEquals(1, other.getExecutionCount());
+    }
+}
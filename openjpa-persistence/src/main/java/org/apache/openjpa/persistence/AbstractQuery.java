@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -514,7 +515,7 @@ public abstract class AbstractQuery<X> implements OpenJPAQuerySPI<X> {
      */
     public Map<Object, Parameter<?>> getDeclaredParameters() {
         if (_declaredParams == null) {
-            _declaredParams = new HashMap<>();
+            _declaredParams = new LinkedHashMap<>();
 
             OrderedMap<Object, Class<?>> paramTypes = null;
             // Check to see if we have a cached version of the paramTypes in QueryMetaData.
@@ -560,7 +561,7 @@ public abstract class AbstractQuery<X> implements OpenJPAQuerySPI<X> {
      */
     public void declareParameter(Object key, Parameter<?> param) {
         if (_declaredParams == null) {
-            _declaredParams = new HashMap<>();
+            _declaredParams = new LinkedHashMap<>();
         }
         _declaredParams.put(key, param);
     }
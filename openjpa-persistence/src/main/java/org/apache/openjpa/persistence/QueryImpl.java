@@ -23,6 +23,7 @@ import static org.apache.openjpa.kernel.QueryLanguages.LANG_PREPARED_SQL;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -56,6 +57,7 @@ import org.apache.openjpa.lib.rop.ResultList;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.lib.util.OrderedMap;
 import org.apache.openjpa.meta.QueryMetaData;
+import org.apache.openjpa.persistence.criteria.BindableParameter;
 import org.apache.openjpa.persistence.criteria.OpenJPACriteriaBuilder;
 import org.apache.openjpa.util.ImplHelper;
 import org.apache.openjpa.util.RuntimeExceptionTranslator;
@@ -683,6 +685,40 @@ public class QueryImpl<X> extends AbstractQuery<X> implements Serializable {
         return _query.getOrderedParameterTypes();
     }
 
+    /**
+     * Gets the parameter values keyed as the kernel query expects them.
+     * A criteria query may execute the compilation of a structurally
+     * identical criteria query, which expects the parameter expressions of
+     * that other query as keys. Each value is then keyed by the parameter
+     * that takes the place of its own in the structure of the query, i.e.
+     * that has the same name or, if unnamed, the same index.
+     */
+    @Override
+    Map<Object, Object> getParameterValues() {
+        Map<Object, Object> values = super.getParameterValues();
+        if (values.isEmpty() || !OpenJPACriteriaBuilder.LANG_CRITERIA.equals(getLanguage()))
+            return values;
+        OrderedMap<Object, Class<?>> types = getParamTypes();
+        if (values.keySet().containsAll(types.keySet()))
+            return values;
+        Map<Object, Object> result = new HashMap<>();
+        for (Object key : types.keySet()) {
+            if (values.containsKey(key)) {
+                result.put(key, values.get(key));
+                continue;
+            }
+            for (Map.Entry<Object, Object> entry : values.entrySet()) {
+                if (entry.getKey() instanceof BindableParameter
+                    && ((BindableParameter) entry.getKey()).isCounterpart(key)) {
+                    result.put(key, entry.getValue());
+                    break;
+                }
+            }
+        }
+        // leave unmatched parameters to be reported by the kernel
+        return (result.size() == types.size()) ? result : values;
+    }
+
     @Override
     public String toString() {
         String result = _query.getQueryString();
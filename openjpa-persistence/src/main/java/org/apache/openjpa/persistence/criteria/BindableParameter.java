@@ -21,4 +21,11 @@ package org.apache.openjpa.persistence.criteria;
 public interface BindableParameter {
     void setValue(Object value);
     Object value();
+
+    /**
+     * Affirms if the given parameter takes the place of this receiver in a
+     * criteria query of the same structure, i.e. if both have the same type
+     * and either the same name or, if both are unnamed, the same index.
+     */
+    boolean isCounterpart(Object param);
 }
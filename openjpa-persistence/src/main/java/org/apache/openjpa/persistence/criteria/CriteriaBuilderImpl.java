@@ -91,7 +91,7 @@ public class CriteriaBuilderImpl implements OpenJPACriteriaBuilder, ExpressionPa
     @Override
     public QueryExpressions eval(Object parsed, ExpressionStoreQuery query,
         ExpressionFactory factory, ClassMetaData candidate) {
-        CriteriaQueryImpl<?> c = (CriteriaQueryImpl<?>) parsed;
+        CriteriaQueryImpl<?> c = (CriteriaQueryImpl<?>) getOwnQuery(parsed, query);
         return c.getQueryExpressions(factory);
     }
 
@@ -143,10 +143,35 @@ public class CriteriaBuilderImpl implements OpenJPACriteriaBuilder, ExpressionPa
 
     @Override
     public void populate(Object parsed, ExpressionStoreQuery query) {
-        CriteriaQueryImpl<?> c = (CriteriaQueryImpl<?>) parsed;
+        CriteriaQueryImpl<?> c = (CriteriaQueryImpl<?>) getOwnQuery(parsed, query);
         query.invalidateCompilation();
         query.getContext().setCandidateType(c.getRoot().getJavaType(), true);
-        query.setQuery(parsed);
+        query.setQuery(c);
+    }
+
+    /**
+     * Gets the criteria query set on the given query, if any, or else the
+     * given parsed criteria query. The compilation of a structurally
+     * identical query may be shared with the given query, and hence carry
+     * a criteria query built by and still open to changes by someone else.
+     * Only the kernel expressions translated from that query are shared,
+     * each query keeps and translates its own criteria query.
+     */
+    private static Object getOwnQuery(Object parsed, ExpressionStoreQuery query) {
+        Object own = query.getCompilation();
+        return (own instanceof CriteriaQueryImpl) ? own : parsed;
+    }
+
+    /**
+     * Gets the structural identity of the given criteria query, so that
+     * structurally identical queries share their compilation, or null if
+     * the translation of the query depends on the values of its parameters
+     * or the query has not been compiled.
+     */
+    @Override
+    public Object newQueryKey(Object parsed) {
+        CriteriaFingerprint key = ((CriteriaQueryImpl<?>) parsed).getFingerprint();
+        return (key != null && key.isCacheable()) ? key : null;
     }
 
     @Override
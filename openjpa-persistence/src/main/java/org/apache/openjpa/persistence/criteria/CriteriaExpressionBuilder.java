@@ -45,6 +45,7 @@ import org.apache.openjpa.kernel.exps.AbstractExpressionBuilder;
 import org.apache.openjpa.kernel.exps.ExpressionFactory;
 import org.apache.openjpa.kernel.exps.QueryExpressions;
 import org.apache.openjpa.kernel.exps.Value;
+import org.apache.openjpa.lib.util.OrderedMap;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.persistence.TupleFactory;
 import org.apache.openjpa.persistence.TupleImpl;
@@ -79,7 +80,9 @@ class CriteriaExpressionBuilder {
         exps.range = QueryExpressions.EMPTY_VALUES;
         exps.resultClass = q.getResultType();
         exps.shape = evalResultShape(q);
-        exps.parameterTypes = q.getParameterTypes();
+        // copied because the compilation can outlive changes to the query
+        exps.parameterTypes = new OrderedMap<>();
+        exps.parameterTypes.putAll(q.getParameterTypes());
         exps.isAggregate();
         return exps;
     }
@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.criteria;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.persistence.criteria.Predicate;
+
+import org.apache.openjpa.persistence.meta.Members;
+
+/**
+ * Structural identity of a criteria query.
+ *
+ * Two fingerprints are equal if the queries they were taken from have the
+ * same tree of nodes, i.e. the same node types, attributes, literals,
+ * explicit aliases and parameter names, and share nodes in the same way.
+ * Values bound to the parameters, automatically assigned aliases and state
+ * derived during translation to a kernel expression tree are ignored.
+ * Structurally identical queries built afresh therefore have equal
+ * fingerprints, and can share the strings and compilations cached for
+ * each other.
+ *
+ * A fingerprint is a snapshot. It does not change when the query it was
+ * taken from is modified afterwards.
+ *
+ * @see CriteriaQueryImpl#getFingerprint()
+ */
+final class CriteriaFingerprint {
+    private static final String PACKAGE = CriteriaFingerprint.class.getPackage().getName() + ".";
+    private static final String KERNEL_PACKAGE = "org.apache.openjpa.kernel.";
+
+    /**
+     * Structural fields of the node types, by type.
+     */
+    private static final Map<Class<?>, Field[]> _fields = new ConcurrentHashMap<>();
+
+    private final Object[] _tokens;
+    private final int _hash;
+    private final boolean _cacheable;
+
+    private CriteriaFingerprint(Object[] tokens, boolean cacheable) {
+        _tokens = tokens;
+        _hash = Arrays.hashCode(tokens);
+        _cacheable = cacheable;
+    }
+
+    /**
+     * Takes the fingerprint of the given query.
+     */
+    static CriteriaFingerprint of(CriteriaQueryImpl<?> q) {
+        Builder builder = new Builder();
+        builder.node(q);
+        return new CriteriaFingerprint(builder._tokens.toArray(), builder._cacheable);
+    }
+
+    /**
+     * Affirms if a compilation of the query can be shared with structurally
+     * identical queries. It can not if translating the query depends on the
+     * values bound to its parameters, as for an <code>IN</code> expression
+     * whose operand is a single parameter.
+     */
+    boolean isCacheable() {
+        return _cacheable;
+    }
+
+    @Override
+    public int hashCode() {
+        return _hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == this)
+            return true;
+        if (!(other instanceof CriteriaFingerprint))
+            return false;
+        CriteriaFingerprint that = (CriteriaFingerprint) other;
+        return _hash == that._hash && Arrays.equals(_tokens, that._tokens);
+    }
+
+    @Override
+    public String toString() {
+        return "CriteriaQuery@" + Integer.toHexString(_hash);
+    }
+
+    /**
+     * Gets the fields of the given node type whose values make up the
+     * structure of a node. Fields handled by {@link Builder#node(Object)},
+     * static, transient and synthetic fields, and fields that hold state
+     * of the kernel, which is derived from the structure, are excluded.
+     */
+    private static Field[] getFields(Class<?> cls) {
+        Field[] fields = _fields.get(cls);
+        if (fields != null)
+            return fields;
+        List<Field> result = new ArrayList<>();
+        for (Class<?> c = cls; c != null && c != Object.class; c = c.getSuperclass()) {
+            if (c == SelectionImpl.class || c == ParameterExpressionImpl.class
+             || c == CriteriaQueryImpl.class)
+                continue;
+            for (Field f : c.getDeclaredFields()) {
+                int mods = f.getModifiers();
+                if (Modifier.isStatic(mods) || Modifier.isTransient(mods) || f.isSynthetic()
+                 || f.getType().getName().startsWith(KERNEL_PACKAGE))
+                    continue;
+                f.setAccessible(true);
+                result.add(f);
+            }
+        }
+        fields = result.toArray(new Field[result.size()]);
+        _fields.put(cls, fields);
+        return fields;
+    }
+
+    /**
+     * Markers that separate the kinds of tokens.
+     */
+    private enum Token {
+        NODE, REF, NULL, LIST, END
+    }
+
+    /**
+     * Wraps an object that is compared by identity, such as a meta-data
+     * instance.
+     */
+    private static final class Identity {
+        private final Object _target;
+
+        Identity(Object target) {
+            _target = target;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(_target);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Identity && ((Identity) other)._target == _target;
+        }
+    }
+
+    /**
+     * Walks a query depth first, appending a token sequence that describes
+     * its structure. A node seen before is referred to by the order in which
+     * it was first seen, so that shared nodes and cycles, e.g. between a
+     * join and its parent, are described structurally.
+     */
+    private static class Builder {
+        private final List<Object> _tokens = new ArrayList<>();
+        private final Map<Object, Integer> _seen = new IdentityHashMap<>();
+        private boolean _cacheable = true;
+
+        void node(Object node) {
+            Integer ref = _seen.get(node);
+            if (ref != null) {
+                _tokens.add(Token.REF);
+                _tokens.add(ref);
+                return;
+            }
+            _seen.put(node, _seen.size());
+            _tokens.add(Token.NODE);
+            _tokens.add(node.getClass());
+
+            if (node instanceof CriteriaQueryImpl) {
+                query((CriteriaQueryImpl<?>) node);
+                return;
+            }
+            if (node instanceof SelectionImpl) {
+                SelectionImpl<?> selection = (SelectionImpl<?>) node;
+                _tokens.add(selection.getJavaType());
+                value(selection.isAliased() ? selection.getAlias() : null);
+            }
+            if (node instanceof ParameterExpressionImpl) {
+                value(((ParameterExpressionImpl<?>) node).getName());
+            }
+            if (node instanceof Expressions.In) {
+                List<Predicate> exps = ((Expressions.In<?>) node)._exps;
+                if (exps.size() == 1 && exps.get(0) instanceof Expressions.Equal
+                 && ((Expressions.Equal) exps.get(0)).e2 instanceof BindableParameter)
+                    _cacheable = false;
+            }
+            try {
+                for (Field f : getFields(node.getClass()))
+                    value(f.get(node));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Appends the clauses of the given query. Its registries of
+         * parameters, variables and aliases are populated by compilation and
+         * hence are not part of its structure.
+         */
+        void query(CriteriaQueryImpl<?> q) {
+            _tokens.add(q.getResultType());
+            _tokens.add(q.isDistinct());
+            value(q.getRoots());
+            value(q.getSelection());
+            value(q.getRestriction());
+            value(q.getOrderList());
+            value(q.getGroupList());
+            value(q.getGroupRestriction());
+            value(q.getSubqueries());
+        }
+
+        void value(Object v) {
+            if (v == null) {
+                _tokens.add(Token.NULL);
+            } else if (v.getClass().getName().startsWith(PACKAGE)) {
+                node(v);
+            } else if (v instanceof Members.Member) {
+                _tokens.add(v.getClass());
+                _tokens.add(new Identity(((Members.Member<?, ?>) v).fmd));
+            } else if (v instanceof Collection) {
+                _tokens.add(Token.LIST);
+                Collection<?> c = (Collection<?>) v;
+                for (Object o : c)
+                    value(o);
+                _tokens.add(Token.END);
+            } else if (v instanceof Map) {
+                _tokens.add(Token.LIST);
+                for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet()) {
+                    value(e.getKey());
+                    value(e.getValue());
+                }
+                _tokens.add(Token.END);
+            } else if (v.getClass().isArray()) {
+                _tokens.add(Token.LIST);
+                for (int i = 0; i < Array.getLength(v); i++)
+                    value(Array.get(v, i));
+                _tokens.add(Token.END);
+            } else if (v instanceof Date) {
+                _tokens.add(((Date) v).clone());
+            } else if (v instanceof Calendar) {
+                _tokens.add(((Calendar) v).clone());
+            } else if (v.getClass().getName().startsWith("java.")) {
+                _tokens.add(v);
+            } else {
+                _tokens.add(new Identity(v));
+            }
+        }
+    }
+}
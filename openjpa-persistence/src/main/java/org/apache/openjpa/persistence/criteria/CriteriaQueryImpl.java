@@ -82,6 +82,7 @@ class CriteriaQueryImpl<T> implements OpenJPACriteriaQuery<T>, AliasContext {
     private final SubqueryImpl<?> _delegator;
     private final Class<T>      _resultClass;
     private boolean             _compiled;
+    private CriteriaFingerprint _fingerprint;
 
     // AliasContext
     private int aliasCount = 0;
@@ -434,6 +435,13 @@ class CriteriaQueryImpl<T> implements OpenJPACriteriaQuery<T>, AliasContext {
         return subquery;
     }
 
+    /**
+     * Gets the subqueries created by this query.
+     */
+    List<Subquery<?>> getSubqueries() {
+        return Expressions.returnCopy(_subqueries);
+    }
+
     /**
      * Return map where key is the parameter expression itself and value is the expected type.
      * Empty map if no parameter has been declared.
@@ -663,22 +671,26 @@ class CriteriaQueryImpl<T> implements OpenJPACriteriaQuery<T>, AliasContext {
 
     void invalidateCompilation() {
         _compiled = false;
+        _fingerprint = null;
         _params.clear();
     }
 
     /**
      * Compiles to verify that at least one root is defined, a selection term is present
      * and, most importantly, collects all the parameters so that they can be bound to
-     * the executable query.
+     * the executable query. The structural identity of the query is taken
+     * on every call, because its nodes may have changed since the previous
+     * compilation.
      */
     @Override
     public OpenJPACriteriaQuery<T> compile() {
-        if (_compiled)
-            return this;
-        assertRoot();
-        assertSelection();
-        collectParameters(new CriteriaExpressionVisitor.ParameterVisitor(this));
-        _compiled = true;
+        if (!_compiled) {
+            assertRoot();
+            assertSelection();
+            collectParameters(new CriteriaExpressionVisitor.ParameterVisitor(this));
+            _compiled = true;
+        }
+        _fingerprint = CriteriaFingerprint.of(this);
         return this;
     }
 
@@ -700,10 +712,28 @@ class CriteriaQueryImpl<T> implements OpenJPACriteriaQuery<T>, AliasContext {
     }
 
     /**
-     * Gets the string representation of the query.
+     * Gets the structural identity of this query as taken by its last
+     * compilation, or null if it has not been compiled.
+     *
+     * @see CriteriaFingerprint
+     */
+    CriteriaFingerprint getFingerprint() {
+        return _fingerprint;
+    }
+
+    /**
+     * Gets the string representation of the query. The string rendered for a
+     * query of the same structure is reused, if the query is compiled.
      */
     @Override
     public String toCQL() {
+        CriteriaFingerprint fingerprint = _fingerprint;
+        if (_model == null || fingerprint == null)
+            return renderCQL();
+        return _model.getQueryString(fingerprint, k -> renderCQL());
+    }
+
+    private String renderCQL() {
         StringBuilder buffer = new StringBuilder();
         render(buffer, _roots, null);
         return buffer.toString().trim();
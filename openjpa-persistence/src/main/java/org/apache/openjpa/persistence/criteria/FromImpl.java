@@ -19,7 +19,7 @@
 
 package org.apache.openjpa.persistence.criteria;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 import jakarta.persistence.criteria.CollectionJoin;
 import jakarta.persistence.criteria.Fetch;
@@ -265,7 +265,7 @@ class FromImpl<Z,X> extends PathImpl<Z,X> implements From<Z,X> {
 
     private void addJoin(Join<X,?> join) {
         if (_joins == null)
-            _joins = new HashSet<>();
+            _joins = new LinkedHashSet<>();
          _joins.add(join);
     }
 
@@ -318,7 +318,7 @@ class FromImpl<Z,X> extends PathImpl<Z,X> implements From<Z,X> {
             JoinType jt) {
         Fetch<X,Y> fetch = new FetchPathImpl(this, member, jt);
         if (_fetches == null)
-            _fetches = new HashSet<>();
+            _fetches = new LinkedHashSet<>();
         _fetches.add(fetch);
         return fetch;
     }
@@ -141,6 +141,21 @@ class ParameterExpressionImpl<T> extends ExpressionImpl<T>
         return getJavaType();
     }
 
+    @Override
+    public boolean isCounterpart(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof ParameterExpressionImpl))
+            return false;
+
+        ParameterExpressionImpl<?> that = (ParameterExpressionImpl<?>) o;
+        if (getParameterType() != that.getParameterType())
+            return false;
+        return _name == null
+            ? that._name == null && _index == that._index
+            : _name.equals(that._name);
+    }
+
     public boolean paramEquals(Object o) {
         if (this == o)
             return true;
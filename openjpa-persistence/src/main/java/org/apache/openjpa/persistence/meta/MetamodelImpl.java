@@ -33,6 +33,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 import jakarta.persistence.metamodel.Attribute;
 import jakarta.persistence.metamodel.EmbeddableType;
@@ -46,6 +47,7 @@ import jakarta.persistence.metamodel.Type;
 import jakarta.persistence.metamodel.Type.PersistenceType;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.kernel.QueryCompilationCache;
 import org.apache.openjpa.kernel.QueryContext;
 import org.apache.openjpa.kernel.exps.AggregateListener;
 import org.apache.openjpa.kernel.exps.FilterListener;
@@ -72,6 +74,7 @@ public class MetamodelImpl implements Metamodel, Resolver {
     private Map<Class<?>, EmbeddableType<?>> _embeddables = new HashMap<>();
     private Map<Class<?>, MappedSuperclassType<?>> _mappedsupers = new HashMap<>();
     private Map<Class<?>, Types.PseudoEntity<?>> _pseudos = new HashMap<>();
+    private final QueryCompilationCache _queryStrings = new QueryCompilationCache();
 
     private static Localizer _loc = Localizer.forPackage(MetamodelImpl.class);
 
@@ -81,6 +84,7 @@ public class MetamodelImpl implements Metamodel, Resolver {
      */
     public MetamodelImpl(MetaDataRepository repos) {
         this.repos = repos;
+        _queryStrings.setEnableStatistics(false);
         Collection<Class<?>> classes = repos.loadPersistentTypes(true, null);
         for (Class<?> cls : classes) {
             if (repos.skipMetadata(cls)) { // AttributeConverters, enums etc....
@@ -110,6 +114,18 @@ public class MetamodelImpl implements Metamodel, Resolver {
         return repos;
     }
 
+    /**
+     * Gets the string form of a criteria query of this model, rendering it
+     * with the given function only if no query of the same structure has
+     * been rendered yet.
+     *
+     * @param key the structural identity of the criteria query
+     * @param renderer renders the string form of the query
+     */
+    public String getQueryString(Object key, Function<Object, Object> renderer) {
+        return (String) _queryStrings.get(key, renderer);
+    }
+
     /**
      *  Return the metamodel embeddable type representing the embeddable class.
      *
@@ -143,6 +143,14 @@ public interface DistributedConfiguration extends OpenJPAConfiguration {
      */
     String getQueryTargetPolicy();
 
+    /**
+     * Affirms if the results of a query are merged as the slices respond
+     * rather than after all slices have responded.
+     *
+     * @since 4.1.2
+     */
+    boolean isStreaming();
+
     /**
      * Sets the policy that governs which slices will be targeted for a given query.
      */
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.openjpa.kernel.StoreQuery;
+import org.apache.openjpa.kernel.StoreQuery.Executor;
+import org.apache.openjpa.kernel.StoreQuery.Range;
+import org.apache.openjpa.lib.rop.ResultObjectProvider;
+import org.apache.openjpa.util.StoreException;
+
+/**
+ * Result of a query that is executed <em>and opened</em> on a slice thread,
+ * so that the statement runs while the caller is busy with other slices.
+ * Opening this provider waits for the slice to respond. Closing it before
+ * the slice has responded cancels the slice task; a result that still
+ * arrives afterwards is closed by the task itself.
+ *
+ * @since 4.1.2
+ */
+class AsyncResultObjectProvider implements ResultObjectProvider,
+    Callable<ResultObjectProvider> {
+    private final Executor _executor;
+    private final StoreQuery _query;
+    private final Object[] _params;
+    private final Range _range;
+    private final Queue<AsyncResultObjectProvider> _arrivals;
+    private Future<ResultObjectProvider> _future;
+    private ResultObjectProvider _rop;
+    private boolean _closed;
+
+    /**
+     * @param arrivals if not null, this provider adds itself to the given
+     * queue once the slice has responded or failed
+     */
+    AsyncResultObjectProvider(Executor executor, StoreQuery query,
+        Object[] params, Range range, Queue<AsyncResultObjectProvider> arrivals) {
+        _executor = executor;
+        _query = query;
+        _params = params;
+        _range = range;
+        _arrivals = arrivals;
+    }
+
+    Executor getExecutor() {
+        return _executor;
+    }
+
+    /**
+     * Start executing the query on the given pool.
+     */
+    void submit(ExecutorService pool) {
+        _future = pool.submit(this);
+    }
+
+    @Override
+    public ResultObjectProvider call() throws Exception {
+        try {
+            ResultObjectProvider rop = _executor.executeQuery(_query, _params,
+                _range);
+            rop.open();
+            synchronized (this) {
+                if (!_closed) {
+                    _rop = rop;
+                    return rop;
+                }
+            }
+            rop.close();
+            return null;
+        } finally {
+            if (_arrivals != null)
+                _arrivals.add(this);
+        }
+    }
+
+    /**
+     * Wait for the slice to respond and return its opened result.
+     */
+    private ResultObjectProvider await() throws Exception {
+        try {
+            return _future.get();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new StoreException(e.getCause());
+        }
+    }
+
+    @Override
+    public void open() throws Exception {
+        await();
+    }
+
+    @Override
+    public boolean supportsRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public boolean next() throws Exception {
+        return await().next();
+    }
+
+    @Override
+    public boolean absolute(int pos) throws Exception {
+        return await().absolute(pos);
+    }
+
+    @Override
+    public int size() throws Exception {
+        return await().size();
+    }
+
+    @Override
+    public Object getResultObject() throws Exception {
+        return await().getResultObject();
+    }
+
+    @Override
+    public void reset() throws Exception {
+        await().reset();
+    }
+
+    @Override
+    public void close() throws Exception {
+        ResultObjectProvider rop;
+        synchronized (this) {
+            if (_closed)
+                return;
+            _closed = true;
+            rop = _rop;
+        }
+        if (rop != null)
+            rop.close();
+        else
+            _future.cancel(true);
+    }
+
+    @Override
+    public void handleCheckedException(Exception e) {
+        ResultObjectProvider rop;
+        synchronized (this) {
+            rop = _rop;
+        }
+        if (rop == null)
+            throw new StoreException(e);
+        rop.handleCheckedException(e);
+    }
+}
@@ -77,6 +77,7 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
     private DistributedDataSource virtualDataSource;
 
     protected BooleanValue lenientPlugin;
+    protected BooleanValue streamingPlugin;
     protected StringValue masterPlugin;
     protected StringListValue namesPlugin;
     public PluginValue distributionPolicyPlugin;
@@ -125,6 +126,9 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
         lenientPlugin = addBoolean(PREFIX_SLICE + "Lenient");
         lenientPlugin.setDefault("true");
 
+        streamingPlugin = addBoolean(PREFIX_SLICE + "Streaming");
+        streamingPlugin.setDefault("false");
+
         masterPlugin  = addString(PREFIX_SLICE + "Master");
         namesPlugin   = addStringList(PREFIX_SLICE + "Names");
     }
@@ -344,6 +348,15 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
         lenientPlugin.set(lenient);
     }
 
+    @Override
+    public boolean isStreaming() {
+        return streamingPlugin.get();
+    }
+
+    public void setStreaming(boolean streaming) {
+        streamingPlugin.set(streaming);
+    }
+
     public void setMaster(String master) {
         masterPlugin.set(master);
     }
@@ -21,10 +21,12 @@ package org.apache.openjpa.slice.jdbc;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.openjpa.jdbc.kernel.JDBCStore;
 import org.apache.openjpa.jdbc.kernel.JDBCStoreQuery;
@@ -116,6 +118,11 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 		@Override
         public ResultObjectProvider executeQuery(StoreQuery q,
 				final Object[] params, final Range range) {
+			DistributedConfiguration conf = (DistributedConfiguration) q.getContext()
+			    .getStoreContext().getConfiguration();
+			if (conf.isStreaming())
+				return executeStreamingQuery(q, params, range);
+
 			List<Future<ResultObjectProvider>> futures = new ArrayList<>();
             final List<Executor> usedExecutors = new ArrayList<>();
 			final List<ResultObjectProvider> rops = new ArrayList<>();
@@ -171,6 +178,61 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 			return result;
 		}
 
+		/**
+		 * Executes and opens the query on each target slice in parallel, and
+		 * merges the results as the slices respond. Unordered results are
+		 * returned in the order the slices respond; ordered results are
+		 * merged as their rows are read.
+		 */
+		private ResultObjectProvider executeStreamingQuery(StoreQuery q,
+				Object[] params, Range range) {
+			List<SliceStoreManager> targets = findTargets();
+			QueryContext ctx = q.getContext();
+			boolean isReplicated = containsReplicated(ctx);
+			ExecutorService threadPool = SliceThread.getPool();
+
+			// every slice must return the rows up to the end of the range;
+			// the start of the range can only apply to the merged result
+			Range sliceRange = new Range(0, range.end);
+			sliceRange.lrs = range.lrs || (range.start > 0
+			    && ctx.getFetchConfiguration().getFetchBatchSize() >= 0);
+
+			BlockingQueue<AsyncResultObjectProvider> arrivals = new LinkedBlockingQueue<>();
+			List<AsyncResultObjectProvider> rops = new ArrayList<>();
+			for (int i = 0; i < owner._queries.size(); i++) {
+				// if replicated, then execute only on single slice
+				if (isReplicated && !rops.isEmpty())
+					break;
+				StoreManager sm = owner.getDistributedStore().getSlice(i);
+				if (!targets.contains(sm))
+					continue;
+				AsyncResultObjectProvider rop = new AsyncResultObjectProvider(
+				    executors.get(i), owner._queries.get(i), params, sliceRange,
+				    arrivals);
+				rop.submit(threadPool);
+				rops.add(rop);
+			}
+
+			AsyncResultObjectProvider[] tmp = rops.toArray(new AsyncResultObjectProvider[rops.size()]);
+			ResultObjectProvider result;
+			boolean[] ascending = getAscending(q);
+			if (ctx.isAggregate()) {
+				result = new UniqueResultObjectProvider(tmp, q, getQueryExpressions());
+			} else if (ascending.length > 0) {
+				Executor[] execs = new Executor[tmp.length];
+				for (int i = 0; i < tmp.length; i++)
+					execs[i] = tmp[i].getExecutor();
+				result = new OrderingMergedResultObjectProvider(tmp, ascending,
+				    execs, q, params);
+			} else {
+				result = new StreamingMergedResultObjectProvider(tmp, arrivals,
+				    range.end);
+			}
+			if (range.start != 0 || range.end != Long.MAX_VALUE)
+				result = new RangeResultObjectProvider(result, range.start, range.end);
+			return result;
+		}
+
 		/**
          * Scans metadata to find out if a replicated class is the candidate.
 		 */
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.openjpa.lib.rop.ResultObjectProvider;
+
+/**
+ * Merges unordered results of slices in the order in which the slices
+ * respond, so that the first row is available as soon as the fastest slice
+ * has responded. Once the given limit of rows has been returned, the slices
+ * that have not responded yet are cancelled.
+ *
+ * @since 4.1.2
+ */
+class StreamingMergedResultObjectProvider implements ResultObjectProvider {
+    private final AsyncResultObjectProvider[] _rops;
+    private final BlockingQueue<AsyncResultObjectProvider> _arrivals;
+    private final long _limit;
+
+    // slices in the order they responded
+    private final List<ResultObjectProvider> _responded = new ArrayList<>();
+    private ResultObjectProvider _cur;
+    private int _idx;
+    private long _count;
+    private boolean _cancelled;
+
+    /**
+     * @param rops the slice results, each of which adds itself to the
+     * given queue once its slice has responded
+     * @param limit the number of rows after which outstanding slices are
+     * cancelled, or {@link Long#MAX_VALUE}
+     */
+    StreamingMergedResultObjectProvider(AsyncResultObjectProvider[] rops,
+        BlockingQueue<AsyncResultObjectProvider> arrivals, long limit) {
+        _rops = rops;
+        _arrivals = arrivals;
+        _limit = limit;
+    }
+
+    @Override
+    public boolean supportsRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public void open() throws Exception {
+        // slices are already executing
+    }
+
+    @Override
+    public boolean absolute(int pos) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean next() throws Exception {
+        if (_count >= _limit)
+            return false;
+        while (_cur == null || !_cur.next()) {
+            if (_idx == _responded.size() && !awaitNext())
+                return false;
+            _cur = _responded.get(_idx++);
+        }
+        // cancel as soon as the last row is reached rather than when the
+        // caller asks for one more, which it may never do
+        if (++_count >= _limit)
+            cancel();
+        return true;
+    }
+
+    /**
+     * Wait for the next slice to respond.
+     *
+     * @return false if there are no more slices to wait for
+     */
+    private boolean awaitNext() throws Exception {
+        if (_cancelled || _responded.size() == _rops.length)
+            return false;
+        AsyncResultObjectProvider rop;
+        try {
+            rop = _arrivals.take();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        // surfaces the failure of the slice, if any
+        rop.open();
+        _responded.add(rop);
+        return true;
+    }
+
+    /**
+     * Cancel the slices that have not responded yet.
+     */
+    private void cancel() throws Exception {
+        if (_cancelled)
+            return;
+        _cancelled = true;
+        for (ResultObjectProvider rop : _rops)
+            if (!_responded.contains(rop))
+                rop.close();
+    }
+
+    @Override
+    public Object getResultObject() throws Exception {
+        return _cur.getResultObject();
+    }
+
+    @Override
+    public int size() throws Exception {
+        // we only cancel once the limit has been returned
+        if (_cancelled)
+            return (int) Math.min(_limit, Integer.MAX_VALUE);
+        while (awaitNext()) {
+            // wait for all slices
+        }
+
+        long total = 0;
+        int size;
+        for (ResultObjectProvider rop : _responded) {
+            size = rop.size();
+            if (size == Integer.MAX_VALUE)
+                return size;
+            total += size;
+        }
+        return (int) Math.min(Math.min(total, _limit), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void reset() throws Exception {
+        for (ResultObjectProvider rop : _responded)
+            rop.reset();
+        _cur = null;
+        _idx = 0;
+        _count = 0;
+    }
+
+    @Override
+    public void close() throws Exception {
+        Exception err = null;
+        for (ResultObjectProvider rop : _rops) {
+            try {
+                rop.close();
+            } catch (Exception e) {
+                if (err == null)
+                    err = e;
+            }
+        }
+        _cur = null;
+        if (err != null)
+            throw err;
+    }
+
+    @Override
+    public void handleCheckedException(Exception e) {
+        if (_rops.length == 0)
+            throw new RuntimeException(e);
+        _rops[0].handleCheckedException(e);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.openjpa.lib.rop.ResultObjectProvider;
+import org.junit.Test;
+
+/**
+ * Tests for StreamingMergedResultObjectProvider: merge order, limit and
+ * cancellation of the slices that have not responded.
+ */
+public class StreamingMergedResultObjectProviderTests {
+
+    private final BlockingQueue<AsyncResultObjectProvider> arrivals =
+        new LinkedBlockingQueue<>();
+
+    /**
+     * Mocks a slice result holding the given rows.
+     */
+    private static AsyncResultObjectProvider slice(String... rows) throws Exception {
+        AsyncResultObjectProvider rop = mock(AsyncResultObjectProvider.class);
+        Boolean[] more = new Boolean[rows.length];
+        for (int i = 0; i < rows.length; i++)
+            more[i] = i < rows.length - 1;
+        if (rows.length == 0) {
+            when(rop.next()).thenReturn(false);
+        } else {
+            when(rop.next()).thenReturn(true, more);
+            String[] rest = new String[rows.length - 1];
+            System.arraycopy(rows, 1, rest, 0, rest.length);
+            when(rop.getResultObject()).thenReturn(rows[0], (Object[]) rest);
+        }
+        when(rop.size()).thenReturn(rows.length);
+        return rop;
+    }
+
+    private static List<Object> drain(ResultObjectProvider rop) throws Exception {
+        List<Object> result = new ArrayList<>();
+        while (rop.next())
+            result.add(rop.getResultObject());
+        return result;
+    }
+
+    @Test
+    public void rowsAreMergedInTheOrderTheSlicesRespond() throws Exception {
+        AsyncResultObjectProvider a = slice("a1");
+        AsyncResultObjectProvider b = slice("b1", "b2");
+        AsyncResultObjectProvider c = slice();
+        AsyncResultObjectProvider d = slice("d1");
+        arrivals.add(b);
+        arrivals.add(c);
+        arrivals.add(a);
+        arrivals.add(d);
+
+        StreamingMergedResultObjectProvider merged =
+            new StreamingMergedResultObjectProvider(
+                new AsyncResultObjectProvider[]{ a, b, c, d }, arrivals,
+                Long.MAX_VALUE);
+        merged.open();
+
+        assertEquals(Arrays.asList("b1", "b2", "a1", "d1"), drain(merged));
+        verify(a).open();
+        verify(b).open();
+        verify(c).open();
+        verify(d).open();
+    }
+
+    @Test
+    public void sizeWaitsForAllSlices() throws Exception {
+        AsyncResultObjectProvider a = slice("a1", "a2");
+        AsyncResultObjectProvider b = slice("b1");
+        arrivals.add(a);
+        arrivals.add(b);
+
+        StreamingMergedResultObjectProvider merged =
+            new StreamingMergedResultObjectProvider(
+                new AsyncResultObjectProvider[]{ a, b }, arrivals, 2);
+
+        assertEquals(2, merged.size());
+    }
+
+    @Test
+    public void outstandingSlicesAreCancelledWhenTheLimitIsReached()
+        throws Exception {
+        AsyncResultObjectProvider a = slice("a1", "a2", "a3");
+        AsyncResultObjectProvider b = slice("b1");
+        AsyncResultObjectProvider c = slice("c1");
+        // only a responds; b and c never do
+        arrivals.add(a);
+
+        StreamingMergedResultObjectProvider merged =
+            new StreamingMergedResultObjectProvider(
+                new AsyncResultObjectProvider[]{ a, b, c }, arrivals, 2);
+
+        assertTrue(merged.next());
+        assertEquals("a1", merged.getResultObject());
+        verify(b, never()).close();
+
+        assertTrue(merged.next());
+        assertEquals("a2", merged.getResultObject());
+        // cancelled on reaching the limit, not on the next call
+        verify(b).close();
+        verify(c).close();
+        verify(a, never()).close();
+
+        // does not wait for the cancelled slices
+        assertFalse(merged.next());
+        assertEquals(2, merged.size());
+    }
+
+    @Test
+    public void closeClosesAllSlices() throws Exception {
+        AsyncResultObjectProvider a = slice("a1");
+        AsyncResultObjectProvider b = slice("b1");
+        arrivals.add(a);
+
+        StreamingMergedResultObjectProvider merged =
+            new StreamingMergedResultObjectProvider(
+                new AsyncResultObjectProvider[]{ a, b }, arrivals,
+                Long.MAX_VALUE);
+        assertTrue(merged.next());
+        merged.close();
+
+        verify(a).close();
+        verify(b).close();
+    }
+}
@@ -0,0 +1,631 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.xmlstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.util.OpenJPAException;
+import org.apache.openjpa.util.OptimisticException;
+import org.apache.openjpa.util.StoreException;
+
+/**
+ * Alternative to {@link XMLStore} that keeps the data of each least-derived
+ * class in an append-only log file. A commit appends one record for each
+ * object it inserts, updates or deletes, so its cost is proportional to the
+ * change set rather than to the size of the extent. Records are encoded
+ * the way {@link XMLFileHandler} encodes objects.
+ * <p>
+ * Only an index from oid to record position is held in memory. Records are
+ * read from a memory-mapped view of the log, and decoded data is cached
+ * through soft references. A log is compacted into a new file, which then
+ * replaces it, once its dead records outweigh its live records.
+ * <p>
+ * Each class log is locked on its own: reads only wait for commits to the
+ * same class, and commits to different classes proceed in parallel. Unlike
+ * {@link XMLStore}, no lock is held from the start of a transaction, so
+ * versions are checked again under the class locks when it ends. As with
+ * {@link XMLStore}, a commit that spans several classes is atomic per class
+ * only.
+ * <p>
+ * Each record is framed with its length and a CRC32 checksum. A torn record
+ * at the end of a log, left by a crash during a commit, is discarded when
+ * the log is opened.
+ */
+public class LogStore
+    extends XMLStore {
+
+    private static final String SUFFIX = ".log";
+    private static final String COMPACT_SUFFIX = ".compact";
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+
+    // payload length, checksum and operation
+    private static final int HEADER_LENGTH = 9;
+
+    // the mapped region of a log starts at this size and then doubles
+    private static final int MIN_CAPACITY = 64 * 1024;
+
+    private final XMLConfiguration _conf;
+    private final Log _log;
+    private final ConcurrentMap<ClassMetaData, ClassLog> _logs =
+        new ConcurrentHashMap<>();
+
+    private volatile double _compactionRatio = 1.0;
+    private volatile long _compactionThreshold = 1024 * 1024;
+    private volatile boolean _sync = true;
+
+    /**
+     * Constructor; supply configuration.
+     */
+    public LogStore(XMLConfiguration conf) {
+        super(conf);
+        _conf = conf;
+        _log = conf.getLog(OpenJPAConfiguration.LOG_RUNTIME);
+    }
+
+    /**
+     * The ratio of dead to live bytes in a log above which the log is
+     * compacted. Defaults to 1.
+     */
+    public double getCompactionRatio() {
+        return _compactionRatio;
+    }
+
+    /**
+     * The ratio of dead to live bytes in a log above which the log is
+     * compacted. Defaults to 1.
+     */
+    public void setCompactionRatio(double ratio) {
+        _compactionRatio = ratio;
+    }
+
+    /**
+     * The number of dead bytes a log must hold before it is compacted.
+     * Defaults to 1MB.
+     */
+    public long getCompactionThreshold() {
+        return _compactionThreshold;
+    }
+
+    /**
+     * The number of dead bytes a log must hold before it is compacted.
+     * Defaults to 1MB.
+     */
+    public void setCompactionThreshold(long bytes) {
+        _compactionThreshold = bytes;
+    }
+
+    /**
+     * Whether appended records are forced to the storage device before a
+     * commit completes. Defaults to true.
+     */
+    public boolean getSync() {
+        return _sync;
+    }
+
+    /**
+     * Whether appended records are forced to the storage device before a
+     * commit completes. Defaults to true.
+     */
+    public void setSync(boolean sync) {
+        _sync = sync;
+    }
+
+    @Override
+    public ObjectData getData(ClassMetaData meta, Object oid) {
+        return getLog(meta).get(oid);
+    }
+
+    @Override
+    public ObjectData[] getData(ClassMetaData meta) {
+        return getLog(meta).getAll();
+    }
+
+    /**
+     * Does nothing; the class logs are locked when the transaction ends.
+     */
+    @Override
+    public void beginTransaction() {
+    }
+
+    @Override
+    public void endTransaction(Collection<ObjectData> updates,
+        Collection<ObjectData> deletes) {
+        // group the changes by log; the logs are ordered by class name so
+        // that concurrent commits lock them in the same order
+        Map<String, Changes> changes = new TreeMap<>();
+        if (updates != null)
+            for (ObjectData data : updates)
+                getChanges(changes, data).puts.add(data);
+        if (deletes != null)
+            for (ObjectData data : deletes)
+                getChanges(changes, data).deletes.add(data);
+        if (changes.isEmpty())
+            return;
+
+        List<ClassLog> locked = new ArrayList<>(changes.size());
+        try {
+            for (Changes c : changes.values()) {
+                c.log._lock.writeLock().lock();
+                locked.add(c.log);
+            }
+            for (Changes c : changes.values())
+                c.log.validate(c);
+            for (Changes c : changes.values())
+                c.log.append(c);
+        } finally {
+            for (ClassLog log : locked)
+                log._lock.writeLock().unlock();
+        }
+    }
+
+    private Changes getChanges(Map<String, Changes> changes,
+        ObjectData data) {
+        ClassMetaData meta = getLeastDerived(data.getMetaData());
+        String name = meta.getDescribedType().getName();
+        Changes c = changes.get(name);
+        if (c == null) {
+            c = new Changes(getLog(meta));
+            changes.put(name, c);
+        }
+        return c;
+    }
+
+    /**
+     * Return the log of the least-derived class of the given type, opening
+     * it if needed.
+     */
+    private ClassLog getLog(ClassMetaData meta) {
+        // a log must be opened once, as opening it clears a torn record at
+        // its end
+        return _logs.computeIfAbsent(getLeastDerived(meta),
+            m -> new ClassLog(m));
+    }
+
+    /**
+     * Encode the given data into a record payload.
+     */
+    private byte[] encode(ObjectData data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try {
+            Writer writer = new OutputStreamWriter(bytes,
+                StandardCharsets.UTF_8);
+            _conf.getFileHandler().write(Collections.singleton(data), writer);
+            writer.flush();
+        } catch (OpenJPAException ke) {
+            throw ke;
+        } catch (Exception e) {
+            throw new StoreException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode the data of the given record payload.
+     */
+    private ObjectData decode(byte[] payload) {
+        try {
+            Collection datas = _conf.getFileHandler().read(
+                new ByteArrayInputStream(payload));
+            return (ObjectData) datas.iterator().next();
+        } catch (OpenJPAException ke) {
+            throw ke;
+        } catch (Exception e) {
+            throw new StoreException(e);
+        }
+    }
+
+    private static int checksum(byte op, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(op);
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * The changes of a transaction to a single log.
+     */
+    private static class Changes {
+
+        final ClassLog log;
+        final List<ObjectData> puts = new ArrayList<>();
+        final List<ObjectData> deletes = new ArrayList<>();
+
+        Changes(ClassLog log) {
+            this.log = log;
+        }
+    }
+
+    /**
+     * Position and version of the live record of an object.
+     */
+    private static class Record {
+
+        final int pos;
+        final int length;
+        final Long version;
+        private volatile SoftReference<ObjectData> _data;
+
+        Record(int pos, int length, Long version, ObjectData data) {
+            this.pos = pos;
+            this.length = length;
+            this.version = version;
+            setData(data);
+        }
+
+        /**
+         * Size of the record including its header.
+         */
+        int size() {
+            return HEADER_LENGTH + length;
+        }
+
+        ObjectData getData() {
+            return _data.get();
+        }
+
+        void setData(ObjectData data) {
+            _data = new SoftReference<>(data);
+        }
+    }
+
+    /**
+     * The log of a least-derived class.
+     */
+    private class ClassLog {
+
+        private final File _file;
+        private final ReentrantReadWriteLock _lock =
+            new ReentrantReadWriteLock();
+
+        // guarded by _lock
+        private Map<Object, Record> _index = new HashMap<>();
+        private FileChannel _channel;
+        private MappedByteBuffer _map;
+        private int _size;
+        private long _dead;
+
+        ClassLog(ClassMetaData meta) {
+            File f = _conf.getFileHandler().getFile(meta);
+            _file = new File(f.getPath() + SUFFIX);
+            try {
+                if (_file.getParentFile() != null)
+                    Files.createDirectories(_file.getParentFile().toPath());
+                _channel = FileChannel.open(_file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+                long length = _channel.size();
+                if (length > Integer.MAX_VALUE)
+                    throw new StoreException("Log " + _file + " exceeds "
+                        + "the maximum size of " + Integer.MAX_VALUE
+                        + " bytes.").setFatal(true);
+                _map = _channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(length, MIN_CAPACITY));
+                recover();
+            } catch (OpenJPAException ke) {
+                close();
+                throw ke;
+            } catch (Exception e) {
+                close();
+                throw new StoreException(e).setFatal(true);
+            }
+        }
+
+        /**
+         * Replay the log into the index. Stops at the first record that
+         * is not complete, and clears its header.
+         */
+        private void recover() {
+            int capacity = _map.capacity();
+            while (_size + HEADER_LENGTH <= capacity) {
+                int length = _map.getInt(_size);
+                if (length <= 0 || length > capacity - _size - HEADER_LENGTH)
+                    break;
+                int crc = _map.getInt(_size + 4);
+                byte op = _map.get(_size + 8);
+                byte[] payload = read(_size + HEADER_LENGTH, length);
+                if (crc != checksum(op, payload))
+                    break;
+                apply(op, decode(payload), _size, length);
+                _size += HEADER_LENGTH + length;
+            }
+
+            // a torn record must not be mistaken for a complete one once
+            // records are appended after it
+            for (int i = _size; i < capacity && i < _size + HEADER_LENGTH;
+                i++)
+                _map.put(i, (byte) 0);
+        }
+
+        /**
+         * Apply a record to the index.
+         */
+        private void apply(byte op, ObjectData data, int pos, int length) {
+            Record old;
+            if (op == OP_PUT) {
+                old = _index.put(data.getId(), new Record(pos, length,
+                    data.getVersion(), data));
+            } else {
+                old = _index.remove(data.getId());
+                _dead += HEADER_LENGTH + length;
+            }
+            if (old != null)
+                _dead += old.size();
+        }
+
+        private byte[] read(int pos, int length) {
+            byte[] bytes = new byte[length];
+            ByteBuffer buf = _map.duplicate();
+            buf.position(pos);
+            buf.get(bytes);
+            return bytes;
+        }
+
+        ObjectData get(Object oid) {
+            Record rec;
+            byte[] payload;
+            _lock.readLock().lock();
+            try {
+                rec = _index.get(oid);
+                if (rec == null)
+                    return null;
+                ObjectData data = rec.getData();
+                if (data != null)
+                    return data;
+                payload = read(rec.pos + HEADER_LENGTH, rec.length);
+            } finally {
+                _lock.readLock().unlock();
+            }
+            ObjectData data = decode(payload);
+            rec.setData(data);
+            return data;
+        }
+
+        ObjectData[] getAll() {
+            Record[] recs;
+            ObjectData[] datas;
+            byte[][] payloads;
+            _lock.readLock().lock();
+            try {
+                recs = _index.values().toArray(new Record[_index.size()]);
+                datas = new ObjectData[recs.length];
+                payloads = new byte[recs.length][];
+                for (int i = 0; i < recs.length; i++) {
+                    datas[i] = recs[i].getData();
+                    if (datas[i] == null)
+                        payloads[i] = read(recs[i].pos + HEADER_LENGTH,
+                            recs[i].length);
+                }
+            } finally {
+                _lock.readLock().unlock();
+            }
+
+            // decode outside the lock
+            for (int i = 0; i < recs.length; i++) {
+                if (datas[i] == null) {
+                    datas[i] = decode(payloads[i]);
+                    recs[i].setData(datas[i]);
+                }
+            }
+            return datas;
+        }
+
+        /**
+         * Check the versions of the changed objects against their live
+         * records. Must be called with the write lock held.
+         */
+        void validate(Changes changes) {
+            for (ObjectData data : changes.puts) {
+                Record rec = _index.get(data.getId());
+                long version = data.getVersion();
+                if (rec == null ? version != 0
+                    : rec.version == null || rec.version != version - 1)
+                    throw new OptimisticException(data.getId());
+            }
+            for (ObjectData data : changes.deletes) {
+                Record rec = _index.get(data.getId());
+                if (rec != null && !rec.version.equals(data.getVersion()))
+                    throw new OptimisticException(data.getId());
+            }
+        }
+
+        /**
+         * Append the records of the given changes. Must be called with the
+         * write lock held.
+         */
+        void append(Changes changes) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                List<ObjectData> datas = new ArrayList<>();
+                List<Byte> ops = new ArrayList<>();
+                List<Integer> lengths = new ArrayList<>();
+                for (ObjectData data : changes.puts)
+                    write(out, OP_PUT, data, datas, ops, lengths);
+                for (ObjectData data : changes.deletes)
+                    if (_index.containsKey(data.getId()))
+                        write(out, OP_DELETE, data, datas, ops, lengths);
+                out.flush();
+                if (datas.isEmpty())
+                    return;
+
+                byte[] records = bytes.toByteArray();
+                ensureCapacity(records.length);
+                ByteBuffer buf = _map.duplicate();
+                buf.position(_size);
+                buf.put(records);
+                if (_sync)
+                    _map.force();
+
+                int pos = _size;
+                for (int i = 0; i < datas.size(); i++) {
+                    apply(ops.get(i), datas.get(i), pos, lengths.get(i));
+                    pos += HEADER_LENGTH + lengths.get(i);
+                }
+                _size = pos;
+            } catch (OpenJPAException ke) {
+                throw ke;
+            } catch (IOException ioe) {
+                throw new StoreException(ioe);
+            }
+
+            if (_dead > _compactionThreshold
+                && _dead > _compactionRatio * (_size - _dead))
+                compact();
+        }
+
+        private void write(DataOutputStream out, byte op, ObjectData data,
+            List<ObjectData> datas, List<Byte> ops, List<Integer> lengths)
+            throws IOException {
+            byte[] payload = encode(data);
+            out.writeInt(payload.length);
+            out.writeInt(checksum(op, payload));
+            out.writeByte(op);
+            out.write(payload);
+            datas.add(data);
+            ops.add(op);
+            lengths.add(payload.length);
+        }
+
+        /**
+         * Grow the mapped region so that the given number of bytes can be
+         * appended.
+         */
+        private void ensureCapacity(int length)
+            throws IOException {
+            long required = (long) _size + length;
+            if (required <= _map.capacity())
+                return;
+            if (required > Integer.MAX_VALUE)
+                throw new StoreException("Log " + _file + " exceeds the "
+                    + "maximum size of " + Integer.MAX_VALUE + " bytes.");
+            long capacity = Math.min(Integer.MAX_VALUE,
+                Math.max(required, 2L * _map.capacity()));
+            _map = _channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+
+        /**
+         * Copy the live records into a new log that then replaces this
+         * one. Must be called with the write lock held. A crash before the
+         * new log is in place leaves this log intact.
+         */
+        private void compact() {
+            File compacted = new File(_file.getPath() + COMPACT_SUFFIX);
+            Map<Object, Record> index = new HashMap<>(_index.size());
+            int size = 0;
+
+            // written through the channel rather than mapped, so that no
+            // mapping of the new log is open when it is moved over this one
+            try (FileChannel channel = FileChannel.open(compacted.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer src = _map.duplicate();
+                for (Map.Entry<Object, Record> e : _index.entrySet()) {
+                    Record rec = e.getValue();
+                    src.limit(rec.pos + rec.size()).position(rec.pos);
+                    index.put(e.getKey(), new Record(size, rec.length,
+                        rec.version, rec.getData()));
+                    while (src.hasRemaining())
+                        size += channel.write(src);
+                }
+                channel.force(true);
+            } catch (IOException ioe) {
+                // the log is still intact; compaction is retried after
+                // the next commit
+                warnCompaction(ioe);
+                try {
+                    Files.deleteIfExists(compacted.toPath());
+                } catch (IOException e) {
+                }
+                return;
+            }
+
+            // a mapping can not be released explicitly, but the channel of
+            // this log is closed so that the move does not fail where open
+            // files can not be replaced
+            close();
+            try {
+                Files.move(compacted.toPath(), _file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ioe) {
+                warnCompaction(ioe);
+                size = -1;
+            }
+
+            try {
+                _channel = FileChannel.open(_file.toPath(),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+                if (size == -1)
+                    return; // this log is still in place, and still mapped
+                _map = _channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(size, MIN_CAPACITY));
+            } catch (IOException ioe) {
+                close();
+                throw new StoreException(ioe).setFatal(true);
+            }
+            _index = index;
+            _size = size;
+            _dead = 0;
+        }
+
+        private void warnCompaction(IOException ioe) {
+            if (_log.isWarnEnabled())
+                _log.warn("Could not compact log " + _file + ": " + ioe, ioe);
+        }
+
+        private void close() {
+            if (_channel != null) {
+                try {
+                    _channel.close();
+                } catch (IOException ioe) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.xmlstore;
+
+/**
+ * Store manager to a back-end of append-only log files. This implementation
+ * accesses data through the {@link LogStore} associated with its
+ * {@link XMLConfiguration}; see {@link LogStore} for how data is stored.
+ * Use it in place of {@link XMLStoreManager} with:
+ * <pre>
+ * openjpa.BrokerFactory: abstractstore
+ * openjpa.abstractstore.AbstractStoreManager:
+ *     org.apache.openjpa.xmlstore.LogStoreManager(CompactionRatio=2)
+ * </pre>
+ * The properties of this store manager configure the shared store, so all
+ * store managers of a factory must be given the same values.
+ */
+public class LogStoreManager
+    extends XMLStoreManager {
+
+    private double _compactionRatio = 1.0;
+    private long _compactionThreshold = 1024 * 1024;
+    private boolean _sync = true;
+
+    /**
+     * The ratio of dead to live bytes in a log above which the log is
+     * compacted. Defaults to 1.
+     */
+    public void setCompactionRatio(double ratio) {
+        _compactionRatio = ratio;
+    }
+
+    /**
+     * The number of dead bytes a log must hold before it is compacted.
+     * Defaults to 1MB.
+     */
+    public void setCompactionThreshold(long bytes) {
+        _compactionThreshold = bytes;
+    }
+
+    /**
+     * Whether appended records are forced to the storage device before a
+     * commit completes. Defaults to true.
+     */
+    public void setSync(boolean sync) {
+        _sync = sync;
+    }
+
+    @Override
+    protected XMLStore getStore(XMLConfiguration conf) {
+        LogStore store = conf.getLogStore();
+        store.setCompactionRatio(_compactionRatio);
+        store.setCompactionThreshold(_compactionThreshold);
+        store.setSync(_sync);
+        return store;
+    }
+}
@@ -36,6 +36,7 @@ public class XMLConfiguration
 
     // shared resources
     private XMLStore _store;
+    private LogStore _logStore;
     private XMLFileHandler _handler;
 
     /**
@@ -70,4 +71,13 @@ public class XMLConfiguration
             _store = new XMLStore(this);
         return _store;
 	}
+
+    /**
+     * Return the {@link LogStore} associated with this configuration.
+     */
+    public synchronized LogStore getLogStore() {
+        if (_logStore == null)
+            _logStore = new LogStore(this);
+        return _logStore;
+    }
 }
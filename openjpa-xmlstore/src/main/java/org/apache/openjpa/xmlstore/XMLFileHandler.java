@@ -23,6 +23,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
@@ -107,6 +108,18 @@ public class XMLFileHandler {
         return handler.getExtent();
     }
 
+    /**
+     * Read a collection of {@link ObjectData}s from the given stream, which
+     * holds an extent in the format this handler writes.
+     */
+    Collection read(InputStream in)
+        throws Exception {
+        SAXParser parser = XMLFactory.getSAXParser(false, false);
+        ObjectDataHandler handler = new ObjectDataHandler(_conf);
+        parser.parse(in, handler);
+        return handler.getExtent();
+    }
+
     /**
      * Returns a {@link File} object that <code>meta</code> lives
      * in. This implementation creates a filename from the full class
@@ -115,7 +128,7 @@ public class XMLFileHandler {
      * directory is the URL identified by the <code>ConnectionURL</code>
      * configuration property.
      */
-    private File getFile(ClassMetaData meta) {
+    File getFile(ClassMetaData meta) {
         if (_conf.getConnectionURL() == null) {
             throw new InternalException("Invalid ConnectionURL");
         }
@@ -159,9 +172,9 @@ public class XMLFileHandler {
     }
 
     /**
-     * Write the given collection of {@link ObjectData}s to the given file.
+     * Write the given collection of {@link ObjectData}s to the given writer.
      */
-    private void write(Collection datas, FileWriter fw)
+    void write(Collection datas, Writer fw)
         throws Exception {
         // create an XML pretty printer to write out the objects
         Writer out = new XMLWriter(fw);
@@ -91,7 +91,7 @@ public class XMLStore {
      * above <code>meta</code>, or <code>meta</code> if it is a
      * least-derived metadata.
      */
-    private static ClassMetaData getLeastDerived(ClassMetaData meta) {
+    static ClassMetaData getLeastDerived(ClassMetaData meta) {
         while (meta.getPCSuperclass() != null)
             meta = meta.getPCSuperclassMetaData();
         return meta;
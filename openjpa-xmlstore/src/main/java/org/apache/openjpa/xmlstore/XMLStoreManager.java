@@ -78,7 +78,16 @@ public class XMLStoreManager
     protected void open() {
         // cache operational state
         _conf = (XMLConfiguration) ctx.getConfiguration();
-        _store = _conf.getStore();
+        _store = getStore(_conf);
+    }
+
+    /**
+     * Return the store shared by the store managers of the given
+     * configuration. This implementation returns
+     * {@link XMLConfiguration#getStore}.
+     */
+    protected XMLStore getStore(XMLConfiguration conf) {
+        return conf.getStore();
     }
 
     @Override